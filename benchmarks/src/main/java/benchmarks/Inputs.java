@@ -0,0 +1,41 @@
+package benchmarks;
+
+import matrix.BitMatrix;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Parameters shared by the backend benchmarks; both backends see the same two relations R
+ * and S for every combination.
+ */
+public abstract class Inputs {
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double density;
+
+    @Param({"RANDOM", "FUNCTION", "EQUIVALENCE", "ORDER"})
+    public Structure structure;
+
+    List<Integer> universe() {
+        List<Integer> universe = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            universe.add(i);
+        }
+        return universe;
+    }
+
+    BitMatrix first() {
+        return structure.generate(size, density, new Random(1));
+    }
+
+    BitMatrix second() {
+        return structure.generate(size, density, new Random(2));
+    }
+
+}
@@ -0,0 +1,150 @@
+package benchmarks;
+
+import matrix.MList;
+import matrix.MRelation;
+import matrix.RelationProperties;
+import org.openjdk.jmh.annotations.*;
+import universe.RelationProperty;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MRelationBenchmark extends Inputs {
+
+    private MRelation<Integer> relation;
+    private MRelation<Integer> other;
+    private final RelationProperties properties = new RelationProperties();
+
+    @Setup
+    public void setUp() {
+        MList<Integer> universalSet = new MList<>(universe());
+        relation = new MRelation<>(universalSet, first());
+        other = new MRelation<>(universalSet, second());
+    }
+
+    @Benchmark
+    public MRelation<Integer> union() throws Exception {
+        return relation.union(other);
+    }
+
+    @Benchmark
+    public MRelation<Integer> intersection() throws Exception {
+        return relation.intersection(other);
+    }
+
+    @Benchmark
+    public MRelation<Integer> difference() throws Exception {
+        return relation.difference(other);
+    }
+
+    @Benchmark
+    public MRelation<Integer> symmetricDifference() throws Exception {
+        return relation.symmetricDifference(other);
+    }
+
+    @Benchmark
+    public MRelation<Integer> complement() {
+        return relation.complement();
+    }
+
+    @Benchmark
+    public boolean[][] complementMaterialised() {
+        return relation.complement().getMatrix();
+    }
+
+    @Benchmark
+    public MRelation<Integer> composition() throws Exception {
+        return relation.composition(other);
+    }
+
+    @Benchmark
+    public MRelation<Integer> sum() throws Exception {
+        return relation.sum(other);
+    }
+
+    @Benchmark
+    public MRelation<Integer> converse() {
+        return relation.converse();
+    }
+
+    @Benchmark
+    public MRelation<Integer> transitiveClosure() {
+        return relation.transitiveClosure();
+    }
+
+    @Benchmark
+    public boolean isSubsetOf() throws Exception {
+        return relation.isSubsetOf(other);
+    }
+
+    @Benchmark
+    public boolean isEqual() throws Exception {
+        return relation.isEqual(other);
+    }
+
+    @Benchmark
+    public boolean isReflexive() {
+        return relation.isReflexive();
+    }
+
+    @Benchmark
+    public boolean isSymmetric() {
+        return relation.isSymmetric();
+    }
+
+    @Benchmark
+    public boolean isAntiSymmetric() {
+        return relation.isAntiSymmetric();
+    }
+
+    @Benchmark
+    public boolean isTransitive() {
+        return relation.isTransitive();
+    }
+
+    @Benchmark
+    public boolean isEquivalence() {
+        return relation.isEquivalence();
+    }
+
+    @Benchmark
+    public boolean isPartialOrder() {
+        return relation.isPartialOrder();
+    }
+
+    @Benchmark
+    public boolean isFunction() {
+        return relation.isFunction();
+    }
+
+    @Benchmark
+    public boolean isOneToOne() {
+        return relation.isOneToOne();
+    }
+
+    @Benchmark
+    public int analyseAll() {
+        return properties.analyse(relation, RelationProperty.ALL);
+    }
+
+    @Benchmark
+    public MList<Integer> getDomain() {
+        return relation.getDomain();
+    }
+
+    @Benchmark
+    public MList<Integer> getRange() {
+        return relation.getRange();
+    }
+
+    @Benchmark
+    public boolean conjugatedQuasiProjection() throws Exception {
+        return relation.conjugatedQuasiProjection(other);
+    }
+
+}
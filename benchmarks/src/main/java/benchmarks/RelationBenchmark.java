@@ -0,0 +1,154 @@
+package benchmarks;
+
+import matrix.MList;
+import matrix.MRelation;
+import org.openjdk.jmh.annotations.*;
+import traditional.Pair;
+import traditional.RSet;
+import traditional.Relation;
+import traditional.RelationProperties;
+import universe.RelationProperty;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelationBenchmark extends Inputs {
+
+    private Relation<Integer> relation;
+    private Relation<Integer> other;
+    private final RelationProperties properties = new RelationProperties();
+
+    @Setup
+    public void setUp() {
+        MList<Integer> universalSet = new MList<>(universe());
+        // built through the matrix backend so both relations share one universe
+        relation = new Relation<>(new MRelation<>(universalSet, first()));
+        other = new Relation<>(new MRelation<>(universalSet, second()));
+    }
+
+    @Benchmark
+    public Relation<Integer> union() throws Exception {
+        return relation.union(other);
+    }
+
+    @Benchmark
+    public Relation<Integer> intersection() throws Exception {
+        return relation.intersection(other);
+    }
+
+    @Benchmark
+    public Relation<Integer> difference() throws Exception {
+        return relation.difference(other);
+    }
+
+    @Benchmark
+    public Relation<Integer> symmetricDifference() throws Exception {
+        return relation.symmetricDifference(other);
+    }
+
+    @Benchmark
+    public Relation<Integer> complement() {
+        return relation.complement();
+    }
+
+    @Benchmark
+    public RSet<Pair<Integer>> complementMaterialised() {
+        return relation.complement().getPairs();
+    }
+
+    @Benchmark
+    public Relation<Integer> composition() throws Exception {
+        return relation.composition(other);
+    }
+
+    @Benchmark
+    public Relation<Integer> sum() throws Exception {
+        return relation.sum(other);
+    }
+
+    @Benchmark
+    public Relation<Integer> converse() {
+        return relation.converse();
+    }
+
+    @Benchmark
+    public Relation<Integer> transitiveClosure() {
+        return relation.transitiveClosure();
+    }
+
+    @Benchmark
+    public boolean isSubsetOf() throws Exception {
+        return relation.isSubsetOf(other);
+    }
+
+    @Benchmark
+    public boolean isEqual() throws Exception {
+        return relation.isEqual(other);
+    }
+
+    @Benchmark
+    public boolean isReflexive() {
+        return relation.isReflexive();
+    }
+
+    @Benchmark
+    public boolean isSymmetric() {
+        return relation.isSymmetric();
+    }
+
+    @Benchmark
+    public boolean isAntiSymmetric() {
+        return relation.isAntiSymmetric();
+    }
+
+    @Benchmark
+    public boolean isTransitive() {
+        return relation.isTransitive();
+    }
+
+    @Benchmark
+    public boolean isEquivalence() {
+        return relation.isEquivalence();
+    }
+
+    @Benchmark
+    public boolean isPartialOrder() {
+        return relation.isPartialOrder();
+    }
+
+    @Benchmark
+    public boolean isFunction() {
+        return relation.isFunction();
+    }
+
+    @Benchmark
+    public boolean isOneToOne() {
+        return relation.isOneToOne();
+    }
+
+    @Benchmark
+    public int analyseAll() {
+        return properties.analyse(relation, RelationProperty.ALL);
+    }
+
+    @Benchmark
+    public RSet<Integer> getDomain() {
+        return relation.getDomain();
+    }
+
+    @Benchmark
+    public RSet<Integer> getRange() {
+        return relation.getRange();
+    }
+
+    @Benchmark
+    public boolean conjugatedQuasiProjection() throws Exception {
+        return relation.conjugatedQuasiProjection(other);
+    }
+
+}
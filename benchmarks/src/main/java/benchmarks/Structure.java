@@ -0,0 +1,80 @@
+package benchmarks;
+
+import matrix.BitMatrix;
+import matrix.Closure;
+
+import java.util.Random;
+
+/**
+ * Shapes of generated relations. Density is read per shape: the share of pairs for RANDOM,
+ * one over the number of classes for EQUIVALENCE and the chance of each covering edge for
+ * ORDER; FUNCTION always has exactly one pair per row.
+ */
+public enum Structure {
+
+    RANDOM {
+        @Override
+        BitMatrix generate(int size, double density, Random random) {
+            BitMatrix matrix = new BitMatrix(size);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (random.nextDouble() < density) matrix.set(i, j);
+                }
+            }
+            return matrix;
+        }
+    },
+
+    FUNCTION {
+        @Override
+        BitMatrix generate(int size, double density, Random random) {
+            BitMatrix matrix = new BitMatrix(size);
+            for (int i = 0; i < size; i++) {
+                matrix.set(i, random.nextInt(size));
+            }
+            return matrix;
+        }
+    },
+
+    EQUIVALENCE {
+        @Override
+        BitMatrix generate(int size, double density, Random random) {
+            int classes = Math.max(1, (int) Math.round(1 / density));
+            int[] classOf = new int[size];
+            for (int i = 0; i < size; i++) {
+                classOf[i] = random.nextInt(classes);
+            }
+            BitMatrix matrix = new BitMatrix(size);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (classOf[i] == classOf[j]) matrix.set(i, j);
+                }
+            }
+            return matrix;
+        }
+    },
+
+    ORDER {
+        @Override
+        BitMatrix generate(int size, double density, Random random) {
+            // covering edges only go up a random ranking, so the closure stays antisymmetric
+            int[] rank = new int[size];
+            for (int i = 0; i < size; i++) {
+                int j = random.nextInt(i + 1);
+                rank[i] = rank[j];
+                rank[j] = i;
+            }
+            BitMatrix edges = new BitMatrix(size);
+            double edge = density / Math.max(1, Math.log(size));
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (rank[i] < rank[j] && random.nextDouble() < edge) edges.set(i, j);
+                }
+            }
+            return Closure.reflexiveTransitive(edges);
+        }
+    };
+
+    abstract BitMatrix generate(int size, double density, Random random);
+
+}
@@ -0,0 +1,344 @@
+package adaptive;
+
+import compressed.CompressedRelation;
+import matrix.BitMatrix;
+import matrix.MRelation;
+import traditional.RSet;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+/**
+ * Relation that keeps its pairs in whichever backend suits its density and moves them when
+ * an operation crosses a threshold: a hash of pairs while there are about as many pairs as
+ * elements or fewer, compressed rows in the middle, and the bit matrix once more than one
+ * cell in 16 is stored, where Roaring rows turn into bitmaps anyway. Each move back down
+ * waits until the density has fallen a further factor of four, so relations near a
+ * boundary do not flip back and forth. Density counts the pairs actually stored, which for
+ * rows and matrices is the smaller of R and ∼R since runs and pending complements make
+ * either cheap.
+ * Binary operators convert the sparser operand to the form of the denser one and run on
+ * that backend.
+ * Relations with at most n pairs are checked for being functions when they are made, and
+ * those that are keep their images in a FunctionRelation, whose O(n) operators run while
+ * both operands are functions.
+ */
+public final class AdaptiveRelation<T> implements Relation<T> {
+
+    public enum Representation {
+        FUNCTION, PAIRS, ROWS, MATRIX
+    }
+
+    private final Universe<T> universe;
+    // exactly one of these is set
+    private final FunctionRelation<T> function;
+    private final traditional.Relation<T> pairs;
+    private final CompressedRelation<T> rows;
+    private final MRelation<T> matrix;
+
+    private AdaptiveRelation(traditional.Relation<T> pairs, CompressedRelation<T> rows, MRelation<T> matrix) {
+        this.function = null;
+        this.pairs = pairs;
+        this.rows = rows;
+        this.matrix = matrix;
+        this.universe = pairs != null ? pairs.getUniverse() : rows != null ? rows.getUniverse() : matrix.getUniverse();
+    }
+
+    private AdaptiveRelation(FunctionRelation<T> function) {
+        this.function = function;
+        this.pairs = null;
+        this.rows = null;
+        this.matrix = null;
+        this.universe = function.getUniverse();
+    }
+
+    /**
+     * @param current the form the pairs are in now, which is kept inside the hysteresis band
+     * @param stored number of pairs that form has to hold
+     * @return the form for the density
+     */
+    private static Representation choose(Representation current, long stored, int n) {
+        long cells = (long) n * n;
+        boolean dense = current == Representation.MATRIX ? 64 * stored >= cells : 16 * stored > cells;
+        if (dense) return Representation.MATRIX;
+        boolean sparse = current == Representation.PAIRS ? stored <= 2L * n : 2 * stored < n;
+        return sparse ? Representation.PAIRS : Representation.ROWS;
+    }
+
+    private static long smaller(long size, Universe<?> universe) {
+        long cells = (long) universe.size() * universe.size();
+        return Math.min(size, cells - size);
+    }
+
+    /**
+     * @param relation R, moved to another form if its density calls for it
+     */
+    public static <T> AdaptiveRelation<T> of(traditional.Relation<T> relation) {
+        Universe<T> universe = relation.getUniverse();
+        long cells = (long) universe.size() * universe.size();
+        long stored = relation.isNegated() ? cells - relation.size() : relation.size();
+        switch (choose(Representation.PAIRS, stored, universe.size())) {
+            case PAIRS:
+                FunctionRelation<T> function = FunctionRelation.detect(relation);
+                if (function != null) return new AdaptiveRelation<>(function);
+                return new AdaptiveRelation<>(relation, null, null);
+            case ROWS:
+                return new AdaptiveRelation<>(null, CompressedRelation.of(relation), null);
+            default:
+                return new AdaptiveRelation<>(null, null, toMatrix(relation));
+        }
+    }
+
+    /**
+     * @param relation R, moved to another form if its density calls for it
+     */
+    public static <T> AdaptiveRelation<T> of(CompressedRelation<T> relation) {
+        Universe<T> universe = relation.getUniverse();
+        switch (choose(Representation.ROWS, smaller(relation.size(), universe), universe.size())) {
+            case PAIRS:
+                return of(relation.toRelation());
+            case ROWS:
+                return new AdaptiveRelation<>(null, relation, null);
+            default:
+                return new AdaptiveRelation<>(null, null, relation.toMRelation());
+        }
+    }
+
+    /**
+     * @param relation R, moved to another form if its density calls for it
+     */
+    public static <T> AdaptiveRelation<T> of(MRelation<T> relation) {
+        Universe<T> universe = relation.getUniverse();
+        long size = relation.size();
+        switch (choose(Representation.MATRIX, smaller(size, universe), universe.size())) {
+            case PAIRS:
+                FunctionRelation<T> function = size <= universe.size() ? FunctionRelation.detect(relation) : null;
+                if (function != null) return new AdaptiveRelation<>(function);
+                long cells = (long) universe.size() * universe.size();
+                traditional.Relation<T> pairs = 2 * size <= cells
+                        ? new traditional.Relation<>(relation)
+                        : new traditional.Relation<>(relation.complement()).complement();
+                return new AdaptiveRelation<>(pairs, null, null);
+            case ROWS:
+                return new AdaptiveRelation<>(null, CompressedRelation.of(relation), null);
+            default:
+                return new AdaptiveRelation<>(null, null, relation);
+        }
+    }
+
+    /**
+     * @param relation R in any implementation
+     */
+    public static <T> AdaptiveRelation<T> of(Relation<T> relation) {
+        if (relation instanceof AdaptiveRelation) return (AdaptiveRelation<T>) relation;
+        if (relation instanceof FunctionRelation) return new AdaptiveRelation<>((FunctionRelation<T>) relation);
+        return of(relation.toRelation());
+    }
+
+    /**
+     * For the operators of FunctionRelation that leave the functions, whose pairs are few
+     * enough for the hash and must not be turned back into a function
+     * @param relation R, at most n pairs
+     */
+    static <T> AdaptiveRelation<T> ofPairs(traditional.Relation<T> relation) {
+        return new AdaptiveRelation<>(relation, null, null);
+    }
+
+    /**
+     * @return ∅ over U
+     */
+    public static <T> AdaptiveRelation<T> empty(Universe<T> universe) {
+        return new AdaptiveRelation<>(new RSet<>(universe).emptyRelation(), null, null);
+    }
+
+    private static <T> MRelation<T> toMatrix(traditional.Relation<T> relation) {
+        // converting the stored pairs keeps the cost at the size of the table
+        return relation.isNegated() ? new MRelation<>(relation.complement()).complement() : new MRelation<>(relation);
+    }
+
+    public Representation getRepresentation() {
+        if (function != null) return Representation.FUNCTION;
+        return pairs != null ? Representation.PAIRS : rows != null ? Representation.ROWS : Representation.MATRIX;
+    }
+
+    @Override
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    @Override
+    public long size() {
+        if (function != null) return function.size();
+        return pairs != null ? pairs.size() : rows != null ? rows.size() : matrix.size();
+    }
+
+    @Override
+    public boolean contains(T first, T second) {
+        if (function != null) return function.contains(first, second);
+        if (pairs != null) return pairs.contains(first, second);
+        return rows != null ? rows.contains(first, second) : matrix.contains(first, second);
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        if (function != null) {
+            function.forEachPair(action);
+            return;
+        }
+        if (pairs != null) {
+            pairs.forEachPair(action);
+            return;
+        }
+        if (rows != null) {
+            rows.forEachPair(action);
+            return;
+        }
+        BitMatrix bits = matrix.getBits();
+        for (int i = 0; i < bits.size(); i++) {
+            for (int j = bits.nextSetBit(i, 0); j >= 0; j = bits.nextSetBit(i, j + 1)) {
+                action.accept(i, j);
+            }
+        }
+    }
+
+    @Override
+    public traditional.Relation<T> toRelation() {
+        if (function != null) return function.toRelation();
+        if (pairs != null) return pairs;
+        return rows != null ? rows.toRelation() : new traditional.Relation<>(matrix);
+    }
+
+    @Override
+    public CompressedRelation<T> toCompressedRelation() {
+        if (function != null) return function.toCompressedRelation();
+        if (rows != null) return rows;
+        return pairs != null ? CompressedRelation.of(pairs) : CompressedRelation.of(matrix);
+    }
+
+    @Override
+    public MRelation<T> toMRelation() {
+        if (function != null) return function.toMRelation();
+        if (matrix != null) return matrix;
+        return rows != null ? rows.toMRelation() : toMatrix(pairs);
+    }
+
+    private interface FunctionOperator<T, R> {
+
+        R apply(FunctionRelation<T> relation, FunctionRelation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    }
+
+    private interface PairsOperator<T, R> {
+
+        R apply(traditional.Relation<T> relation, traditional.Relation<T> otherRelation) throws traditional.UnmatchedUniversalSetsException;
+
+    }
+
+    private interface RowsOperator<T, R> {
+
+        R apply(CompressedRelation<T> relation, CompressedRelation<T> otherRelation) throws compressed.UnmatchedUniversalSetsException;
+
+    }
+
+    private interface MatrixOperator<T, R> {
+
+        R apply(MRelation<T> relation, MRelation<T> otherRelation) throws matrix.UnmatchedUniversalSetsException;
+
+    }
+
+    /**
+     * Runs the operator on the backend both operands share, or on that of the denser operand
+     */
+    private <R> R dispatch(Relation<T> otherRelation, FunctionOperator<T, R> onFunctions, PairsOperator<T, R> onPairs, RowsOperator<T, R> onRows, MatrixOperator<T, R> onMatrix) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.getUniverse())) throw new UnmatchedUniversalSetsException();
+        AdaptiveRelation<T> other = of(otherRelation);
+        Representation representation = getRepresentation().compareTo(other.getRepresentation()) >= 0 ? getRepresentation() : other.getRepresentation();
+        try {
+            switch (representation) {
+                case FUNCTION:
+                    return onFunctions.apply(function, other.function);
+                case PAIRS:
+                    return onPairs.apply(toRelation(), other.toRelation());
+                case ROWS:
+                    return onRows.apply(toCompressedRelation(), other.toCompressedRelation());
+                default:
+                    return onMatrix.apply(toMRelation(), other.toMRelation());
+            }
+        } catch (traditional.UnmatchedUniversalSetsException | compressed.UnmatchedUniversalSetsException | matrix.UnmatchedUniversalSetsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AdaptiveRelation<T> binary(Relation<T> otherRelation, FunctionOperator<T, Relation<T>> onFunctions, PairsOperator<T, traditional.Relation<T>> onPairs, RowsOperator<T, CompressedRelation<T>> onRows, MatrixOperator<T, MRelation<T>> onMatrix) throws UnmatchedUniversalSetsException {
+        return dispatch(otherRelation,
+                (relation, other) -> of(onFunctions.apply(relation, other)),
+                (relation, other) -> of(onPairs.apply(relation, other)),
+                (relation, other) -> of(onRows.apply(relation, other)),
+                (relation, other) -> of(onMatrix.apply(relation, other)));
+    }
+
+    @Override
+    public AdaptiveRelation<T> union(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return binary(otherRelation, FunctionRelation::union, traditional.Relation::union, CompressedRelation::union, MRelation::union);
+    }
+
+    @Override
+    public AdaptiveRelation<T> intersection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return binary(otherRelation, FunctionRelation::intersection, traditional.Relation::intersection, CompressedRelation::intersection, MRelation::intersection);
+    }
+
+    @Override
+    public AdaptiveRelation<T> difference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return binary(otherRelation, FunctionRelation::difference, traditional.Relation::difference, CompressedRelation::difference, MRelation::difference);
+    }
+
+    @Override
+    public AdaptiveRelation<T> symmetricDifference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return binary(otherRelation, FunctionRelation::symmetricDifference, traditional.Relation::symmetricDifference, CompressedRelation::symmetricDifference, MRelation::symmetricDifference);
+    }
+
+    @Override
+    public AdaptiveRelation<T> composition(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return binary(otherRelation, FunctionRelation::composition, traditional.Relation::composition, CompressedRelation::composition, MRelation::composition);
+    }
+
+    @Override
+    public AdaptiveRelation<T> sum(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return binary(otherRelation, FunctionRelation::sum, traditional.Relation::sum, CompressedRelation::sum, MRelation::sum);
+    }
+
+    /**
+     * The stored pairs of the complement are as many as before, so the form does not change,
+     * except that the complement of a function is no function
+     */
+    @Override
+    public AdaptiveRelation<T> complement() {
+        if (function != null) return of(function.complement());
+        if (pairs != null) return new AdaptiveRelation<>(pairs.complement(), null, null);
+        return rows != null ? new AdaptiveRelation<>(null, rows.complement(), null) : new AdaptiveRelation<>(null, null, matrix.complement());
+    }
+
+    @Override
+    public AdaptiveRelation<T> converse() {
+        if (function != null) return of(function.converse());
+        if (pairs != null) return new AdaptiveRelation<>(pairs.converse(), null, null);
+        return rows != null ? new AdaptiveRelation<>(null, rows.converse(), null) : new AdaptiveRelation<>(null, null, matrix.converse());
+    }
+
+    @Override
+    public AdaptiveRelation<T> transitiveClosure() {
+        if (function != null) return of(function.transitiveClosure());
+        if (pairs != null) return of(pairs.transitiveClosure());
+        return rows != null ? of(rows.transitiveClosure()) : of(matrix.transitiveClosure());
+    }
+
+    @Override
+    public boolean isSubsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return dispatch(otherRelation, FunctionRelation::isSubsetOf, traditional.Relation::isSubsetOf, CompressedRelation::isSubsetOf, MRelation::isSubsetOf);
+    }
+
+    @Override
+    public boolean isEqual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return dispatch(otherRelation, FunctionRelation::isEqual, traditional.Relation::isEqual, CompressedRelation::isEqual, MRelation::isEqual);
+    }
+
+}
@@ -0,0 +1,482 @@
+package adaptive;
+
+import compressed.CompressedRelation;
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import traditional.RSet;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Equivalence relation stored as its partition: the id of the smallest member of its class
+ * for every element, so (α, β) ∈ E is one comparison and two partitions are equal iff their
+ * arrays are. Join (the equivalence closure of E ∪ F) merges classes with union-find and meet
+ * (E ∩ F) splits them by pairs of class ids, both in near-linear time; E⁻¹ = E⁺ = E | E = E.
+ * E ∩ S, E ∼ S and E ⊆ S against any S test the pairs of E one by one; the other operators
+ * whose results need not be equivalences hand over to AdaptiveRelation.
+ */
+public final class EquivalenceRelation<T> implements Relation<T> {
+
+    private final Universe<T> universe;
+    // smallest id in the class of each element
+    private final int[] classes;
+    private final long size;
+
+    private EquivalenceRelation(Universe<T> universe, int[] classes) {
+        this.universe = universe;
+        this.classes = classes;
+        int[] counts = new int[classes.length];
+        for (int c : classes) {
+            counts[c]++;
+        }
+        long pairs = 0;
+        for (int count : counts) {
+            pairs += (long) count * count;
+        }
+        this.size = pairs;
+    }
+
+    /**
+     * @return idU, every element in a class of its own
+     */
+    public static <T> EquivalenceRelation<T> identity(Universe<T> universe) {
+        int[] classes = new int[universe.size()];
+        Arrays.setAll(classes, i -> i);
+        return new EquivalenceRelation<>(universe, classes);
+    }
+
+    /**
+     * @param labels any int per element; elements with equal labels share a class
+     */
+    public static <T> EquivalenceRelation<T> of(Universe<T> universe, int[] labels) {
+        if (labels.length != universe.size()) throw new IllegalArgumentException("labels do not match the universe");
+        HashMap<Integer, Integer> smallest = new HashMap<>();
+        int[] classes = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            Integer first = smallest.putIfAbsent(labels[i], i);
+            classes[i] = first == null ? i : first;
+        }
+        return new EquivalenceRelation<>(universe, classes);
+    }
+
+    /**
+     * The smallest equivalence containing R, (R ∪ R⁻¹)*, by union-find over the pairs
+     * @param relation R
+     * @return the equivalence closure of R
+     */
+    public static <T> EquivalenceRelation<T> closure(Relation<T> relation) {
+        UnionFind sets = new UnionFind(relation.getUniverse().size());
+        relation.forEachPair(sets::union);
+        return new EquivalenceRelation<>(relation.getUniverse(), sets.classes());
+    }
+
+    /**
+     * @param relation R
+     * @return R as a partition, or null if R is not an equivalence
+     */
+    public static <T> EquivalenceRelation<T> detect(Relation<T> relation) {
+        if (relation instanceof EquivalenceRelation) return (EquivalenceRelation<T>) relation;
+        EquivalenceRelation<T> closure = closure(relation);
+        // R ⊆ closure always, so equal sizes mean R is its own closure
+        return closure.size == relation.size() ? closure : null;
+    }
+
+    /**
+     * @param relation R
+     * @return R as a partition, or null if R is not an equivalence
+     */
+    public static <T> EquivalenceRelation<T> detect(traditional.Relation<T> relation) {
+        if (!relation.isEquivalence()) return null;
+        UnionFind sets = new UnionFind(relation.getUniverse().size());
+        relation.forEachPair(sets::union);
+        return new EquivalenceRelation<>(relation.getUniverse(), sets.classes());
+    }
+
+    /**
+     * In an equivalence the first pair of every row is the smallest member of its class
+     * @param relation R
+     * @return R as a partition, or null if R is not an equivalence
+     */
+    public static <T> EquivalenceRelation<T> detect(MRelation<T> relation) {
+        if (!relation.isEquivalence()) return null;
+        BitMatrix bits = relation.getBits();
+        int[] classes = new int[bits.size()];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = bits.nextSetBit(i, 0);
+        }
+        return new EquivalenceRelation<>(relation.getUniverse(), classes);
+    }
+
+    /**
+     * Path-halving union-find whose roots end up as the smallest member of each set
+     */
+    private static final class UnionFind {
+
+        private final int[] parents;
+
+        UnionFind(int n) {
+            parents = new int[n];
+            Arrays.setAll(parents, i -> i);
+        }
+
+        int find(int x) {
+            while (parents[x] != x) {
+                parents[x] = parents[parents[x]];
+                x = parents[x];
+            }
+            return x;
+        }
+
+        void union(int x, int y) {
+            int rx = find(x);
+            int ry = find(y);
+            // the smaller id becomes the root, which keeps roots canonical
+            if (rx < ry) parents[ry] = rx;
+            else if (ry < rx) parents[rx] = ry;
+        }
+
+        int[] classes() {
+            int[] classes = new int[parents.length];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = find(i);
+            }
+            return classes;
+        }
+
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int classCount() {
+        int count = 0;
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i] == i) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return whether α and β are in the same class; same as contains(α, β)
+     */
+    public boolean equivalent(T first, T second) {
+        return contains(first, second);
+    }
+
+    /**
+     * @return a copy of the class of every element, as the id of its smallest member
+     */
+    public int[] getClasses() {
+        return classes.clone();
+    }
+
+    /**
+     * U / E, with the classes ordered by their smallest member
+     * @return the equivalence classes
+     */
+    public List<RSet<T>> quotient() {
+        List<List<T>> members = new ArrayList<>();
+        int[] index = new int[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i] == i) {
+                index[i] = members.size();
+                members.add(new ArrayList<>());
+            }
+            members.get(index[classes[i]]).add(universe.get(i));
+        }
+        List<RSet<T>> quotient = new ArrayList<>(members.size());
+        for (List<T> member : members) {
+            quotient.add(new RSet<>(member));
+        }
+        return quotient;
+    }
+
+    /**
+     * E ∨ F, the smallest equivalence containing both, as the classes of E merged along F
+     * @param otherRelation F
+     * @return the equivalence closure of self ∪ F
+     */
+    public EquivalenceRelation<T> join(EquivalenceRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        UnionFind sets = new UnionFind(classes.length);
+        for (int i = 0; i < classes.length; i++) {
+            sets.union(i, classes[i]);
+            sets.union(i, otherRelation.classes[i]);
+        }
+        return new EquivalenceRelation<>(universe, sets.classes());
+    }
+
+    /**
+     * E ∧ F = E ∩ F: α and β stay together iff they share a class in both
+     * @param otherRelation F
+     * @return self ∩ F
+     */
+    public EquivalenceRelation<T> meet(EquivalenceRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        HashMap<Long, Integer> smallest = new HashMap<>();
+        int[] result = new int[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            long both = ((long) classes[i] << 32) | otherRelation.classes[i];
+            Integer first = smallest.putIfAbsent(both, i);
+            result[i] = first == null ? i : first;
+        }
+        return new EquivalenceRelation<>(universe, result);
+    }
+
+    @Override
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    /**
+     * @return the sum of the squares of the class sizes
+     */
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        return i >= 0 && j >= 0 && classes[i] == classes[j];
+    }
+
+    /**
+     * Visits the classes in order of their smallest member
+     */
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        int[][] members = members();
+        for (int[] member : members) {
+            for (int first : member) {
+                for (int second : member) {
+                    action.accept(first, second);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the ids in every class, ascending, classes in order of their smallest member
+     */
+    private int[][] members() {
+        int[] counts = new int[classes.length];
+        for (int c : classes) {
+            counts[c]++;
+        }
+        int[][] members = new int[classes.length][];
+        int[] filled = new int[classes.length];
+        int count = 0;
+        for (int i = 0; i < classes.length; i++) {
+            int c = classes[i];
+            if (c == i) {
+                members[c] = new int[counts[c]];
+                count++;
+            }
+            members[c][filled[c]++] = i;
+        }
+        int[][] nonEmpty = new int[count][];
+        count = 0;
+        for (int[] member : members) {
+            if (member != null) nonEmpty[count++] = member;
+        }
+        return nonEmpty;
+    }
+
+    private void check(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.getUniverse())) throw new UnmatchedUniversalSetsException();
+    }
+
+    /**
+     * @return self as an adaptive relation, for the operators that leave the equivalences
+     */
+    private AdaptiveRelation<T> general() {
+        return AdaptiveRelation.of(toRelation());
+    }
+
+    /**
+     * E ∩ S and E ∼ S lie inside E, so they are found by testing the pairs of E against S,
+     * |E| membership tests and no n² table
+     * @param keep whether to keep the pairs that S holds rather than those it lacks
+     */
+    private AdaptiveRelation<T> filter(Relation<T> otherRelation, boolean keep) {
+        long[] pairs = new long[16];
+        int count = 0;
+        for (int[] member : members()) {
+            for (int first : member) {
+                for (int second : member) {
+                    if (otherRelation.contains(universe.get(first), universe.get(second)) != keep) continue;
+                    if (count == pairs.length) pairs = Arrays.copyOf(pairs, 2 * count);
+                    pairs[count++] = ((long) first << 32) | second;
+                }
+            }
+        }
+        return AdaptiveRelation.of(traditional.Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs, 0, count).iterator(), count));
+    }
+
+    @Override
+    public Relation<T> union(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().union(otherRelation);
+    }
+
+    /**
+     * An equivalence when S is one; otherwise the pairs of self that S holds
+     * @return self ∩ S
+     */
+    @Override
+    public Relation<T> intersection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (otherRelation instanceof EquivalenceRelation) return meet((EquivalenceRelation<T>) otherRelation);
+        check(otherRelation);
+        return filter(otherRelation, true);
+    }
+
+    /**
+     * The pairs of self that S lacks
+     * @return self ∼ S
+     */
+    @Override
+    public Relation<T> difference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        return filter(otherRelation, false);
+    }
+
+    @Override
+    public Relation<T> symmetricDifference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().symmetricDifference(otherRelation);
+    }
+
+    @Override
+    public Relation<T> complement() {
+        return general().complement();
+    }
+
+    /**
+     * @return self, as E⁻¹ = E
+     */
+    @Override
+    public EquivalenceRelation<T> converse() {
+        return this;
+    }
+
+    /**
+     * When one of E and F contains the other, E | F is the larger of the two
+     * @return self | S
+     */
+    @Override
+    public Relation<T> composition(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (otherRelation instanceof EquivalenceRelation) {
+            EquivalenceRelation<T> other = (EquivalenceRelation<T>) otherRelation;
+            if (isSubsetOf(other)) return other;
+            if (other.isSubsetOf(this)) return this;
+        }
+        return general().composition(otherRelation);
+    }
+
+    @Override
+    public Relation<T> sum(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().sum(otherRelation);
+    }
+
+    /**
+     * @return self, as E⁺ = E
+     */
+    @Override
+    public EquivalenceRelation<T> transitiveClosure() {
+        return this;
+    }
+
+    /**
+     * Against an equivalence F: E ⊆ F iff every element shares the F-class of the smallest
+     * member of its E-class, O(n); against any other S, every pair of E is looked up in S
+     */
+    @Override
+    public boolean isSubsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (size > otherRelation.size()) return false;
+        if (otherRelation instanceof EquivalenceRelation) {
+            int[] otherClasses = ((EquivalenceRelation<T>) otherRelation).classes;
+            for (int i = 0; i < classes.length; i++) {
+                if (otherClasses[i] != otherClasses[classes[i]]) return false;
+            }
+            return true;
+        }
+        for (int[] member : members()) {
+            for (int first : member) {
+                for (int second : member) {
+                    if (!otherRelation.contains(universe.get(first), universe.get(second))) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEqual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (otherRelation instanceof EquivalenceRelation) return Arrays.equals(classes, ((EquivalenceRelation<T>) otherRelation).classes);
+        return size == otherRelation.size() && isSubsetOf(otherRelation);
+    }
+
+    /**
+     * Kept as the complement, the pairs across classes, when that is the smaller set
+     */
+    @Override
+    public traditional.Relation<T> toRelation() {
+        long n = classes.length;
+        boolean across = 2 * size > n * n;
+        int count = Math.toIntExact(across ? n * n - size : size);
+        long[] pairs = new long[count];
+        int next = 0;
+        if (across) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (classes[i] != classes[j]) pairs[next++] = ((long) i << 32) | j;
+                }
+            }
+        } else {
+            for (int[] member : members()) {
+                for (int first : member) {
+                    for (int second : member) {
+                        pairs[next++] = ((long) first << 32) | second;
+                    }
+                }
+            }
+        }
+        traditional.Relation<T> relation = traditional.Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs).iterator(), count);
+        return across ? relation.complement() : relation;
+    }
+
+    @Override
+    public CompressedRelation<T> toCompressedRelation() {
+        return CompressedRelation.of(toRelation());
+    }
+
+    /**
+     * Builds the row of every class once and copies it into the rows of its members
+     */
+    @Override
+    public MRelation<T> toMRelation() {
+        BitMatrix bits = new BitMatrix(classes.length);
+        long[] words = bits.getWords();
+        int wordsPerRow = bits.getWordsPerRow();
+        for (int[] member : members()) {
+            int first = member[0];
+            for (int second : member) {
+                bits.set(first, second);
+            }
+            for (int k = 1; k < member.length; k++) {
+                System.arraycopy(words, bits.rowOffset(first), words, bits.rowOffset(member[k]), wordsPerRow);
+            }
+        }
+        return new MRelation<>(new MList<>(universe), bits);
+    }
+
+}
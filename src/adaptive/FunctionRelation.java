@@ -0,0 +1,337 @@
+package adaptive;
+
+import compressed.CompressedRelation;
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import traditional.RSet;
+import universe.IdPairConsumer;
+import universe.PairCoverage;
+import universe.Universe;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Function;
+
+/**
+ * Relation in which every element has at most one image, stored as the id of that image per
+ * element (-1 where there is none): n ints instead of a table of pairs or n² bits.
+ * Composition of two functions, intersection and difference with anything, and the converse
+ * of an injective function are again functions and are computed in O(n); the operators whose
+ * results need not be functions hand over to AdaptiveRelation. AdaptiveRelation detects
+ * functions among the sparse relations it is given or computes and keeps them in this form.
+ */
+public final class FunctionRelation<T> implements Relation<T> {
+
+    private final Universe<T> universe;
+    private final int[] images;
+    private final int size;
+
+    private FunctionRelation(Universe<T> universe, int[] images) {
+        this.universe = universe;
+        this.images = images;
+        int count = 0;
+        for (int image : images) {
+            if (image >= 0) count++;
+        }
+        this.size = count;
+    }
+
+    /**
+     * @param images id of the image of every element of U, or -1 where it has none; copied
+     */
+    public static <T> FunctionRelation<T> of(Universe<T> universe, int[] images) {
+        if (images.length != universe.size()) throw new IllegalArgumentException("images do not match the universe");
+        for (int image : images) {
+            if (image < -1 || image >= images.length) throw new IllegalArgumentException("image " + image + " is not in the universe");
+        }
+        return new FunctionRelation<>(universe, images.clone());
+    }
+
+    /**
+     * @param function image of every element of U, or null where it has none
+     */
+    public static <T> FunctionRelation<T> of(Universe<T> universe, Function<? super T, ? extends T> function) {
+        int[] images = new int[universe.size()];
+        for (int i = 0; i < images.length; i++) {
+            T image = function.apply(universe.get(i));
+            images[i] = image == null ? -1 : universe.indexOf(image);
+            if (image != null && images[i] < 0) throw new IllegalArgumentException(image + " is not in the universe");
+        }
+        return new FunctionRelation<>(universe, images);
+    }
+
+    /**
+     * @param relation R
+     * @return R as a function, or null if some element has two images
+     */
+    public static <T> FunctionRelation<T> detect(Relation<T> relation) {
+        if (relation instanceof FunctionRelation) return (FunctionRelation<T>) relation;
+        Universe<T> universe = relation.getUniverse();
+        // a function has at most one pair per element
+        if (relation.size() > universe.size()) return null;
+        int[] images = new int[universe.size()];
+        Arrays.fill(images, -1);
+        boolean[] function = {true};
+        relation.forEachPair((first, second) -> {
+            if (images[first] >= 0) function[0] = false;
+            images[first] = second;
+        });
+        return function[0] ? new FunctionRelation<>(universe, images) : null;
+    }
+
+    /**
+     * @param relation R
+     * @return R as a function, or null if some element has two images
+     */
+    public static <T> FunctionRelation<T> detect(traditional.Relation<T> relation) {
+        if (relation.size() > relation.getUniverse().size() || !relation.isFunction()) return null;
+        return fromPairs(relation.getUniverse(), relation::forEachPair);
+    }
+
+    /**
+     * @param relation R
+     * @return R as a function, or null if some element has two images
+     */
+    public static <T> FunctionRelation<T> detect(MRelation<T> relation) {
+        if (!relation.isFunction()) return null;
+        BitMatrix bits = relation.getBits();
+        int[] images = new int[bits.size()];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = bits.nextSetBit(i, 0);
+        }
+        return new FunctionRelation<>(relation.getUniverse(), images);
+    }
+
+    private interface Pairs {
+
+        void forEachPair(IdPairConsumer action);
+
+    }
+
+    private static <T> FunctionRelation<T> fromPairs(Universe<T> universe, Pairs pairs) {
+        int[] images = new int[universe.size()];
+        Arrays.fill(images, -1);
+        pairs.forEachPair((first, second) -> images[first] = second);
+        return new FunctionRelation<>(universe, images);
+    }
+
+    /**
+     * @return R(α), or null if α has no image
+     */
+    public T apply(T element) {
+        int i = universe.indexOf(element);
+        return i < 0 || images[i] < 0 ? null : universe.get(images[i]);
+    }
+
+    /**
+     * @return a copy of the image ids, -1 where there is none
+     */
+    public int[] getImages() {
+        return images.clone();
+    }
+
+    /**
+     * @return whether every element has an image
+     */
+    public boolean isTotal() {
+        return size == images.length;
+    }
+
+    /**
+     * O(n) with one bit per element
+     * @return whether no two elements share an image
+     */
+    public boolean isOneToOne() {
+        BitSet hit = new BitSet(images.length);
+        for (int image : images) {
+            if (image < 0) continue;
+            if (hit.get(image)) return false;
+            hit.set(image);
+        }
+        return true;
+    }
+
+    /**
+     * R⁻¹ | S = U × U checked as a coverage of the n² pairs by (R(γ), S(γ)), without a
+     * product
+     * @param otherRelation S
+     * @return whether self and S are conjugated quasi-projections on U
+     */
+    public boolean conjugatedQuasiProjection(FunctionRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        return PairCoverage.coversAll(images, otherRelation.images, images.length);
+    }
+
+    @Override
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        return i >= 0 && images[i] >= 0 && images[i] == universe.indexOf(second);
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] >= 0) action.accept(i, images[i]);
+        }
+    }
+
+    private void check(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.getUniverse())) throw new UnmatchedUniversalSetsException();
+    }
+
+    /**
+     * @return whether (α, R(α)) ∈ S for the element with id i, which must have an image
+     */
+    private boolean pairIn(int i, Relation<T> otherRelation) {
+        if (otherRelation instanceof FunctionRelation) return ((FunctionRelation<T>) otherRelation).images[i] == images[i];
+        return otherRelation.contains(universe.get(i), universe.get(images[i]));
+    }
+
+    /**
+     * @return self as an adaptive relation, for the operators that leave the functions
+     */
+    private AdaptiveRelation<T> general() {
+        return AdaptiveRelation.ofPairs(toRelation());
+    }
+
+    @Override
+    public Relation<T> union(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().union(otherRelation);
+    }
+
+    /**
+     * A subset of a function is a function: keeps the pairs of self that are in S, O(n)
+     * membership tests
+     * @return self ∩ S
+     */
+    @Override
+    public FunctionRelation<T> intersection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        int[] result = new int[images.length];
+        for (int i = 0; i < images.length; i++) {
+            result[i] = images[i] >= 0 && pairIn(i, otherRelation) ? images[i] : -1;
+        }
+        return new FunctionRelation<>(universe, result);
+    }
+
+    /**
+     * @return self ∼ S
+     */
+    @Override
+    public FunctionRelation<T> difference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        int[] result = new int[images.length];
+        for (int i = 0; i < images.length; i++) {
+            result[i] = images[i] >= 0 && !pairIn(i, otherRelation) ? images[i] : -1;
+        }
+        return new FunctionRelation<>(universe, result);
+    }
+
+    @Override
+    public Relation<T> symmetricDifference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().symmetricDifference(otherRelation);
+    }
+
+    @Override
+    public Relation<T> complement() {
+        return general().complement();
+    }
+
+    /**
+     * A function when self is one-to-one, found in the same O(n) pass
+     * @return self⁻¹
+     */
+    @Override
+    public Relation<T> converse() {
+        int[] inverse = new int[images.length];
+        Arrays.fill(inverse, -1);
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] < 0) continue;
+            if (inverse[images[i]] >= 0) return general().converse();
+            inverse[images[i]] = i;
+        }
+        return new FunctionRelation<>(universe, inverse);
+    }
+
+    /**
+     * With S a function too, (R | S)(α) = S(R(α)) in O(n)
+     * @return self | S
+     */
+    @Override
+    public Relation<T> composition(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (!(otherRelation instanceof FunctionRelation)) return general().composition(otherRelation);
+        int[] otherImages = ((FunctionRelation<T>) otherRelation).images;
+        int[] result = new int[images.length];
+        for (int i = 0; i < images.length; i++) {
+            result[i] = images[i] < 0 ? -1 : otherImages[images[i]];
+        }
+        return new FunctionRelation<>(universe, result);
+    }
+
+    @Override
+    public Relation<T> sum(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().sum(otherRelation);
+    }
+
+    @Override
+    public Relation<T> transitiveClosure() {
+        return general().transitiveClosure();
+    }
+
+    /**
+     * O(n) membership tests
+     */
+    @Override
+    public boolean isSubsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (size > otherRelation.size()) return false;
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] >= 0 && !pairIn(i, otherRelation)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEqual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (otherRelation instanceof FunctionRelation) return Arrays.equals(images, ((FunctionRelation<T>) otherRelation).images);
+        return size == otherRelation.size() && isSubsetOf(otherRelation);
+    }
+
+    @Override
+    public traditional.Relation<T> toRelation() {
+        long[] pairs = new long[size];
+        int count = 0;
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] >= 0) pairs[count++] = ((long) i << 32) | images[i];
+        }
+        return traditional.Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs).iterator(), size);
+    }
+
+    @Override
+    public CompressedRelation<T> toCompressedRelation() {
+        return CompressedRelation.of(toRelation());
+    }
+
+    @Override
+    public MRelation<T> toMRelation() {
+        BitMatrix bits = new BitMatrix(images.length);
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] >= 0) bits.set(i, images[i]);
+        }
+        return new MRelation<>(new MList<>(universe), bits);
+    }
+
+}
@@ -0,0 +1,758 @@
+package adaptive;
+
+import compressed.CompressedRelation;
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import traditional.RSet;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Partial order ≤ stored as its Hasse diagram (the pairs x ⋖ y with nothing strictly
+ * between) and a topological order, instead of the reflexive-transitive closure.
+ * leq(x, y) is answered from chain labels: the elements are cut into chains along covering
+ * pairs, each element keeps its chain and position, and for every element x and chain c the
+ * lowest position in c that is ≥ x; then x ≤ y iff that lowest position in the chain of y is
+ * at most the position of y. The labels take n ints per chain, so they are only kept while
+ * there are few chains (at most 16, or one per 32 elements, where they are no larger than
+ * n² bits). Wider orders keep three ints per element from one depth-first pass up the
+ * diagram: the post-order number, the interval of the depth-first subtree, which proves
+ * x ≤ y when y falls inside, and the least post-order number above x, which disproves it
+ * when y falls outside [that, post-order number of x]. Pairs that neither settles are
+ * searched in the diagram, applying the same two tests at every element and never entering
+ * elements after y in the topological order.
+ * Minimal and maximal elements, down-sets, up-sets and linear extensions all work on the
+ * diagram. The converse is the dual order and the closure is the order itself; the other
+ * operators hand over to AdaptiveRelation.
+ */
+public final class PartialOrder<T> implements Relation<T> {
+
+    private static final int FEW_CHAINS = 16;
+
+    private final Universe<T> universe;
+    private final int n;
+    // covering pairs, both ways, in compressed rows
+    private final int[] successorStarts;
+    private final int[] successors;
+    private final int[] predecessorStarts;
+    private final int[] predecessors;
+    // order[k] is the k-th element of a linear extension, rank[x] the position of x in it
+    private final int[] order;
+    private final int[] rank;
+    // chain labels, null for wide orders
+    private final int chains;
+    private final int[] chainOf;
+    private final int[] chainPosition;
+    private final int[] lowest;
+    // interval labels, null for orders with chain labels
+    private final Intervals intervals;
+    // scratch for the searches of wide orders, shared under its lock
+    private final Search search;
+    // pairs in ≤, counted on first use
+    private volatile long size = -1;
+
+    private PartialOrder(Universe<T> universe, int[] successorStarts, int[] successors, int[] order) {
+        this.universe = universe;
+        this.n = order.length;
+        this.successorStarts = successorStarts;
+        this.successors = successors;
+        this.order = order;
+        this.rank = new int[n];
+        for (int k = 0; k < n; k++) {
+            rank[order[k]] = k;
+        }
+        this.predecessorStarts = new int[n + 1];
+        this.predecessors = new int[successors.length];
+        transpose(successorStarts, successors, predecessorStarts, predecessors);
+        this.chainOf = new int[n];
+        this.chainPosition = new int[n];
+        this.chains = cutChains();
+        boolean few = chains <= FEW_CHAINS || (long) chains * 32 <= n;
+        this.lowest = few && (long) chains * n <= Integer.MAX_VALUE ? labels() : null;
+        this.intervals = lowest == null ? new Intervals(successorStarts, successors, order) : null;
+        this.search = lowest == null ? new Search(n) : null;
+    }
+
+    /**
+     * Depth-first pass over a diagram from the elements in topological order; every element
+     * is numbered when it is left, so the elements numbered while x is on the stack, from
+     * subtreeLow[x] to post[x], are its depth-first subtree, and since the diagram has no
+     * cycles all elements x reaches are numbered before it
+     */
+    private static final class Intervals {
+
+        final int[] post;
+        final int[] subtreeLow;
+        final int[] reachLow;
+
+        Intervals(int[] starts, int[] targets, int[] order) {
+            int n = order.length;
+            post = new int[n];
+            subtreeLow = new int[n];
+            reachLow = new int[n];
+            int[] edge = new int[n];
+            int[] stack = new int[n];
+            boolean[] visited = new boolean[n];
+            int counter = 0;
+            for (int root : order) {
+                if (visited[root]) continue;
+                int top = 0;
+                stack[top++] = root;
+                visited[root] = true;
+                edge[root] = starts[root];
+                subtreeLow[root] = counter;
+                while (top > 0) {
+                    int z = stack[top - 1];
+                    if (edge[z] < starts[z + 1]) {
+                        int next = targets[edge[z]++];
+                        if (visited[next]) continue;
+                        visited[next] = true;
+                        edge[next] = starts[next];
+                        subtreeLow[next] = counter;
+                        stack[top++] = next;
+                        continue;
+                    }
+                    top--;
+                    int low = counter;
+                    for (int p = starts[z]; p < starts[z + 1]; p++) {
+                        low = Math.min(low, reachLow[targets[p]]);
+                    }
+                    post[z] = counter++;
+                    reachLow[z] = low;
+                }
+            }
+        }
+
+        /**
+         * @return whether to lies outside the numbers reached from from, so it is not reached
+         */
+        boolean excludes(int from, int to) {
+            return post[to] > post[from] || post[to] < reachLow[from];
+        }
+
+        /**
+         * @return whether to is in the depth-first subtree of from, so it is reached; only
+         * meaningful when excludes(from, to) is false
+         */
+        boolean includes(int from, int to) {
+            return post[to] >= subtreeLow[from];
+        }
+
+    }
+
+    /**
+     * Marks and stack for one search at a time; a mark counts as set while it equals the
+     * number of the current search, so nothing is cleared between searches
+     */
+    private static final class Search {
+
+        final int[] marks;
+        final int[] stack;
+        int current;
+
+        Search(int n) {
+            marks = new int[n];
+            stack = new int[n];
+        }
+
+        void start() {
+            if (++current == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                current = 1;
+            }
+        }
+
+    }
+
+    /**
+     * @param relation R, which must be reflexive, antisymmetric and transitive
+     * @return R as a partial order
+     */
+    public static <T> PartialOrder<T> of(MRelation<T> relation) {
+        if (!relation.isPartialOrder()) throw new IllegalArgumentException("relation is not a partial order");
+        BitMatrix bits = relation.getBits();
+        return reduce(relation.getUniverse(), action -> {
+            for (int i = 0; i < bits.size(); i++) {
+                for (int j = bits.nextSetBit(i, 0); j >= 0; j = bits.nextSetBit(i, j + 1)) {
+                    action.accept(i, j);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param relation R, which must be reflexive, antisymmetric and transitive
+     * @return R as a partial order
+     */
+    public static <T> PartialOrder<T> of(traditional.Relation<T> relation) {
+        if (!relation.isPartialOrder()) throw new IllegalArgumentException("relation is not a partial order");
+        return reduce(relation.getUniverse(), relation::forEachPair);
+    }
+
+    /**
+     * @param relation R, which must be reflexive, antisymmetric and transitive
+     * @return R as a partial order
+     */
+    public static <T> PartialOrder<T> of(Relation<T> relation) {
+        if (relation instanceof PartialOrder) return (PartialOrder<T>) relation;
+        return of(relation.toRelation());
+    }
+
+    private interface Pairs {
+
+        void forEachPair(IdPairConsumer action);
+
+    }
+
+    /**
+     * Orders the elements by the size of their up-sets, largest first, which is topological
+     * as x < y implies ↑y ⊂ ↑x. The covers of x are then its strict successors that are not
+     * above an earlier cover, taken in that order; as the relation is transitive, the
+     * elements above a cover y are the row of y.
+     */
+    private static <T> PartialOrder<T> reduce(Universe<T> universe, Pairs pairs) {
+        int n = universe.size();
+        int[] starts = new int[n + 1];
+        pairs.forEachPair((first, second) -> starts[first + 1]++);
+        for (int i = 0; i < n; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] rows = new int[starts[n]];
+        int[] next = Arrays.copyOf(starts, n);
+        pairs.forEachPair((first, second) -> rows[next[first]++] = second);
+        // counting sort on the up-set sizes, descending
+        int[] bucket = new int[n + 2];
+        for (int x = 0; x < n; x++) {
+            bucket[n - (starts[x + 1] - starts[x]) + 1]++;
+        }
+        for (int d = 0; d <= n; d++) {
+            bucket[d + 1] += bucket[d];
+        }
+        int[] order = new int[n];
+        for (int x = 0; x < n; x++) {
+            order[bucket[n - (starts[x + 1] - starts[x])]++] = x;
+        }
+        int[] rank = new int[n];
+        for (int k = 0; k < n; k++) {
+            rank[order[k]] = k;
+        }
+        int[] coverStarts = new int[n + 1];
+        int[] covers = new int[Math.max(0, starts[n] - n)];
+        int count = 0;
+        int[] marked = new int[n];
+        Arrays.fill(marked, -1);
+        long[] byRank = new long[n];
+        for (int x = 0; x < n; x++) {
+            int degree = 0;
+            for (int p = starts[x]; p < starts[x + 1]; p++) {
+                if (rows[p] != x) byRank[degree++] = ((long) rank[rows[p]] << 32) | rows[p];
+            }
+            Arrays.sort(byRank, 0, degree);
+            coverStarts[x] = count;
+            for (int k = 0; k < degree; k++) {
+                int y = (int) byRank[k];
+                if (marked[y] == x) continue;
+                covers[count++] = y;
+                for (int p = starts[y]; p < starts[y + 1]; p++) {
+                    marked[rows[p]] = x;
+                }
+            }
+        }
+        coverStarts[n] = count;
+        return new PartialOrder<>(universe, coverStarts, Arrays.copyOf(covers, count), order);
+    }
+
+    private static void transpose(int[] starts, int[] targets, int[] transposedStarts, int[] transposed) {
+        int n = starts.length - 1;
+        for (int t : targets) {
+            transposedStarts[t + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            transposedStarts[i + 1] += transposedStarts[i];
+        }
+        int[] next = Arrays.copyOf(transposedStarts, n);
+        for (int x = 0; x < n; x++) {
+            for (int p = starts[x]; p < starts[x + 1]; p++) {
+                transposed[next[targets[p]]++] = x;
+            }
+        }
+    }
+
+    /**
+     * Greedy chain cover along covering pairs: in topological order every element extends a
+     * chain that ends at one of its lower covers, or starts a new one
+     * @return number of chains
+     */
+    private int cutChains() {
+        int[] tails = new int[n];
+        int count = 0;
+        for (int x : order) {
+            int chain = -1;
+            for (int p = predecessorStarts[x]; p < predecessorStarts[x + 1] && chain < 0; p++) {
+                int below = predecessors[p];
+                if (tails[chainOf[below]] == below) chain = chainOf[below];
+            }
+            if (chain < 0) {
+                chain = count++;
+                chainPosition[x] = 0;
+            } else {
+                chainPosition[x] = chainPosition[tails[chain]] + 1;
+            }
+            chainOf[x] = chain;
+            tails[chain] = x;
+        }
+        return count;
+    }
+
+    /**
+     * lowest[x * chains + c], the lowest position in chain c of an element ≥ x, taken as the
+     * minimum over the upper covers of x in reverse topological order
+     */
+    private int[] labels() {
+        int[] labels = new int[n * chains];
+        Arrays.fill(labels, Integer.MAX_VALUE);
+        for (int k = n - 1; k >= 0; k--) {
+            int x = order[k];
+            int offset = x * chains;
+            for (int p = successorStarts[x]; p < successorStarts[x + 1]; p++) {
+                int above = successors[p] * chains;
+                for (int c = 0; c < chains; c++) {
+                    labels[offset + c] = Math.min(labels[offset + c], labels[above + c]);
+                }
+            }
+            labels[offset + chainOf[x]] = chainPosition[x];
+        }
+        return labels;
+    }
+
+    @Override
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    /**
+     * @return x ≤ y
+     */
+    public boolean leq(T first, T second) {
+        int x = universe.indexOf(first);
+        int y = universe.indexOf(second);
+        return x >= 0 && y >= 0 && leq(x, y);
+    }
+
+    private boolean leq(int x, int y) {
+        if (x == y) return true;
+        if (rank[x] > rank[y]) return false;
+        if (lowest != null) return lowest[x * chains + chainOf[y]] <= chainPosition[y];
+        if (intervals.excludes(x, y)) return false;
+        if (intervals.includes(x, y)) return true;
+        // depth-first over the diagram, pruned at elements after y in the order and at those
+        // whose labels rule y out
+        synchronized (search) {
+            search.start();
+            int[] marks = search.marks;
+            int[] stack = search.stack;
+            int top = 0;
+            stack[top++] = x;
+            marks[x] = search.current;
+            while (top > 0) {
+                int z = stack[--top];
+                for (int p = successorStarts[z]; p < successorStarts[z + 1]; p++) {
+                    int above = successors[p];
+                    if (marks[above] == search.current || rank[above] > rank[y]) continue;
+                    if (intervals.excludes(above, y)) continue;
+                    if (intervals.includes(above, y)) return true;
+                    marks[above] = search.current;
+                    stack[top++] = above;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return whether y covers x, i.e. x < y with nothing in between
+     */
+    public boolean covers(T first, T second) {
+        int x = universe.indexOf(first);
+        int y = universe.indexOf(second);
+        if (x < 0 || y < 0) return false;
+        for (int p = successorStarts[x]; p < successorStarts[x + 1]; p++) {
+            if (successors[p] == y) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the covering pairs, the transitive reduction of the strict order
+     */
+    public traditional.Relation<T> hasseDiagram() {
+        long[] pairs = new long[successors.length];
+        int next = 0;
+        for (int x = 0; x < n; x++) {
+            for (int p = successorStarts[x]; p < successorStarts[x + 1]; p++) {
+                pairs[next++] = ((long) x << 32) | successors[p];
+            }
+        }
+        return traditional.Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs).iterator(), pairs.length);
+    }
+
+    /**
+     * @return number of chains the labels use, an upper bound on the width
+     */
+    public int chainCount() {
+        return chains;
+    }
+
+    /**
+     * @return the elements with nothing below them
+     */
+    public RSet<T> minimalElements() {
+        List<T> minimal = new ArrayList<>();
+        for (int x = 0; x < n; x++) {
+            if (predecessorStarts[x] == predecessorStarts[x + 1]) minimal.add(universe.get(x));
+        }
+        return new RSet<>(minimal);
+    }
+
+    /**
+     * @return the elements with nothing above them
+     */
+    public RSet<T> maximalElements() {
+        List<T> maximal = new ArrayList<>();
+        for (int x = 0; x < n; x++) {
+            if (successorStarts[x] == successorStarts[x + 1]) maximal.add(universe.get(x));
+        }
+        return new RSet<>(maximal);
+    }
+
+    /**
+     * @return ↓x = {y : y ≤ x}
+     */
+    public RSet<T> downSet(T element) {
+        return downSet(List.of(element));
+    }
+
+    /**
+     * @return the down-set generated by the elements, {y : y ≤ x for some given x}
+     */
+    public RSet<T> downSet(Collection<? extends T> elements) {
+        return reached(elements, predecessorStarts, predecessors);
+    }
+
+    /**
+     * @return ↑x = {y : x ≤ y}
+     */
+    public RSet<T> upSet(T element) {
+        return upSet(List.of(element));
+    }
+
+    /**
+     * @return the up-set generated by the elements, {y : x ≤ y for some given x}
+     */
+    public RSet<T> upSet(Collection<? extends T> elements) {
+        return reached(elements, successorStarts, successors);
+    }
+
+    private RSet<T> reached(Collection<? extends T> elements, int[] starts, int[] targets) {
+        boolean[] seen = new boolean[n];
+        int[] stack = new int[n];
+        int top = 0;
+        List<T> reached = new ArrayList<>();
+        for (T element : elements) {
+            int x = universe.indexOf(element);
+            if (x < 0) throw new IllegalArgumentException(element + " is not in the universe");
+            if (seen[x]) continue;
+            seen[x] = true;
+            stack[top++] = x;
+        }
+        while (top > 0) {
+            int z = stack[--top];
+            reached.add(universe.get(z));
+            for (int p = starts[z]; p < starts[z + 1]; p++) {
+                if (seen[targets[p]]) continue;
+                seen[targets[p]] = true;
+                stack[top++] = targets[p];
+            }
+        }
+        return new RSet<>(reached);
+    }
+
+    /**
+     * @return the topological order the diagram was built with
+     */
+    public List<T> linearExtension() {
+        List<T> extension = new ArrayList<>(n);
+        for (int x : order) {
+            extension.add(universe.get(x));
+        }
+        return extension;
+    }
+
+    /**
+     * Every linear extension, generated lazily by backtracking over the elements whose lower
+     * covers have all been placed, smallest id first; there can be up to n! of them
+     * @return the linear extensions of self
+     */
+    public Iterable<List<T>> linearExtensions() {
+        return () -> new Iterator<>() {
+            private final int[] placed = new int[n];
+            private final int[] choice = new int[n + 1];
+            private final int[] waiting = new int[n];
+            private final boolean[] used = new boolean[n];
+            private int depth = 0;
+            private boolean pending;
+            private boolean done;
+
+            {
+                for (int x = 0; x < n; x++) {
+                    waiting[x] = predecessorStarts[x + 1] - predecessorStarts[x];
+                }
+                choice[0] = -1;
+                advance();
+            }
+
+            private void place(int x, boolean in) {
+                used[x] = in;
+                for (int p = successorStarts[x]; p < successorStarts[x + 1]; p++) {
+                    waiting[successors[p]] += in ? -1 : 1;
+                }
+            }
+
+            /**
+             * Moves to the next complete extension, or sets done
+             */
+            private void advance() {
+                if (depth == n && pending) {
+                    // step back from the extension just handed out
+                    pending = false;
+                    if (n == 0) {
+                        done = true;
+                        return;
+                    }
+                    depth--;
+                    place(placed[depth], false);
+                }
+                while (true) {
+                    if (depth == n) {
+                        pending = true;
+                        return;
+                    }
+                    int x = choice[depth] + 1;
+                    while (x < n && (used[x] || waiting[x] != 0)) x++;
+                    if (x == n) {
+                        if (depth == 0) {
+                            done = true;
+                            return;
+                        }
+                        depth--;
+                        place(placed[depth], false);
+                        continue;
+                    }
+                    choice[depth] = x;
+                    placed[depth] = x;
+                    place(x, true);
+                    depth++;
+                    choice[depth] = -1;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !done;
+            }
+
+            @Override
+            public List<T> next() {
+                if (done) throw new NoSuchElementException();
+                List<T> extension = new ArrayList<>(n);
+                for (int x : placed) {
+                    extension.add(universe.get(x));
+                }
+                advance();
+                return extension;
+            }
+        };
+    }
+
+    /**
+     * Counted once, from the up-set of every element
+     * @return number of pairs in ≤
+     */
+    @Override
+    public long size() {
+        long pairs = size;
+        if (pairs < 0) {
+            long[] count = {0};
+            forEachPair((first, second) -> count[0]++);
+            size = pairs = count[0];
+        }
+        return pairs;
+    }
+
+    @Override
+    public boolean contains(T first, T second) {
+        return leq(first, second);
+    }
+
+    /**
+     * Walks the up-set of every element through the diagram
+     */
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        int[] seen = new int[n];
+        Arrays.fill(seen, -1);
+        int[] stack = new int[n];
+        for (int x = 0; x < n; x++) {
+            int top = 0;
+            stack[top++] = x;
+            seen[x] = x;
+            while (top > 0) {
+                int z = stack[--top];
+                action.accept(x, z);
+                for (int p = successorStarts[z]; p < successorStarts[z + 1]; p++) {
+                    if (seen[successors[p]] == x) continue;
+                    seen[successors[p]] = x;
+                    stack[top++] = successors[p];
+                }
+            }
+        }
+    }
+
+    private void check(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.getUniverse())) throw new UnmatchedUniversalSetsException();
+    }
+
+    /**
+     * @return self as an adaptive relation, for the operators that leave the orders
+     */
+    private AdaptiveRelation<T> general() {
+        return AdaptiveRelation.of(toRelation());
+    }
+
+    @Override
+    public Relation<T> union(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().union(otherRelation);
+    }
+
+    @Override
+    public Relation<T> intersection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().intersection(otherRelation);
+    }
+
+    @Override
+    public Relation<T> difference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().difference(otherRelation);
+    }
+
+    @Override
+    public Relation<T> symmetricDifference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().symmetricDifference(otherRelation);
+    }
+
+    @Override
+    public Relation<T> complement() {
+        return general().complement();
+    }
+
+    /**
+     * ≥, with the diagram turned around and the order reversed
+     * @return self⁻¹
+     */
+    @Override
+    public PartialOrder<T> converse() {
+        int[] reversed = new int[n];
+        for (int k = 0; k < n; k++) {
+            reversed[k] = order[n - 1 - k];
+        }
+        return new PartialOrder<>(universe, predecessorStarts, predecessors, reversed);
+    }
+
+    @Override
+    public Relation<T> composition(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        // ≤ | ≤ = ≤ for a reflexive transitive relation
+        if (otherRelation == this) return this;
+        return general().composition(otherRelation);
+    }
+
+    @Override
+    public Relation<T> sum(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        return general().sum(otherRelation);
+    }
+
+    /**
+     * @return self, as ≤ is transitive
+     */
+    @Override
+    public PartialOrder<T> transitiveClosure() {
+        return this;
+    }
+
+    /**
+     * Against another partial order only the covering pairs need checking, since the other
+     * order is reflexive and transitive
+     */
+    @Override
+    public boolean isSubsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (!(otherRelation instanceof PartialOrder)) return general().isSubsetOf(otherRelation);
+        PartialOrder<T> other = (PartialOrder<T>) otherRelation;
+        for (int x = 0; x < n; x++) {
+            for (int p = successorStarts[x]; p < successorStarts[x + 1]; p++) {
+                if (!other.leq(x, successors[p])) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEqual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (otherRelation instanceof PartialOrder) return isSubsetOf(otherRelation) && ((PartialOrder<T>) otherRelation).isSubsetOf(this);
+        return size() == otherRelation.size() && general().isSubsetOf(otherRelation);
+    }
+
+    @Override
+    public traditional.Relation<T> toRelation() {
+        long[] pairs = new long[Math.toIntExact(size())];
+        int[] next = {0};
+        forEachPair((first, second) -> pairs[next[0]++] = ((long) first << 32) | second);
+        return traditional.Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs).iterator(), pairs.length);
+    }
+
+    @Override
+    public CompressedRelation<T> toCompressedRelation() {
+        return CompressedRelation.of(toRelation());
+    }
+
+    /**
+     * Row x is {x} together with the rows of its upper covers, filled in reverse
+     * topological order
+     */
+    @Override
+    public MRelation<T> toMRelation() {
+        BitMatrix bits = new BitMatrix(n);
+        long[] words = bits.getWords();
+        int wordsPerRow = bits.getWordsPerRow();
+        for (int k = n - 1; k >= 0; k--) {
+            int x = order[k];
+            int offset = bits.rowOffset(x);
+            bits.set(x, x);
+            for (int p = successorStarts[x]; p < successorStarts[x + 1]; p++) {
+                int above = bits.rowOffset(successors[p]);
+                for (int w = 0; w < wordsPerRow; w++) {
+                    words[offset + w] |= words[above + w];
+                }
+            }
+        }
+        return new MRelation<>(new MList<>(universe), bits);
+    }
+
+}
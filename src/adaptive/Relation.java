@@ -0,0 +1,110 @@
+package adaptive;
+
+import compressed.CompressedRelation;
+import matrix.MRelation;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+/**
+ * Binary relation over a universe U, independent of how its pairs are stored. Operands of
+ * binary operators must range over the same universe, in the same order.
+ */
+public interface Relation<T> {
+
+    Universe<T> getUniverse();
+
+    /**
+     * @return number of pairs in self
+     */
+    long size();
+
+    /**
+     * (α, β) ∈ R
+     * @return whether the pair is in self
+     */
+    boolean contains(T first, T second);
+
+    /**
+     * @param action receives (α, β) for every pair in self, as ids of U
+     */
+    void forEachPair(IdPairConsumer action);
+
+    /**
+     * @param otherRelation S
+     * @return self ∪ S
+     */
+    Relation<T> union(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @param otherRelation S
+     * @return self ∩ S
+     */
+    Relation<T> intersection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @param otherRelation S
+     * @return self ∼ S
+     */
+    Relation<T> difference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @param otherRelation S
+     * @return self Δ S
+     */
+    Relation<T> symmetricDifference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @return ∼self
+     */
+    Relation<T> complement();
+
+    /**
+     * @return self⁻¹
+     */
+    Relation<T> converse();
+
+    /**
+     * @param otherRelation S
+     * @return self | S
+     */
+    Relation<T> composition(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @param otherRelation S
+     * @return self † S
+     */
+    Relation<T> sum(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @return self⁺
+     */
+    Relation<T> transitiveClosure();
+
+    /**
+     * @param otherRelation S
+     * @return self ⊆ S
+     */
+    boolean isSubsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @param otherRelation S
+     * @return self = S
+     */
+    boolean isEqual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException;
+
+    /**
+     * @return self as a hash of pairs
+     */
+    traditional.Relation<T> toRelation();
+
+    /**
+     * @return self with compressed rows
+     */
+    CompressedRelation<T> toCompressedRelation();
+
+    /**
+     * @return self as a bit matrix
+     */
+    MRelation<T> toMRelation();
+
+}
@@ -0,0 +1,4 @@
+package adaptive;
+
+public class UnmatchedUniversalSetsException extends Exception {
+}
@@ -0,0 +1,279 @@
+package cache;
+
+import matrix.MRelation;
+import traditional.Relation;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opt-in memo of derived relations, keyed by the operator and the identity of its operands.
+ * Relations are immutable, so a result stays valid for as long as its operands exist; the
+ * operands are only weakly referenced, and entries whose operands have been collected are
+ * dropped on the next access. The cache holds at most maxBytes of results, estimated from
+ * the stored matrix or pairs of each one, and evicts the least recently used entries first.
+ * A result is computed outside the lock, so two threads missing on the same key may both
+ * compute it; the later one replaces the earlier one.
+ * Complements are not cached, since both backends build them in O(1).
+ */
+public final class RelationCache {
+
+    private enum Operator {
+        CONVERSE, COMPOSITION, SUM, TRANSITIVE_CLOSURE, REFLEXIVE_TRANSITIVE_CLOSURE
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxBytes memory the cached results may take, by the estimate of their storage
+     */
+    public RelationCache(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("maxBytes is negative");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return R⁻¹, from the cache when R has been converted before
+     */
+    public <T> MRelation<T> converse(MRelation<T> relation) {
+        return get(Operator.CONVERSE, relation, null, relation::converse);
+    }
+
+    /**
+     * R | R is cached like any other pair of operands
+     * @return R | S
+     */
+    public <T> MRelation<T> composition(MRelation<T> relation, MRelation<T> otherRelation) throws matrix.UnmatchedUniversalSetsException {
+        return get(Operator.COMPOSITION, relation, otherRelation, () -> relation.composition(otherRelation));
+    }
+
+    /**
+     * @return R † S
+     */
+    public <T> MRelation<T> sum(MRelation<T> relation, MRelation<T> otherRelation) throws matrix.UnmatchedUniversalSetsException {
+        return get(Operator.SUM, relation, otherRelation, () -> relation.sum(otherRelation));
+    }
+
+    /**
+     * @return R⁺
+     */
+    public <T> MRelation<T> transitiveClosure(MRelation<T> relation) {
+        return get(Operator.TRANSITIVE_CLOSURE, relation, null, relation::transitiveClosure);
+    }
+
+    /**
+     * @return R*
+     */
+    public <T> MRelation<T> reflexiveTransitiveClosure(MRelation<T> relation) {
+        return get(Operator.REFLEXIVE_TRANSITIVE_CLOSURE, relation, null, relation::reflexiveTransitiveClosure);
+    }
+
+    /**
+     * @return R⁻¹, from the cache when R has been converted before
+     */
+    public <T> Relation<T> converse(Relation<T> relation) {
+        return get(Operator.CONVERSE, relation, null, relation::converse);
+    }
+
+    /**
+     * @return R | S
+     */
+    public <T> Relation<T> composition(Relation<T> relation, Relation<T> otherRelation) throws traditional.UnmatchedUniversalSetsException {
+        return get(Operator.COMPOSITION, relation, otherRelation, () -> relation.composition(otherRelation));
+    }
+
+    /**
+     * @return R † S
+     */
+    public <T> Relation<T> sum(Relation<T> relation, Relation<T> otherRelation) throws traditional.UnmatchedUniversalSetsException {
+        return get(Operator.SUM, relation, otherRelation, () -> relation.sum(otherRelation));
+    }
+
+    /**
+     * @return R⁺
+     */
+    public <T> Relation<T> transitiveClosure(Relation<T> relation) {
+        return get(Operator.TRANSITIVE_CLOSURE, relation, null, relation::transitiveClosure);
+    }
+
+    /**
+     * @return R*
+     */
+    public <T> Relation<T> reflexiveTransitiveClosure(Relation<T> relation) {
+        return get(Operator.REFLEXIVE_TRANSITIVE_CLOSURE, relation, null, relation::reflexiveTransitiveClosure);
+    }
+
+    private interface Computation<R, E extends Exception> {
+
+        R compute() throws E;
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R, E extends Exception> R get(Operator operator, Object relation, Object otherRelation, Computation<R, E> computation) throws E {
+        Key probe = new Key(operator, relation, otherRelation, null);
+        synchronized (this) {
+            expunge();
+            Entry entry = entries.get(probe);
+            if (entry != null) {
+                hits++;
+                return (R) entry.result;
+            }
+            misses++;
+        }
+        R result = computation.compute();
+        long weight = weigh(result);
+        synchronized (this) {
+            if (weight > maxBytes) return result;
+            Entry previous = entries.put(new Key(operator, relation, otherRelation, collected), new Entry(result, weight));
+            if (previous != null) bytes -= previous.bytes;
+            bytes += weight;
+            evict();
+        }
+        return result;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops the entries of operands that have been collected
+     */
+    private void expunge() {
+        for (Object reference = collected.poll(); reference != null; reference = collected.poll()) {
+            Entry entry = entries.remove(((Operand) reference).key);
+            if (entry != null) bytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Estimated from what the relation stores: n² bits for a matrix, or two longs per stored
+     * pair for a hash of pairs, which is kept at most half full
+     */
+    private static long weigh(Object result) {
+        final long header = 64;
+        if (result instanceof MRelation) {
+            long n = ((MRelation<?>) result).getUniverse().size();
+            return header + n * ((n + 63) >>> 6) * Long.BYTES;
+        }
+        Relation<?> relation = (Relation<?>) result;
+        long n = relation.getUniverse().size();
+        long stored = relation.isNegated() ? n * n - relation.size() : relation.size();
+        return header + 2 * stored * Long.BYTES;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return estimated size of the cached results
+     */
+    public synchronized long getBytes() {
+        expunge();
+        return bytes;
+    }
+
+    public synchronized int size() {
+        expunge();
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RelationCache[" + entries.size() + " entries, " + bytes + " of " + maxBytes + " bytes, " + hits + " hits, " + misses + " misses, " + evictions + " evictions]";
+    }
+
+    private static final class Entry {
+
+        final Object result;
+        final long bytes;
+
+        Entry(Object result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }
+
+    }
+
+    private static final class Operand extends WeakReference<Object> {
+
+        final Key key;
+
+        Operand(Object operand, Key key, ReferenceQueue<Object> queue) {
+            super(operand, queue);
+            this.key = key;
+        }
+
+    }
+
+    /**
+     * Operator with its operands compared by identity; a key whose operand has been
+     * collected only equals itself
+     */
+    private static final class Key {
+
+        private final Operator operator;
+        private final Operand relation;
+        private final Operand otherRelation;
+        private final int hash;
+
+        /**
+         * @param queue where collected operands are reported, or null for a lookup key
+         */
+        Key(Operator operator, Object relation, Object otherRelation, ReferenceQueue<Object> queue) {
+            this.operator = operator;
+            this.relation = new Operand(relation, this, queue);
+            this.otherRelation = otherRelation == null ? null : new Operand(otherRelation, this, queue);
+            this.hash = (operator.hashCode() * 31 + System.identityHashCode(relation)) * 31 + System.identityHashCode(otherRelation);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            if (operator != key.operator || hash != key.hash) return false;
+            Object operand = relation.get();
+            if (operand == null || operand != key.relation.get()) return false;
+            if (otherRelation == null || key.otherRelation == null) return otherRelation == key.otherRelation;
+            Object otherOperand = otherRelation.get();
+            return otherOperand != null && otherOperand == key.otherRelation.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
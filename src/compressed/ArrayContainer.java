@@ -0,0 +1,172 @@
+package compressed;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * At most 4096 values in ascending order
+ */
+final class ArrayContainer extends Container {
+
+    private final char[] values;
+
+    ArrayContainer(char[] values) {
+        this.values = values;
+    }
+
+    char[] values() {
+        return values;
+    }
+
+    @Override
+    int cardinality() {
+        return values.length;
+    }
+
+    @Override
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, (char) value) >= 0;
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+        for (char value : values) {
+            action.accept(base + value);
+        }
+    }
+
+    @Override
+    void orInto(long[] words, int offset) {
+        for (char value : values) {
+            words[offset + (value >>> 6)] |= 1L << value;
+        }
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+        BitmapContainer bitmap = new BitmapContainer();
+        for (char value : values) {
+            bitmap.set(value);
+        }
+        return new BitmapContainer(bitmap.words());
+    }
+
+    /**
+     * @return the values that other holds, or lacks when keep is false
+     */
+    private Container filter(Container other, boolean keep) {
+        char[] kept = new char[values.length];
+        int count = 0;
+        for (char value : values) {
+            if (other.contains(value) == keep) kept[count++] = value;
+        }
+        if (count == values.length) return this;
+        return count == 0 ? null : new ArrayContainer(Arrays.copyOf(kept, count)).optimise();
+    }
+
+    @Override
+    Container and(Container other) {
+        return filter(other, true);
+    }
+
+    @Override
+    Container andNot(Container other) {
+        return filter(other, false);
+    }
+
+    @Override
+    Container or(Container other) {
+        if (other instanceof RunContainer) return other.or(this);
+        if (other instanceof BitmapContainer) return other.toBitmap().orWith(this).optimise();
+        char[] otherValues = ((ArrayContainer) other).values;
+        if (values.length + otherValues.length > MAX_ARRAY) return toBitmap().orWith(other).optimise();
+        char[] merged = new char[values.length + otherValues.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < values.length && j < otherValues.length) {
+            char a = values[i];
+            char b = otherValues[j];
+            if (a <= b) i++;
+            if (b <= a) j++;
+            merged[count++] = a <= b ? a : b;
+        }
+        while (i < values.length) merged[count++] = values[i++];
+        while (j < otherValues.length) merged[count++] = otherValues[j++];
+        if (count == values.length) return this;
+        if (count == otherValues.length) return other;
+        return new ArrayContainer(Arrays.copyOf(merged, count)).optimise();
+    }
+
+    @Override
+    Container xor(Container other) {
+        if (other instanceof RunContainer) return other.xor(this);
+        if (other instanceof BitmapContainer) return other.toBitmap().xorWith(this).optimise();
+        char[] otherValues = ((ArrayContainer) other).values;
+        if (values.length + otherValues.length > MAX_ARRAY) return toBitmap().xorWith(other).optimise();
+        char[] merged = new char[values.length + otherValues.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < values.length && j < otherValues.length) {
+            char a = values[i];
+            char b = otherValues[j];
+            if (a < b) merged[count++] = values[i++];
+            else if (b < a) merged[count++] = otherValues[j++];
+            else {
+                i++;
+                j++;
+            }
+        }
+        while (i < values.length) merged[count++] = values[i++];
+        while (j < otherValues.length) merged[count++] = otherValues[j++];
+        return count == 0 ? null : new ArrayContainer(Arrays.copyOf(merged, count)).optimise();
+    }
+
+    @Override
+    boolean isSubsetOf(Container other) {
+        if (values.length > other.cardinality()) return false;
+        for (char value : values) {
+            if (!other.contains(value)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    Container optimise() {
+        if (values.length == 0) return null;
+        int runs = runs();
+        if (4 * runs >= 2 * values.length) return this;
+        return toRuns(runs);
+    }
+
+    /**
+     * @return number of maximal runs of consecutive values, at least 1
+     */
+    int runs() {
+        int runs = 1;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[i - 1] + 1) runs++;
+        }
+        return runs;
+    }
+
+    /**
+     * @param runs number of maximal runs of consecutive values
+     */
+    RunContainer toRuns(int runs) {
+        char[] starts = new char[runs];
+        char[] lasts = new char[runs];
+        int r = 0;
+        starts[0] = values[0];
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[i - 1] + 1) {
+                lasts[r++] = values[i - 1];
+                starts[r] = values[i];
+            }
+        }
+        lasts[r] = values[values.length - 1];
+        return new RunContainer(starts, lasts);
+    }
+
+}
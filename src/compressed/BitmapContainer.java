@@ -0,0 +1,323 @@
+package compressed;
+
+import java.util.function.IntConsumer;
+
+/**
+ * 65536 bits in 1024 words. Only changed in place while an operation builds it, before
+ * optimise() hands it out.
+ */
+final class BitmapContainer extends Container {
+
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer() {
+        this.words = new long[WORDS];
+    }
+
+    BitmapContainer(long[] words) {
+        this.words = words;
+        recount();
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    private BitmapContainer recount() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        cardinality = count;
+        return this;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int value) {
+        return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    void set(int value) {
+        words[value >>> 6] |= 1L << value;
+    }
+
+    /**
+     * Sets [start, last]
+     */
+    void setRange(int start, int last) {
+        int first = start >>> 6;
+        int end = last >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (last & 63));
+        if (first == end) {
+            words[first] |= startMask & endMask;
+            return;
+        }
+        words[first] |= startMask;
+        for (int w = first + 1; w < end; w++) {
+            words[w] = -1L;
+        }
+        words[end] |= endMask;
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+        for (int w = 0; w < WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                action.accept(base + (w << 6) + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
+
+    @Override
+    void orInto(long[] target, int offset) {
+        int count = Math.min(WORDS, target.length - offset);
+        for (int w = 0; w < count; w++) {
+            target[offset + w] |= words[w];
+        }
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+        return new BitmapContainer(words.clone());
+    }
+
+    BitmapContainer andWith(Container other) {
+        if (other instanceof RunContainer) {
+            RunContainer runs = (RunContainer) other;
+            int from = 0;
+            for (int r = 0; r < runs.runCount(); r++) {
+                if (runs.start(r) > from) clearRange(from, runs.start(r) - 1);
+                from = runs.last(r) + 1;
+            }
+            if (from < 65536) clearRange(from, 65535);
+            return recount();
+        }
+        long[] otherWords = other instanceof BitmapContainer ? ((BitmapContainer) other).words : other.toBitmap().words;
+        for (int w = 0; w < WORDS; w++) {
+            words[w] &= otherWords[w];
+        }
+        return recount();
+    }
+
+    BitmapContainer orWith(Container other) {
+        if (other instanceof BitmapContainer) {
+            long[] otherWords = ((BitmapContainer) other).words;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= otherWords[w];
+            }
+        } else {
+            other.orInto(words, 0);
+        }
+        return recount();
+    }
+
+    BitmapContainer andNotWith(Container other) {
+        if (other instanceof ArrayContainer) {
+            for (char value : ((ArrayContainer) other).values()) {
+                words[value >>> 6] &= ~(1L << value);
+            }
+        } else if (other instanceof RunContainer) {
+            RunContainer runs = (RunContainer) other;
+            for (int r = 0; r < runs.runCount(); r++) {
+                clearRange(runs.start(r), runs.last(r));
+            }
+        } else {
+            long[] otherWords = ((BitmapContainer) other).words;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= ~otherWords[w];
+            }
+        }
+        return recount();
+    }
+
+    BitmapContainer xorWith(Container other) {
+        if (other instanceof ArrayContainer) {
+            for (char value : ((ArrayContainer) other).values()) {
+                words[value >>> 6] ^= 1L << value;
+            }
+        } else if (other instanceof RunContainer) {
+            RunContainer runs = (RunContainer) other;
+            for (int r = 0; r < runs.runCount(); r++) {
+                flipRange(runs.start(r), runs.last(r));
+            }
+        } else {
+            long[] otherWords = ((BitmapContainer) other).words;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] ^= otherWords[w];
+            }
+        }
+        return recount();
+    }
+
+    @Override
+    boolean isSubsetOf(Container other) {
+        if (cardinality > other.cardinality()) return false;
+        if (other instanceof ArrayContainer) {
+            // at most 4096 values here, each looked up in the array
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    if (!other.contains((w << 6) + Long.numberOfTrailingZeros(word))) return false;
+                }
+            }
+            return true;
+        }
+        if (other instanceof RunContainer) {
+            // no value may fall in a gap between the runs
+            RunContainer runs = (RunContainer) other;
+            int from = 0;
+            for (int r = 0; r < runs.runCount(); r++) {
+                if (runs.start(r) > from && intersectsRange(from, runs.start(r) - 1)) return false;
+                from = runs.last(r) + 1;
+            }
+            return from == 65536 || !intersectsRange(from, 65535);
+        }
+        long[] otherWords = ((BitmapContainer) other).words;
+        for (int w = 0; w < WORDS; w++) {
+            if ((words[w] & ~otherWords[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Clears [start, last]
+     */
+    private void clearRange(int start, int last) {
+        int first = start >>> 6;
+        int end = last >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (last & 63));
+        if (first == end) {
+            words[first] &= ~(startMask & endMask);
+            return;
+        }
+        words[first] &= ~startMask;
+        for (int w = first + 1; w < end; w++) {
+            words[w] = 0;
+        }
+        words[end] &= ~endMask;
+    }
+
+    /**
+     * Flips [start, last]
+     */
+    private void flipRange(int start, int last) {
+        int first = start >>> 6;
+        int end = last >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (last & 63));
+        if (first == end) {
+            words[first] ^= startMask & endMask;
+            return;
+        }
+        words[first] ^= startMask;
+        for (int w = first + 1; w < end; w++) {
+            words[w] = ~words[w];
+        }
+        words[end] ^= endMask;
+    }
+
+    /**
+     * @return whether any of [start, last] is set
+     */
+    private boolean intersectsRange(int start, int last) {
+        int first = start >>> 6;
+        int end = last >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (last & 63));
+        if (first == end) return (words[first] & startMask & endMask) != 0;
+        if ((words[first] & startMask) != 0) return true;
+        for (int w = first + 1; w < end; w++) {
+            if (words[w] != 0) return true;
+        }
+        return (words[end] & endMask) != 0;
+    }
+
+    /**
+     * @return whether all of [start, last] is set
+     */
+    boolean containsRange(int start, int last) {
+        int first = start >>> 6;
+        int end = last >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (last & 63));
+        if (first == end) return (~words[first] & startMask & endMask) == 0;
+        if ((~words[first] & startMask) != 0) return false;
+        for (int w = first + 1; w < end; w++) {
+            if (words[w] != -1L) return false;
+        }
+        return (~words[end] & endMask) == 0;
+    }
+
+    /**
+     * @return number of maximal runs of set bits
+     */
+    int runs() {
+        int runs = 0;
+        long carry = 0;
+        for (long word : words) {
+            // a run starts at every set bit whose lower neighbour is clear
+            runs += Long.bitCount(word & ~((word << 1) | carry));
+            carry = word >>> 63;
+        }
+        return runs;
+    }
+
+    @Override
+    Container optimise() {
+        if (cardinality == 0) return null;
+        int runs = runs();
+        int arrayBytes = cardinality <= MAX_ARRAY ? 2 * cardinality : Integer.MAX_VALUE;
+        if (4 * runs < Math.min(arrayBytes, 8 * WORDS)) return toRuns(runs);
+        if (arrayBytes <= 8 * WORDS) return toArray();
+        return this;
+    }
+
+    ArrayContainer toArray() {
+        char[] values = new char[cardinality];
+        int[] next = {0};
+        forEach(0, value -> values[next[0]++] = (char) value);
+        return new ArrayContainer(values);
+    }
+
+    RunContainer toRuns(int runs) {
+        char[] starts = new char[runs];
+        char[] lasts = new char[runs];
+        int r = 0;
+        int value = nextSet(0);
+        while (value >= 0) {
+            int last = nextClear(value) - 1;
+            starts[r] = (char) value;
+            lasts[r++] = (char) last;
+            value = last + 1 < 65536 ? nextSet(last + 1) : -1;
+        }
+        return new RunContainer(starts, lasts);
+    }
+
+    private int nextSet(int from) {
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == WORDS) return -1;
+            word = words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private int nextClear(int from) {
+        int w = from >>> 6;
+        long word = ~words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == WORDS) return 65536;
+            word = ~words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+}
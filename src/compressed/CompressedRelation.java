@@ -0,0 +1,322 @@
+package compressed;
+
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import traditional.RSet;
+import traditional.Relation;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+import java.util.Arrays;
+
+/**
+ * Relation stored as one compressed bitmap of successors per element, for relations too
+ * dense for a hash of pairs and too sparse for n² bits. Each row keeps its columns in
+ * Roaring containers (sorted arrays, bitmaps or runs, whichever is smallest), so set
+ * operations combine rows container by container, composition unions the rows of each
+ * row's members, and a complement costs little because the complement of a sparse row is a
+ * handful of runs.
+ */
+public class CompressedRelation<T> {
+
+    private final Universe<T> universe;
+    private final RowBitmap[] rows;
+    private final long size;
+
+    CompressedRelation(Universe<T> universe, RowBitmap[] rows) {
+        this.universe = universe;
+        this.rows = rows;
+        long count = 0;
+        for (RowBitmap row : rows) {
+            count += row.cardinality();
+        }
+        this.size = count;
+    }
+
+    /**
+     * @param relation R
+     * @return R with compressed rows
+     */
+    public static <T> CompressedRelation<T> of(Relation<T> relation) {
+        // ∼A is built from the stored pairs of A and flipped row by row
+        if (relation.isNegated()) return of(relation.complement()).complement();
+        Universe<T> universe = relation.getUniverse();
+        int n = universe.size();
+        int[] starts = new int[n + 1];
+        relation.forEachPair((first, second) -> starts[first + 1]++);
+        for (int i = 0; i < n; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] columns = new int[starts[n]];
+        int[] next = Arrays.copyOf(starts, n);
+        relation.forEachPair((first, second) -> columns[next[first]++] = second);
+        RowBitmap[] rows = new RowBitmap[n];
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(columns, starts[i], starts[i + 1]);
+            rows[i] = RowBitmap.fromSorted(columns, starts[i], starts[i + 1]);
+        }
+        return new CompressedRelation<>(universe, rows);
+    }
+
+    /**
+     * @param relation R
+     * @return R with compressed rows
+     */
+    public static <T> CompressedRelation<T> of(MRelation<T> relation) {
+        BitMatrix bits = relation.getBits();
+        RowBitmap[] rows = new RowBitmap[bits.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = RowBitmap.fromWords(bits.getWords(), bits.rowOffset(i), bits.getWordsPerRow());
+        }
+        return new CompressedRelation<>(relation.getUniverse(), rows);
+    }
+
+    /**
+     * @return ∅ over U
+     */
+    public static <T> CompressedRelation<T> empty(Universe<T> universe) {
+        RowBitmap[] rows = new RowBitmap[universe.size()];
+        Arrays.fill(rows, RowBitmap.EMPTY);
+        return new CompressedRelation<>(universe, rows);
+    }
+
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    /**
+     * @return number of pairs in self
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * (α, β) ∈ R
+     * @return whether the pair is in self
+     */
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        return i >= 0 && j >= 0 && rows[i].contains(j);
+    }
+
+    /**
+     * @param action receives (α, β) for every pair in self, as ids of U
+     */
+    public void forEachPair(IdPairConsumer action) {
+        for (int i = 0; i < rows.length; i++) {
+            int first = i;
+            rows[i].forEach(second -> action.accept(first, second));
+        }
+    }
+
+    /**
+     * @return self as a hash of pairs, kept as the complement when that is smaller
+     */
+    public Relation<T> toRelation() {
+        long cells = (long) rows.length * rows.length;
+        if (2 * size > cells) return complement().toRelation().complement();
+        long[] pairs = new long[Math.toIntExact(size)];
+        int[] next = {0};
+        forEachPair((first, second) -> pairs[next[0]++] = ((long) first << 32) | second);
+        return Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs).iterator(), pairs.length);
+    }
+
+    /**
+     * @return self as a bit matrix
+     */
+    public MRelation<T> toMRelation() {
+        BitMatrix bits = new BitMatrix(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i].orInto(bits.getWords(), bits.rowOffset(i));
+        }
+        return new MRelation<>(new MList<>(universe), bits);
+    }
+
+    private void check(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ∪ S
+     */
+    public CompressedRelation<T> union(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = rows[i].or(otherRelation.rows[i]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ∩ S
+     */
+    public CompressedRelation<T> intersection(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = rows[i].and(otherRelation.rows[i]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ∼ S
+     */
+    public CompressedRelation<T> difference(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = rows[i].andNot(otherRelation.rows[i]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self Δ S
+     */
+    public CompressedRelation<T> symmetricDifference(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = rows[i].xor(otherRelation.rows[i]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * Each row is flipped against the run {0, …, n - 1}
+     * @return ∼self
+     */
+    public CompressedRelation<T> complement() {
+        RowBitmap full = RowBitmap.range(rows.length);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = full.andNot(rows[i]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * Rows are read in order, so the columns of every converse row arrive sorted
+     * @return self⁻¹
+     */
+    public CompressedRelation<T> converse() {
+        int n = rows.length;
+        int[] starts = new int[n + 1];
+        forEachPair((first, second) -> starts[second + 1]++);
+        for (int j = 0; j < n; j++) {
+            starts[j + 1] += starts[j];
+        }
+        int[] firsts = new int[starts[n]];
+        int[] next = Arrays.copyOf(starts, n);
+        forEachPair((first, second) -> firsts[next[second]++] = first);
+        RowBitmap[] result = new RowBitmap[n];
+        for (int j = 0; j < n; j++) {
+            result[j] = RowBitmap.fromSorted(firsts, starts[j], starts[j + 1]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * Row α of R | S is the union of the rows of S at the members of row α of R
+     * @param otherRelation S
+     * @return self | S
+     */
+    public CompressedRelation<T> composition(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        RowBitmap[] members = new RowBitmap[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int[] count = {0};
+            rows[i].forEach(middle -> {
+                RowBitmap row = otherRelation.rows[middle];
+                if (!row.isEmpty()) members[count[0]++] = row;
+            });
+            result[i] = RowBitmap.or(members, count[0]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * Row α of R † S is the intersection of the rows of S at the gaps of row α of R, kept as
+     * one list of columns that each gap narrows in place and left alone once it is empty
+     * @param otherRelation S
+     * @return self † S
+     */
+    public CompressedRelation<T> sum(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        RowBitmap full = RowBitmap.range(rows.length);
+        RowBitmap[] result = new RowBitmap[rows.length];
+        int[] summed = new int[rows.length];
+        // number of columns in summed, or -1 before the first gap while the row is all of U
+        int[] count = new int[1];
+        for (int i = 0; i < rows.length; i++) {
+            RowBitmap gaps = full.andNot(rows[i]);
+            if (gaps.isEmpty()) {
+                result[i] = full;
+                continue;
+            }
+            count[0] = -1;
+            gaps.forEach(middle -> {
+                if (count[0] == 0) return;
+                RowBitmap row = otherRelation.rows[middle];
+                if (count[0] < 0) {
+                    count[0] = 0;
+                    row.forEach(second -> summed[count[0]++] = second);
+                    return;
+                }
+                int kept = 0;
+                for (int c = 0; c < count[0]; c++) {
+                    if (row.contains(summed[c])) summed[kept++] = summed[c];
+                }
+                count[0] = kept;
+            });
+            result[i] = RowBitmap.fromSorted(summed, 0, count[0]);
+        }
+        return new CompressedRelation<>(universe, result);
+    }
+
+    /**
+     * Goes through whichever backend suits the density of self
+     * @return self⁺
+     */
+    public CompressedRelation<T> transitiveClosure() {
+        long cells = (long) rows.length * rows.length;
+        return 64 * size > cells ? of(toMRelation().transitiveClosure()) : of(toRelation().transitiveClosure());
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ⊆ S
+     */
+    public boolean isSubsetOf(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (size > otherRelation.size) return false;
+        for (int i = 0; i < rows.length; i++) {
+            if (!rows[i].isSubsetOf(otherRelation.rows[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self = S
+     */
+    public boolean isEqual(CompressedRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        check(otherRelation);
+        if (size != otherRelation.size) return false;
+        for (int i = 0; i < rows.length; i++) {
+            if (!rows[i].isEqual(otherRelation.rows[i])) return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,70 @@
+package compressed;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Set of the low 16 bits of the columns that share their high 16 bits, in one of three
+ * forms: a sorted array while it holds at most 4096 values, a 65536-bit bitmap above that,
+ * or a list of runs when that is smaller than either. Containers are never changed once
+ * built; every operation returns a new container, or one of its operands when the result
+ * equals it. Pairs of arrays are handled by merging, runs by sweeping over the run
+ * boundaries of both operands, and bitmaps word by word or range by range.
+ */
+abstract class Container {
+
+    static final int MAX_ARRAY = 4096;
+    static final int WORDS = 1024;
+
+    abstract int cardinality();
+
+    abstract boolean contains(int value);
+
+    /**
+     * @param base high bits of the values, already shifted
+     */
+    abstract void forEach(int base, IntConsumer action);
+
+    /**
+     * ORs the values into the bits of words, value v landing in bit v of words[offset ..]
+     */
+    abstract void orInto(long[] words, int offset);
+
+    /**
+     * @return a mutable bitmap copy of the values
+     */
+    abstract BitmapContainer toBitmap();
+
+    // the defaults are reached only by bitmaps; arrays and runs override every operator and
+    // take the commutative ones over from a bitmap when the bitmap is the receiver
+
+    Container and(Container other) {
+        if (!(other instanceof BitmapContainer)) return other.and(this);
+        return toBitmap().andWith(other).optimise();
+    }
+
+    Container or(Container other) {
+        if (!(other instanceof BitmapContainer)) return other.or(this);
+        return toBitmap().orWith(other).optimise();
+    }
+
+    Container andNot(Container other) {
+        return toBitmap().andNotWith(other).optimise();
+    }
+
+    Container xor(Container other) {
+        if (!(other instanceof BitmapContainer)) return other.xor(this);
+        return toBitmap().xorWith(other).optimise();
+    }
+
+    abstract boolean isSubsetOf(Container other);
+
+    boolean isEqual(Container other) {
+        return cardinality() == other.cardinality() && isSubsetOf(other);
+    }
+
+    /**
+     * @return the smallest of the three forms holding the same values
+     */
+    abstract Container optimise();
+
+}
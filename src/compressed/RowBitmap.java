@@ -0,0 +1,304 @@
+package compressed;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of column ids in the Roaring layout: the ids are split by their high 16 bits into
+ * containers, kept sorted by those bits, and absent chunks take no space. Immutable; the
+ * operations merge the two key lists and combine the containers of matching keys.
+ */
+final class RowBitmap {
+
+    static final RowBitmap EMPTY = new RowBitmap(new char[0], new Container[0]);
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    private RowBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+        int count = 0;
+        for (Container container : containers) {
+            count += container.cardinality();
+        }
+        this.cardinality = count;
+    }
+
+    private static RowBitmap of(char[] keys, Container[] containers, int count) {
+        if (count == 0) return EMPTY;
+        return new RowBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count));
+    }
+
+    /**
+     * @param values ascending column ids, read from from to to
+     */
+    static RowBitmap fromSorted(int[] values, int from, int to) {
+        if (from == to) return EMPTY;
+        int chunks = ((values[to - 1] >>> 16) - (values[from] >>> 16)) + 1;
+        char[] keys = new char[Math.min(chunks, to - from)];
+        Container[] containers = new Container[keys.length];
+        int count = 0;
+        for (int start = from; start < to; ) {
+            int key = values[start] >>> 16;
+            int end = start;
+            while (end < to && values[end] >>> 16 == key) end++;
+            Container container;
+            if (end - start <= Container.MAX_ARRAY) {
+                char[] low = new char[end - start];
+                for (int i = start; i < end; i++) {
+                    low[i - start] = (char) values[i];
+                }
+                container = new ArrayContainer(low).optimise();
+            } else {
+                BitmapContainer bitmap = new BitmapContainer();
+                for (int i = start; i < end; i++) {
+                    bitmap.set(values[i] & 0xFFFF);
+                }
+                container = new BitmapContainer(bitmap.words()).optimise();
+            }
+            keys[count] = (char) key;
+            containers[count++] = container;
+            start = end;
+        }
+        return of(keys, containers, count);
+    }
+
+    /**
+     * @param words bit j of the row in bit j % 64 of words[offset + j / 64]
+     * @param wordsPerRow number of words of the row
+     */
+    static RowBitmap fromWords(long[] words, int offset, int wordsPerRow) {
+        int chunks = (wordsPerRow + Container.WORDS - 1) / Container.WORDS;
+        char[] keys = new char[chunks];
+        Container[] containers = new Container[chunks];
+        int count = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = offset + chunk * Container.WORDS;
+            int to = Math.min(offset + wordsPerRow, from + Container.WORDS);
+            boolean empty = true;
+            for (int w = from; w < to && empty; w++) {
+                empty = words[w] == 0;
+            }
+            if (empty) continue;
+            long[] chunkWords = new long[Container.WORDS];
+            System.arraycopy(words, from, chunkWords, 0, to - from);
+            keys[count] = (char) chunk;
+            containers[count++] = new BitmapContainer(chunkWords).optimise();
+        }
+        return of(keys, containers, count);
+    }
+
+    /**
+     * @return {0, …, n - 1}
+     */
+    static RowBitmap range(int n) {
+        if (n == 0) return EMPTY;
+        int chunks = ((n - 1) >>> 16) + 1;
+        char[] keys = new char[chunks];
+        Container[] containers = new Container[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            keys[chunk] = (char) chunk;
+            containers[chunk] = RunContainer.upTo(chunk == chunks - 1 ? (n - 1) & 0xFFFF : 0xFFFF);
+        }
+        return new RowBitmap(keys, containers);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains(value & 0xFFFF);
+    }
+
+    void forEach(IntConsumer action) {
+        for (int c = 0; c < keys.length; c++) {
+            containers[c].forEach(keys[c] << 16, action);
+        }
+    }
+
+    /**
+     * ORs the row into words laid out as for fromWords()
+     */
+    void orInto(long[] words, int offset) {
+        for (int c = 0; c < keys.length; c++) {
+            containers[c].orInto(words, offset + keys[c] * Container.WORDS);
+        }
+    }
+
+    /**
+     * @return self ∩ S
+     */
+    RowBitmap and(RowBitmap other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        int capacity = Math.min(keys.length, other.keys.length);
+        char[] resultKeys = new char[capacity];
+        Container[] result = new Container[capacity];
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    resultKeys[count] = keys[i];
+                    result[count++] = container;
+                }
+                i++;
+                j++;
+            }
+        }
+        return of(resultKeys, result, count);
+    }
+
+    /**
+     * @return self ∪ S
+     */
+    RowBitmap or(RowBitmap other) {
+        if (other.isEmpty()) return this;
+        if (isEmpty()) return other;
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Container[] result = new Container[resultKeys.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                resultKeys[count] = keys[i];
+                result[count++] = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                resultKeys[count] = other.keys[j];
+                result[count++] = other.containers[j++];
+            } else {
+                resultKeys[count] = keys[i];
+                result[count++] = containers[i++].or(other.containers[j++]);
+            }
+        }
+        return of(resultKeys, result, count);
+    }
+
+    /**
+     * @return self ∖ S
+     */
+    RowBitmap andNot(RowBitmap other) {
+        if (isEmpty() || other.isEmpty()) return this;
+        char[] resultKeys = new char[keys.length];
+        Container[] result = new Container[keys.length];
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) j++;
+            Container container = j < other.keys.length && other.keys[j] == keys[i]
+                    ? containers[i].andNot(other.containers[j])
+                    : containers[i];
+            if (container != null) {
+                resultKeys[count] = keys[i];
+                result[count++] = container;
+            }
+        }
+        return of(resultKeys, result, count);
+    }
+
+    /**
+     * @return self Δ S
+     */
+    RowBitmap xor(RowBitmap other) {
+        if (other.isEmpty()) return this;
+        if (isEmpty()) return other;
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Container[] result = new Container[resultKeys.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            Container container;
+            char key;
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                key = keys[i];
+                container = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                key = other.keys[j];
+                container = other.containers[j++];
+            } else {
+                key = keys[i];
+                container = containers[i++].xor(other.containers[j++]);
+            }
+            if (container != null) {
+                resultKeys[count] = key;
+                result[count++] = container;
+            }
+        }
+        return of(resultKeys, result, count);
+    }
+
+    /**
+     * @return self ⊆ S
+     */
+    boolean isSubsetOf(RowBitmap other) {
+        if (cardinality > other.cardinality) return false;
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) j++;
+            if (j == other.keys.length || other.keys[j] != keys[i]) return false;
+            if (!containers[i].isSubsetOf(other.containers[j])) return false;
+        }
+        return true;
+    }
+
+    boolean isEqual(RowBitmap other) {
+        return cardinality == other.cardinality && isSubsetOf(other);
+    }
+
+    /**
+     * Unions many rows at once: each chunk is accumulated in one bitmap rather than through
+     * a chain of pairwise unions
+     * @return the union of rows[0 .. count)
+     */
+    static RowBitmap or(RowBitmap[] rows, int count) {
+        if (count == 0) return EMPTY;
+        if (count == 1) return rows[0];
+        if (count == 2) return rows[0].or(rows[1]);
+        int keyCount = 0;
+        for (int r = 0; r < count; r++) {
+            keyCount += rows[r].keys.length;
+        }
+        char[] allKeys = new char[keyCount];
+        keyCount = 0;
+        for (int r = 0; r < count; r++) {
+            System.arraycopy(rows[r].keys, 0, allKeys, keyCount, rows[r].keys.length);
+            keyCount += rows[r].keys.length;
+        }
+        Arrays.sort(allKeys);
+        int distinct = 0;
+        for (int k = 0; k < keyCount; k++) {
+            if (distinct == 0 || allKeys[distinct - 1] != allKeys[k]) allKeys[distinct++] = allKeys[k];
+        }
+        Container[] result = new Container[distinct];
+        int[] cursors = new int[count];
+        for (int k = 0; k < distinct; k++) {
+            char key = allKeys[k];
+            Container single = null;
+            BitmapContainer accumulated = null;
+            for (int r = 0; r < count; r++) {
+                RowBitmap row = rows[r];
+                if (cursors[r] == row.keys.length || row.keys[cursors[r]] != key) continue;
+                Container container = row.containers[cursors[r]++];
+                if (single == null) {
+                    single = container;
+                } else {
+                    if (accumulated == null) accumulated = single.toBitmap();
+                    accumulated.orWith(container);
+                }
+            }
+            result[k] = accumulated == null ? single : accumulated.optimise();
+        }
+        return of(allKeys, result, distinct);
+    }
+
+}
@@ -0,0 +1,262 @@
+package compressed;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Values as maximal runs [start, last], in ascending order
+ */
+final class RunContainer extends Container {
+
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int AND_NOT = 2;
+    private static final int XOR = 3;
+
+    private final char[] starts;
+    private final char[] lasts;
+    private final int cardinality;
+
+    RunContainer(char[] starts, char[] lasts) {
+        this.starts = starts;
+        this.lasts = lasts;
+        int count = 0;
+        for (int r = 0; r < starts.length; r++) {
+            count += lasts[r] - starts[r] + 1;
+        }
+        this.cardinality = count;
+    }
+
+    /**
+     * @return [0, last]
+     */
+    static RunContainer upTo(int last) {
+        return new RunContainer(new char[]{0}, new char[]{(char) last});
+    }
+
+    int runCount() {
+        return starts.length;
+    }
+
+    int start(int run) {
+        return starts[run];
+    }
+
+    int last(int run) {
+        return lasts[run];
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int value) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (value < starts[middle]) high = middle - 1;
+            else if (value > lasts[middle]) low = middle + 1;
+            else return true;
+        }
+        return false;
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+        for (int r = 0; r < starts.length; r++) {
+            for (int value = starts[r]; value <= lasts[r]; value++) {
+                action.accept(base + value);
+            }
+        }
+    }
+
+    @Override
+    void orInto(long[] words, int offset) {
+        for (int r = 0; r < starts.length; r++) {
+            int start = starts[r];
+            int last = lasts[r];
+            int first = start >>> 6;
+            int end = last >>> 6;
+            long startMask = -1L << start;
+            long endMask = -1L >>> (63 - (last & 63));
+            if (first == end) {
+                words[offset + first] |= startMask & endMask;
+                continue;
+            }
+            words[offset + first] |= startMask;
+            for (int w = first + 1; w < end; w++) {
+                words[offset + w] = -1L;
+            }
+            words[offset + end] |= endMask;
+        }
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+        BitmapContainer bitmap = new BitmapContainer();
+        for (int r = 0; r < starts.length; r++) {
+            bitmap.setRange(starts[r], lasts[r]);
+        }
+        return new BitmapContainer(bitmap.words());
+    }
+
+    /**
+     * @return the runs of an array or run container, or null for a bitmap
+     */
+    private static RunContainer runsOf(Container other) {
+        if (other instanceof RunContainer) return (RunContainer) other;
+        if (other instanceof ArrayContainer) return ((ArrayContainer) other).toRuns(((ArrayContainer) other).runs());
+        return null;
+    }
+
+    /**
+     * @return position of boundary b, the start of run b / 2 when b is even and one past its
+     * last value when b is odd
+     */
+    private int boundary(int b) {
+        return (b & 1) == 0 ? starts[b >>> 1] : lasts[b >>> 1] + 1;
+    }
+
+    /**
+     * Walks the run boundaries of both operands in order, tracking whether each covers the
+     * current position, and keeps the stretches where the operation holds; every boundary of
+     * the result is one of the operands, so it has at most as many runs as both together
+     */
+    private static Container sweep(RunContainer left, RunContainer right, int operation) {
+        int capacity = left.starts.length + right.starts.length;
+        char[] starts = new char[capacity];
+        char[] lasts = new char[capacity];
+        int count = 0;
+        int leftEnd = 2 * left.starts.length;
+        int rightEnd = 2 * right.starts.length;
+        boolean inLeft = false;
+        boolean inRight = false;
+        boolean inResult = false;
+        for (int i = 0, j = 0; i < leftEnd || j < rightEnd; ) {
+            int leftPosition = i < leftEnd ? left.boundary(i) : Integer.MAX_VALUE;
+            int rightPosition = j < rightEnd ? right.boundary(j) : Integer.MAX_VALUE;
+            int position = Math.min(leftPosition, rightPosition);
+            if (leftPosition == position) {
+                inLeft = !inLeft;
+                i++;
+            }
+            if (rightPosition == position) {
+                inRight = !inRight;
+                j++;
+            }
+            boolean holds;
+            switch (operation) {
+                case AND:
+                    holds = inLeft && inRight;
+                    break;
+                case OR:
+                    holds = inLeft || inRight;
+                    break;
+                case AND_NOT:
+                    holds = inLeft && !inRight;
+                    break;
+                default:
+                    holds = inLeft != inRight;
+            }
+            if (holds == inResult) continue;
+            if (holds) starts[count] = (char) position;
+            else lasts[count++] = (char) (position - 1);
+            inResult = holds;
+        }
+        if (count == 0) return null;
+        return new RunContainer(Arrays.copyOf(starts, count), Arrays.copyOf(lasts, count)).optimise();
+    }
+
+    @Override
+    Container and(Container other) {
+        // an array keeps its values found here, by binary search over the runs
+        if (other instanceof ArrayContainer) return other.and(this);
+        if (other instanceof RunContainer) return sweep(this, (RunContainer) other, AND);
+        BitmapContainer bitmap = (BitmapContainer) other;
+        if (cardinality > MAX_ARRAY) return bitmap.toBitmap().andWith(this).optimise();
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int r = 0; r < starts.length; r++) {
+            for (int value = starts[r]; value <= lasts[r]; value++) {
+                if (bitmap.contains(value)) values[count++] = (char) value;
+            }
+        }
+        return count == 0 ? null : new ArrayContainer(Arrays.copyOf(values, count)).optimise();
+    }
+
+    @Override
+    Container or(Container other) {
+        RunContainer runs = runsOf(other);
+        if (runs != null) return sweep(this, runs, OR);
+        if (cardinality == 65536) return this;
+        return other.toBitmap().orWith(this).optimise();
+    }
+
+    @Override
+    Container andNot(Container other) {
+        RunContainer runs = runsOf(other);
+        if (runs != null) return sweep(this, runs, AND_NOT);
+        BitmapContainer bitmap = (BitmapContainer) other;
+        if (cardinality > MAX_ARRAY) return toBitmap().andNotWith(bitmap).optimise();
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int r = 0; r < starts.length; r++) {
+            for (int value = starts[r]; value <= lasts[r]; value++) {
+                if (!bitmap.contains(value)) values[count++] = (char) value;
+            }
+        }
+        if (count == cardinality) return this;
+        return count == 0 ? null : new ArrayContainer(Arrays.copyOf(values, count)).optimise();
+    }
+
+    @Override
+    Container xor(Container other) {
+        RunContainer runs = runsOf(other);
+        if (runs != null) return sweep(this, runs, XOR);
+        return other.toBitmap().xorWith(this).optimise();
+    }
+
+    @Override
+    boolean isSubsetOf(Container other) {
+        if (cardinality > other.cardinality()) return false;
+        if (other instanceof BitmapContainer) {
+            BitmapContainer bitmap = (BitmapContainer) other;
+            for (int r = 0; r < starts.length; r++) {
+                if (!bitmap.containsRange(starts[r], lasts[r])) return false;
+            }
+            return true;
+        }
+        // runs of the other operand are maximal, so each run here must lie inside one of them
+        RunContainer runs = runsOf(other);
+        int j = 0;
+        for (int r = 0; r < starts.length; r++) {
+            while (j < runs.starts.length && runs.lasts[j] < starts[r]) j++;
+            if (j == runs.starts.length || runs.starts[j] > starts[r] || runs.lasts[j] < lasts[r]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    Container optimise() {
+        if (cardinality == 0) return null;
+        int runBytes = 4 * starts.length;
+        if (cardinality <= MAX_ARRAY && 2 * cardinality <= runBytes) return toArray();
+        if (runBytes > 8 * WORDS) return toBitmap();
+        return this;
+    }
+
+    private ArrayContainer toArray() {
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int r = 0; r < starts.length; r++) {
+            for (int value = starts[r]; value <= lasts[r]; value++) {
+                values[count++] = (char) value;
+            }
+        }
+        return new ArrayContainer(values);
+    }
+
+}
@@ -0,0 +1,4 @@
+package compressed;
+
+public class UnmatchedUniversalSetsException extends Exception {
+}
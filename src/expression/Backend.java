@@ -0,0 +1,35 @@
+package expression;
+
+/**
+ * The operations an expression needs from a relation implementation. Element-wise operators
+ * never reach the backend one by one: every maximal ∪ / ∩ / ∼ region of an optimised
+ * expression arrives as a single Fusion to be evaluated in one pass.
+ * @param <R> relation type
+ */
+public interface Backend<R> {
+
+    /**
+     * @return whether R and S range over the same universal set
+     */
+    boolean isCompatible(R relation, R otherRelation);
+
+    /**
+     * Lets the optimiser see through complements that are still pending in a relation
+     * @return A when the relation is stored as ∼A, otherwise null
+     */
+    R uncomplemented(R relation);
+
+    R complement(R relation);
+
+    R converse(R relation);
+
+    R composition(R relation, R otherRelation);
+
+    R sum(R relation, R otherRelation);
+
+    /**
+     * @return the relation described by the fused element-wise formula
+     */
+    R fuse(Fusion<R> fusion);
+
+}
@@ -0,0 +1,106 @@
+package expression;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Evaluates an optimised expression DAG, each shared node once. Composition, sum and converse
+ * are handed to the backend operator by operator; each maximal element-wise region is compiled
+ * to one Fusion over its non-element-wise inputs.
+ */
+class Evaluator<R> {
+
+    private final Backend<R> backend;
+    private final IdentityHashMap<Expression<R>, R> values = new IdentityHashMap<>();
+
+    Evaluator(Backend<R> backend) {
+        this.backend = backend;
+    }
+
+    R evaluate(Expression<R> expression) throws UnmatchedUniversalSetsException {
+        ArrayList<R> relations = new ArrayList<>();
+        collectRelations(expression, new IdentityHashMap<>(), relations);
+        for (R relation : relations) {
+            if (!backend.isCompatible(relations.get(0), relation)) throw new UnmatchedUniversalSetsException();
+        }
+        return value(expression);
+    }
+
+    private void collectRelations(Expression<R> expression, IdentityHashMap<Expression<R>, Boolean> seen, ArrayList<R> relations) {
+        if (seen.put(expression, Boolean.TRUE) != null) return;
+        if (expression.getOperator() == Expression.Operator.RELATION) relations.add(expression.getRelation());
+        if (expression.getLeft() != null) collectRelations(expression.getLeft(), seen, relations);
+        if (expression.getRight() != null) collectRelations(expression.getRight(), seen, relations);
+    }
+
+    private R value(Expression<R> expression) {
+        R value = values.get(expression);
+        if (value != null) return value;
+        switch (expression.getOperator()) {
+            case RELATION:
+                value = expression.getRelation();
+                break;
+            case CONVERSE:
+                value = backend.converse(value(expression.getLeft()));
+                break;
+            case COMPOSITION:
+                value = backend.composition(value(expression.getLeft()), value(expression.getRight()));
+                break;
+            case SUM:
+                value = backend.sum(value(expression.getLeft()), value(expression.getRight()));
+                break;
+            default:
+                value = fuse(expression);
+        }
+        values.put(expression, value);
+        return value;
+    }
+
+    private R fuse(Expression<R> expression) {
+        ArrayList<Integer> program = new ArrayList<>();
+        ArrayList<R> inputs = new ArrayList<>();
+        compile(expression, false, program, inputs, new IdentityHashMap<>());
+        int[] instructions = program.stream().mapToInt(Integer::intValue).toArray();
+        Fusion<R> fusion = new Fusion<>(instructions, inputs);
+        if (instructions.length == 1) return inputs.get(0);
+        if (fusion.isLiteral()) return backend.complement(inputs.get(0));
+        return backend.fuse(fusion);
+    }
+
+    /**
+     * Emits the region in postfix, re-applying De Morgan for complements that only show up
+     * once an input has been evaluated to a pending complement, so inputs reach the backend
+     * uncomplemented and NOT only ever follows an input
+     */
+    private void compile(Expression<R> expression, boolean negate, ArrayList<Integer> program, ArrayList<R> inputs, IdentityHashMap<Expression<R>, Integer> indices) {
+        switch (expression.getOperator()) {
+            case UNION:
+            case INTERSECTION:
+                compile(expression.getLeft(), negate, program, inputs, indices);
+                compile(expression.getRight(), negate, program, inputs, indices);
+                boolean union = expression.getOperator() == Expression.Operator.UNION;
+                program.add(union != negate ? Fusion.OR : Fusion.AND);
+                break;
+            case COMPLEMENT:
+                compile(expression.getLeft(), !negate, program, inputs, indices);
+                break;
+            default:
+                // inputs are numbered once per node; a pending complement is recorded as ~index
+                Integer index = indices.get(expression);
+                if (index == null) {
+                    R value = value(expression);
+                    R stored = backend.uncomplemented(value);
+                    index = stored == null ? inputs.size() : ~inputs.size();
+                    inputs.add(stored == null ? value : stored);
+                    indices.put(expression, index);
+                }
+                if (index < 0) {
+                    index = ~index;
+                    negate = !negate;
+                }
+                program.add(index);
+                if (negate) program.add(Fusion.NOT);
+        }
+    }
+
+}
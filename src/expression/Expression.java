@@ -0,0 +1,174 @@
+package expression;
+
+import matrix.MRelation;
+import matrix.MRelationBackend;
+import traditional.Relation;
+import traditional.RelationBackend;
+
+/**
+ * Lazy relation-algebra formula. Building an expression only records the operator DAG;
+ * evaluate() first rewrites it (De Morgan, converse pushdown, common subexpressions) and then
+ * materialises composition, sum and converse inputs but fuses every element-wise region into
+ * a single pass, so only the final relation is allocated in full.
+ * @param <R> relation type of the backend
+ */
+public final class Expression<R> {
+
+    enum Operator {
+        RELATION, UNION, INTERSECTION, COMPLEMENT, COMPOSITION, SUM, CONVERSE;
+
+        boolean isElementWise() {
+            return this == UNION || this == INTERSECTION || this == COMPLEMENT;
+        }
+    }
+
+    private final Backend<R> backend;
+    private final Operator operator;
+    private final Expression<R> left;
+    private final Expression<R> right;
+    private final R relation;
+
+    Expression(Backend<R> backend, Operator operator, Expression<R> left, Expression<R> right, R relation) {
+        this.backend = backend;
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+        this.relation = relation;
+    }
+
+    public static <R> Expression<R> of(R relation, Backend<R> backend) {
+        return new Expression<>(backend, Operator.RELATION, null, null, relation);
+    }
+
+    public static <T> Expression<Relation<T>> of(Relation<T> relation) {
+        return of(relation, new RelationBackend<>());
+    }
+
+    public static <T> Expression<MRelation<T>> of(MRelation<T> relation) {
+        return of(relation, new MRelationBackend<>());
+    }
+
+    Backend<R> getBackend() {
+        return backend;
+    }
+
+    Operator getOperator() {
+        return operator;
+    }
+
+    Expression<R> getLeft() {
+        return left;
+    }
+
+    Expression<R> getRight() {
+        return right;
+    }
+
+    R getRelation() {
+        return relation;
+    }
+
+    private Expression<R> apply(Operator operator, Expression<R> other) {
+        return new Expression<>(backend, operator, this, other, null);
+    }
+
+    /**
+     * @param other S
+     * @return self ∪ S
+     */
+    public Expression<R> union(Expression<R> other) {
+        return apply(Operator.UNION, other);
+    }
+
+    /**
+     * @param other S
+     * @return self ∩ S
+     */
+    public Expression<R> intersection(Expression<R> other) {
+        return apply(Operator.INTERSECTION, other);
+    }
+
+    /**
+     * R ∼ S = R ∩ ∼S
+     * @param other S
+     * @return self ∼ S
+     */
+    public Expression<R> difference(Expression<R> other) {
+        return intersection(other.complement());
+    }
+
+    /**
+     * R Δ S = (R ∼ S) ∪ (S ∼ R)
+     * @param other S
+     * @return self Δ S
+     */
+    public Expression<R> symmetricDifference(Expression<R> other) {
+        return difference(other).union(other.difference(this));
+    }
+
+    /**
+     * @return ∼self
+     */
+    public Expression<R> complement() {
+        return apply(Operator.COMPLEMENT, null);
+    }
+
+    /**
+     * @param other S
+     * @return self | S
+     */
+    public Expression<R> composition(Expression<R> other) {
+        return apply(Operator.COMPOSITION, other);
+    }
+
+    /**
+     * @param other S
+     * @return self † S
+     */
+    public Expression<R> sum(Expression<R> other) {
+        return apply(Operator.SUM, other);
+    }
+
+    /**
+     * @return self⁻¹
+     */
+    public Expression<R> converse() {
+        return apply(Operator.CONVERSE, null);
+    }
+
+    /**
+     * @return an equivalent expression in negation normal form with converses on the
+     * relations and equal subexpressions shared
+     */
+    public Expression<R> optimise() {
+        return new Optimiser<>(backend).optimise(this);
+    }
+
+    /**
+     * @return the relation the formula denotes
+     */
+    public R evaluate() throws UnmatchedUniversalSetsException {
+        return new Evaluator<>(backend).evaluate(optimise());
+    }
+
+    @Override
+    public String toString() {
+        switch (operator) {
+            case RELATION:
+                return "R" + Integer.toHexString(System.identityHashCode(relation));
+            case UNION:
+                return "(" + left + " ∪ " + right + ")";
+            case INTERSECTION:
+                return "(" + left + " ∩ " + right + ")";
+            case COMPLEMENT:
+                return "∼" + left;
+            case COMPOSITION:
+                return "(" + left + " | " + right + ")";
+            case SUM:
+                return "(" + left + " † " + right + ")";
+            default:
+                return left + "⁻¹";
+        }
+    }
+
+}
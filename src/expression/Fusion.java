@@ -0,0 +1,189 @@
+package expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A maximal element-wise region of an optimised expression, compiled to a postfix program
+ * over its inputs so a backend can evaluate the whole region in a single pass.
+ * Non-negative instructions push an input, the negative ones are the operators below. The
+ * region is in negation normal form, so NOT only ever follows an input.
+ * @param <R> relation type
+ */
+public final class Fusion<R> {
+
+    public static final int AND = -1;
+    public static final int OR = -2;
+    public static final int NOT = -3;
+
+    private final int[] program;
+    private final List<R> inputs;
+    private final int depth;
+    // inputs whose pairs contain every pair of the result, or null if the result is unbounded
+    private final int[] candidates;
+
+    Fusion(int[] program, List<R> inputs) {
+        this.program = program;
+        this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+        int depth = 0;
+        int maxDepth = 0;
+        for (int instruction : program) {
+            if (instruction >= 0) maxDepth = Math.max(maxDepth, ++depth);
+            else if (instruction != NOT) depth--;
+        }
+        this.depth = maxDepth;
+        this.candidates = candidates(program);
+    }
+
+    /**
+     * A formula is bounded when every pair satisfying it lies in some positive input: an
+     * input is bounded, ∼input is not, F ∪ G needs both sides bounded and F ∩ G either side.
+     * @return candidate inputs covering the result, smallest set found, or null
+     */
+    private static int[] candidates(int[] program) {
+        ArrayList<int[]> stack = new ArrayList<>();
+        for (int instruction : program) {
+            if (instruction >= 0) {
+                stack.add(new int[]{instruction});
+            } else if (instruction == NOT) {
+                stack.set(stack.size() - 1, null);
+            } else {
+                int[] right = stack.remove(stack.size() - 1);
+                int[] left = stack.remove(stack.size() - 1);
+                int[] bound;
+                if (instruction == OR) {
+                    bound = left == null || right == null ? null : concat(left, right);
+                } else if (left == null || right == null) {
+                    bound = left == null ? right : left;
+                } else {
+                    bound = left.length <= right.length ? left : right;
+                }
+                stack.add(bound);
+            }
+        }
+        return stack.get(0);
+    }
+
+    private static int[] concat(int[] left, int[] right) {
+        int[] both = new int[left.length + right.length];
+        System.arraycopy(left, 0, both, 0, left.length);
+        System.arraycopy(right, 0, both, left.length, right.length);
+        return both;
+    }
+
+    public int[] getProgram() {
+        return program.clone();
+    }
+
+    public List<R> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return whether the result is contained in the union of the candidate inputs
+     */
+    public boolean isBounded() {
+        return candidates != null;
+    }
+
+    /**
+     * @return indices of inputs whose pairs cover the result, or null if it is unbounded
+     */
+    public int[] getCandidates() {
+        return candidates == null ? null : candidates.clone();
+    }
+
+    /**
+     * ∼F in negation normal form; of a formula and its negation at least one is bounded
+     * @return the negated region over the same inputs
+     */
+    public Fusion<R> negated() {
+        ArrayList<int[]> stack = new ArrayList<>();
+        for (int instruction : program) {
+            if (instruction >= 0) {
+                stack.add(new int[]{instruction, NOT});
+            } else if (instruction == NOT) {
+                int[] literal = stack.get(stack.size() - 1);
+                stack.set(stack.size() - 1, new int[]{literal[0]});
+            } else {
+                int[] right = stack.remove(stack.size() - 1);
+                int[] left = stack.remove(stack.size() - 1);
+                int[] both = concat(left, right);
+                stack.add(concat(both, new int[]{instruction == AND ? OR : AND}));
+            }
+        }
+        return new Fusion<>(stack.get(0), inputs);
+    }
+
+    /**
+     * @return whether the program is a single input, possibly negated
+     */
+    public boolean isLiteral() {
+        return program.length == 1 || (program.length == 2 && program[1] == NOT);
+    }
+
+    /**
+     * Evaluates the formula for one pair
+     * @param values whether the pair is in each input, by input index
+     * @param stack scratch space of at least getDepth() entries
+     * @return whether the pair is in the result
+     */
+    public boolean test(boolean[] values, boolean[] stack) {
+        int top = -1;
+        for (int instruction : program) {
+            switch (instruction) {
+                case AND:
+                    top--;
+                    stack[top] &= stack[top + 1];
+                    break;
+                case OR:
+                    top--;
+                    stack[top] |= stack[top + 1];
+                    break;
+                case NOT:
+                    stack[top] = !stack[top];
+                    break;
+                default:
+                    stack[++top] = values[instruction];
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Evaluates the formula for 64 pairs at once; bits past the last column are not masked
+     * @param words the word at the same position of every input, by input index
+     * @param stack scratch space of at least getDepth() words
+     * @return the word at that position of the result
+     */
+    public long evaluate(long[] words, long[] stack) {
+        int top = -1;
+        for (int instruction : program) {
+            switch (instruction) {
+                case AND:
+                    top--;
+                    stack[top] &= stack[top + 1];
+                    break;
+                case OR:
+                    top--;
+                    stack[top] |= stack[top + 1];
+                    break;
+                case NOT:
+                    stack[top] = ~stack[top];
+                    break;
+                default:
+                    stack[++top] = words[instruction];
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * @return the deepest the evaluation stack gets
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+}
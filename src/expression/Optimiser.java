@@ -0,0 +1,134 @@
+package expression;
+
+import expression.Expression.Operator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Rewrites an expression bottom-up through smart constructors:
+ * complements are pushed to the relations by De Morgan (∼(R ∪ S) = ∼R ∩ ∼S,
+ * ∼(R | S) = ∼R † ∼S and duals, ∼∼R = R), converses likewise ((R | S)⁻¹ = S⁻¹ | R⁻¹,
+ * (∼R)⁻¹ = ∼(R⁻¹), R⁻¹⁻¹ = R), and every node is hash-consed so equal subexpressions
+ * become one shared node that is evaluated once.
+ */
+class Optimiser<R> {
+
+    private final Backend<R> backend;
+    private final IdentityHashMap<Expression<R>, Expression<R>> rewritten = new IdentityHashMap<>();
+    private final IdentityHashMap<R, Expression<R>> relations = new IdentityHashMap<>();
+    private final HashMap<List<Object>, Expression<R>> nodes = new HashMap<>();
+    // creation order of shared nodes, used to put the operands of ∪ and ∩ in canonical order
+    private final IdentityHashMap<Expression<R>, Integer> ids = new IdentityHashMap<>();
+
+    Optimiser(Backend<R> backend) {
+        this.backend = backend;
+    }
+
+    Expression<R> optimise(Expression<R> expression) {
+        Expression<R> done = rewritten.get(expression);
+        if (done != null) return done;
+        Expression<R> left = expression.getLeft() == null ? null : optimise(expression.getLeft());
+        Expression<R> right = expression.getRight() == null ? null : optimise(expression.getRight());
+        switch (expression.getOperator()) {
+            case RELATION:
+                done = relation(expression.getRelation());
+                break;
+            case UNION:
+                done = union(left, right);
+                break;
+            case INTERSECTION:
+                done = intersection(left, right);
+                break;
+            case COMPLEMENT:
+                done = complement(left);
+                break;
+            case COMPOSITION:
+                done = node(Operator.COMPOSITION, left, right);
+                break;
+            case SUM:
+                done = node(Operator.SUM, left, right);
+                break;
+            default:
+                done = converse(left);
+        }
+        rewritten.put(expression, done);
+        return done;
+    }
+
+    private Expression<R> node(Operator operator, Expression<R> left, Expression<R> right) {
+        List<Object> key = Arrays.asList(operator, left, right);
+        Expression<R> node = nodes.get(key);
+        if (node == null) {
+            node = new Expression<>(backend, operator, left, right, null);
+            nodes.put(key, node);
+            ids.put(node, ids.size());
+        }
+        return node;
+    }
+
+    private Expression<R> relation(R relation) {
+        R stored = backend.uncomplemented(relation);
+        if (stored != null) return complement(relation(stored));
+        Expression<R> node = relations.get(relation);
+        if (node == null) {
+            node = Expression.of(relation, backend);
+            relations.put(relation, node);
+            ids.put(node, ids.size());
+        }
+        return node;
+    }
+
+    private Expression<R> union(Expression<R> left, Expression<R> right) {
+        if (left == right) return left;
+        return ids.get(left) <= ids.get(right) ? node(Operator.UNION, left, right) : node(Operator.UNION, right, left);
+    }
+
+    private Expression<R> intersection(Expression<R> left, Expression<R> right) {
+        if (left == right) return left;
+        return ids.get(left) <= ids.get(right) ? node(Operator.INTERSECTION, left, right) : node(Operator.INTERSECTION, right, left);
+    }
+
+    private Expression<R> complement(Expression<R> expression) {
+        Expression<R> left = expression.getLeft();
+        Expression<R> right = expression.getRight();
+        switch (expression.getOperator()) {
+            case COMPLEMENT:
+                return left;
+            case UNION:
+                return intersection(complement(left), complement(right));
+            case INTERSECTION:
+                return union(complement(left), complement(right));
+            case COMPOSITION:
+                return node(Operator.SUM, complement(left), complement(right));
+            case SUM:
+                return node(Operator.COMPOSITION, complement(left), complement(right));
+            default:
+                return node(Operator.COMPLEMENT, expression, null);
+        }
+    }
+
+    private Expression<R> converse(Expression<R> expression) {
+        Expression<R> left = expression.getLeft();
+        Expression<R> right = expression.getRight();
+        switch (expression.getOperator()) {
+            case CONVERSE:
+                return left;
+            case UNION:
+                return union(converse(left), converse(right));
+            case INTERSECTION:
+                return intersection(converse(left), converse(right));
+            case COMPLEMENT:
+                return complement(converse(left));
+            case COMPOSITION:
+                return node(Operator.COMPOSITION, converse(right), converse(left));
+            case SUM:
+                return node(Operator.SUM, converse(right), converse(left));
+            default:
+                return node(Operator.CONVERSE, expression, null);
+        }
+    }
+
+}
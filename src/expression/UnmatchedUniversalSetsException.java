@@ -0,0 +1,4 @@
+package expression;
+
+public class UnmatchedUniversalSetsException extends Exception {
+}
@@ -0,0 +1,413 @@
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * Square Boolean matrix with every row packed into 64-bit words of one contiguous array.
+ * Bit j of row i lives at position j & 63 of words[i * wordsPerRow + (j >>> 6)].
+ * Bits past the last column of a row are always kept clear so that whole words can be
+ * compared, counted and combined without masking on every read.
+ */
+public class BitMatrix {
+
+    private final int size;
+    private final int wordsPerRow;
+    private final long tailMask;
+    private final long[] words;
+
+    public BitMatrix(int size) {
+        this.size = size;
+        this.wordsPerRow = wordsPerRow(size);
+        this.tailMask = tailMask(size);
+        long length = (long) size * wordsPerRow;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("a " + size + " × " + size + " bit matrix does not fit in a single array");
+        }
+        this.words = new long[(int) length];
+    }
+
+    private BitMatrix(int size, long[] words) {
+        this.size = size;
+        this.wordsPerRow = wordsPerRow(size);
+        this.tailMask = tailMask(size);
+        this.words = words;
+    }
+
+    static int wordsPerRow(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    static long tailMask(int size) {
+        return (size & 63) == 0 ? -1L : (1L << (size & 63)) - 1;
+    }
+
+    public static BitMatrix fromBooleans(boolean[][] matrix) {
+        BitMatrix bits = new BitMatrix(matrix.length);
+        for (int i = 0; i < matrix.length; i++) {
+            int offset = bits.rowOffset(i);
+            for (int j = 0; j < matrix.length; j++) {
+                if (matrix[i][j]) bits.words[offset + (j >>> 6)] |= 1L << j;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @param size number of elements in U
+     * @return matrix of idU
+     */
+    public static BitMatrix identity(int size) {
+        BitMatrix bits = new BitMatrix(size);
+        for (int i = 0; i < size; i++) {
+            bits.set(i, i);
+        }
+        return bits;
+    }
+
+    /**
+     * @param size number of elements in U
+     * @return matrix of U × U
+     */
+    public static BitMatrix full(int size) {
+        BitMatrix bits = new BitMatrix(size);
+        for (int i = 0; i < size; i++) {
+            int offset = bits.rowOffset(i);
+            Arrays.fill(bits.words, offset, offset + bits.wordsPerRow, -1L);
+            bits.words[offset + bits.wordsPerRow - 1] = bits.tailMask;
+        }
+        return bits;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @return mask of the columns that are in use in the last word of every row
+     */
+    public long getTailMask() {
+        return tailMask;
+    }
+
+    /**
+     * The backing array, shared rather than copied so that kernels can work on it directly
+     * @return row-major packed words
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    public int rowOffset(int row) {
+        return row * wordsPerRow;
+    }
+
+    public boolean get(int row, int column) {
+        return (words[row * wordsPerRow + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    public void set(int row, int column) {
+        words[row * wordsPerRow + (column >>> 6)] |= 1L << column;
+    }
+
+    public void clear(int row, int column) {
+        words[row * wordsPerRow + (column >>> 6)] &= ~(1L << column);
+    }
+
+    /**
+     * @param row row to scan
+     * @param fromColumn first column to look at
+     * @return the first set column at or after fromColumn, or -1 if there is none
+     */
+    public int nextSetBit(int row, int fromColumn) {
+        if (fromColumn >= size) return -1;
+        int offset = rowOffset(row);
+        int w = fromColumn >>> 6;
+        long word = words[offset + w] & (-1L << fromColumn);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == wordsPerRow) return -1;
+            word = words[offset + w];
+        }
+    }
+
+    public long cardinality() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public BitMatrix copy() {
+        return new BitMatrix(size, words.clone());
+    }
+
+    /**
+     * MT = MR + MS
+     * @param other MS
+     * @return self + MS
+     */
+    public BitMatrix or(BitMatrix other) {
+        return or(other, Parallelism.sequential());
+    }
+
+    public BitMatrix or(BitMatrix other, Parallelism parallelism) {
+        long[] result = new long[words.length];
+        parallelism.forEach(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                result[w] = words[w] | other.words[w];
+            }
+        });
+        return new BitMatrix(size, result);
+    }
+
+    /**
+     * MT = MR · MS
+     * @param other MS
+     * @return self · MS
+     */
+    public BitMatrix and(BitMatrix other) {
+        return and(other, Parallelism.sequential());
+    }
+
+    public BitMatrix and(BitMatrix other, Parallelism parallelism) {
+        long[] result = new long[words.length];
+        parallelism.forEach(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                result[w] = words[w] & other.words[w];
+            }
+        });
+        return new BitMatrix(size, result);
+    }
+
+    /**
+     * MT = MR · −MS
+     * @param other MS
+     * @return self · −MS
+     */
+    public BitMatrix andNot(BitMatrix other) {
+        return andNot(other, Parallelism.sequential());
+    }
+
+    public BitMatrix andNot(BitMatrix other, Parallelism parallelism) {
+        long[] result = new long[words.length];
+        parallelism.forEach(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                result[w] = words[w] & ~other.words[w];
+            }
+        });
+        return new BitMatrix(size, result);
+    }
+
+    /**
+     * @param other MS
+     * @return cells set in exactly one of self and MS
+     */
+    public BitMatrix xor(BitMatrix other) {
+        return xor(other, Parallelism.sequential());
+    }
+
+    public BitMatrix xor(BitMatrix other, Parallelism parallelism) {
+        long[] result = new long[words.length];
+        parallelism.forEach(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                result[w] = words[w] ^ other.words[w];
+            }
+        });
+        return new BitMatrix(size, result);
+    }
+
+    /**
+     * MT = −MR
+     * @return −self
+     */
+    public BitMatrix not() {
+        return not(Parallelism.sequential());
+    }
+
+    public BitMatrix not(Parallelism parallelism) {
+        long[] result = new long[words.length];
+        parallelism.forEach(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = rowOffset(i);
+                for (int w = offset; w < offset + wordsPerRow - 1; w++) {
+                    result[w] = ~words[w];
+                }
+                result[offset + wordsPerRow - 1] = ~words[offset + wordsPerRow - 1] & tailMask;
+            }
+        });
+        return new BitMatrix(size, result);
+    }
+
+    /**
+     * @param other MS
+     * @return every cell set in self is set in MS
+     */
+    public boolean isSubsetOf(BitMatrix other) {
+        return isSubsetOf(other, Parallelism.sequential());
+    }
+
+    public boolean isSubsetOf(BitMatrix other, Parallelism parallelism) {
+        return parallelism.allMatch(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                if ((words[w] & ~other.words[w]) != 0) return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * @param other MS
+     * @return no cell is set in both self and MS
+     */
+    public boolean isDisjointFrom(BitMatrix other) {
+        return isDisjointFrom(other, Parallelism.sequential());
+    }
+
+    public boolean isDisjointFrom(BitMatrix other, Parallelism parallelism) {
+        return parallelism.allMatch(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                if ((words[w] & other.words[w]) != 0) return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * @param other MS
+     * @return every cell is set in self or in MS
+     */
+    public boolean coversWith(BitMatrix other) {
+        return coversWith(other, Parallelism.sequential());
+    }
+
+    public boolean coversWith(BitMatrix other, Parallelism parallelism) {
+        return parallelism.allMatch(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = rowOffset(i);
+                for (int w = offset; w < offset + wordsPerRow - 1; w++) {
+                    if ((words[w] | other.words[w]) != -1L) return false;
+                }
+                int last = offset + wordsPerRow - 1;
+                if ((words[last] | other.words[last]) != tailMask) return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * @param other MS
+     * @return self = −MS
+     */
+    public boolean isComplementOf(BitMatrix other) {
+        return isComplementOf(other, Parallelism.sequential());
+    }
+
+    public boolean isComplementOf(BitMatrix other, Parallelism parallelism) {
+        return parallelism.allMatch(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = rowOffset(i);
+                for (int w = offset; w < offset + wordsPerRow - 1; w++) {
+                    if ((words[w] ^ other.words[w]) != -1L) return false;
+                }
+                int last = offset + wordsPerRow - 1;
+                if ((words[last] ^ other.words[last]) != tailMask) return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * equals(other) with the rows compared block by block
+     * @param other MS
+     * @return self = MS
+     */
+    public boolean isEqualTo(BitMatrix other, Parallelism parallelism) {
+        if (size != other.size) return false;
+        return parallelism.allMatch(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) ->
+                Arrays.equals(words, from * wordsPerRow, to * wordsPerRow, other.words, from * wordsPerRow, to * wordsPerRow));
+    }
+
+    /**
+     * MT = (MR)^T, computed one 64 × 64 block at a time
+     * @return self^T
+     */
+    public BitMatrix transpose() {
+        return transpose(Parallelism.sequential());
+    }
+
+    /**
+     * Each task takes a strip of 64 rows, whose blocks land in one word column of the result,
+     * so tasks never write to the same word
+     */
+    public BitMatrix transpose(Parallelism parallelism) {
+        BitMatrix result = new BitMatrix(size);
+        int grain = Math.max(1, Parallelism.rowGrain(wordsPerRow) >>> 6);
+        parallelism.forEach(size, wordsPerRow, grain, (from, to) -> {
+            long[] block = new long[64];
+            for (int blockRow = from; blockRow < to; blockRow++) {
+                int rowStart = blockRow << 6;
+                int rows = Math.min(64, size - rowStart);
+                for (int blockColumn = 0; blockColumn < wordsPerRow; blockColumn++) {
+                    boolean empty = true;
+                    for (int r = 0; r < rows; r++) {
+                        block[r] = words[(rowStart + r) * wordsPerRow + blockColumn];
+                        empty &= block[r] == 0;
+                    }
+                    if (empty) continue;
+                    Arrays.fill(block, rows, 64, 0L);
+                    transpose64(block);
+                    int columnStart = blockColumn << 6;
+                    int columns = Math.min(64, size - columnStart);
+                    for (int c = 0; c < columns; c++) {
+                        result.words[(columnStart + c) * wordsPerRow + blockRow] = block[c];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * In-place transpose of a 64 × 64 bit block where bit c of block[r] is cell (r, c),
+     * by recursively swapping off-diagonal quadrants (Hacker's Delight, 7-3).
+     */
+    static void transpose64(long[] block) {
+        long mask = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>>= 1, mask ^= mask << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = ((block[k] >>> j) ^ block[k | j]) & mask;
+                block[k | j] ^= t;
+                block[k] ^= t << j;
+            }
+        }
+    }
+
+    public boolean[][] toBooleans() {
+        boolean[][] matrix = new boolean[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = nextSetBit(i, 0); j >= 0; j = nextSetBit(i, j + 1)) {
+                matrix[i][j] = true;
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitMatrix)) return false;
+        BitMatrix other = (BitMatrix) o;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+
+}
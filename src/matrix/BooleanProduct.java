@@ -0,0 +1,276 @@
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * Products of bit matrices over the Boolean semiring ({0, 1}, ∨, ∧).
+ * MR ⊙ MS backs composition: (MR ⊙ MS)[i][j] = ∨k (MR[i][k] ∧ MS[k][j]).
+ * MR ⊕ MS backs sum, the dual product: (MR ⊕ MS)[i][j] = ∧k (MR[i][k] ∨ MS[k][j]).
+ * Both are computed row-wise, OR-ing (or AND-ing) whole packed rows of MS into the result
+ * so 64 columns are handled per word operation.
+ */
+public final class BooleanProduct {
+
+    /**
+     * BLOCKED walks the set bits of each row of MR and folds in the matching rows of MS, tiled
+     * so a block of MS stays in cache; its cost follows the number of pairs in MR.
+     * FOUR_RUSSIANS (Arlazarov et al.) precomputes the fold of every subset of eight rows of MS
+     * and then consumes MR a byte at a time, so its cost does not depend on density.
+     */
+    public enum Kernel {
+        BLOCKED, FOUR_RUSSIANS
+    }
+
+    // bits of MR consumed per table lookup in the Method of Four Russians
+    private static final int GROUP = 8;
+    private static final int TABLE = 1 << GROUP;
+    // row segment of MS (in words) processed per tile: 2 KiB
+    private static final int COLUMN_BLOCK = 256;
+    // rows of MS per tile, a multiple of 64 so each tile covers whole words of MR
+    private static final int ROW_BLOCK = 128;
+    // rows of MR per parallel tile, enough to pay for building the tables of a column block
+    private static final int TILE_ROWS = 256;
+
+    private BooleanProduct() {
+    }
+
+    /**
+     * @param a MR
+     * @param b MS
+     * @return MR ⊙ MS with the kernel chosen from the density of MR
+     */
+    public static BitMatrix multiply(BitMatrix a, BitMatrix b) {
+        return multiply(a, b, Parallelism.sequential());
+    }
+
+    public static BitMatrix multiply(BitMatrix a, BitMatrix b, Parallelism parallelism) {
+        return multiply(a, b, choose(a.size(), a.cardinality()), parallelism);
+    }
+
+    public static BitMatrix multiply(BitMatrix a, BitMatrix b, Kernel kernel) {
+        return multiply(a, b, kernel, Parallelism.sequential());
+    }
+
+    public static BitMatrix multiply(BitMatrix a, BitMatrix b, Kernel kernel, Parallelism parallelism) {
+        checkSizes(a, b);
+        BitMatrix c = new BitMatrix(a.size());
+        return tiled(a, b, c, kernel == Kernel.FOUR_RUSSIANS ? BooleanProduct::fourRussians : BooleanProduct::blocked, parallelism);
+    }
+
+    /**
+     * @param a MR
+     * @param b MS
+     * @return MR ⊕ MS, i.e. ∼(∼R | ∼S), with the kernel chosen from the density of −MR
+     */
+    public static BitMatrix sum(BitMatrix a, BitMatrix b) {
+        return sum(a, b, Parallelism.sequential());
+    }
+
+    public static BitMatrix sum(BitMatrix a, BitMatrix b, Parallelism parallelism) {
+        long cells = (long) a.size() * a.size();
+        return sum(a, b, choose(a.size(), cells - a.cardinality()), parallelism);
+    }
+
+    public static BitMatrix sum(BitMatrix a, BitMatrix b, Kernel kernel) {
+        return sum(a, b, kernel, Parallelism.sequential());
+    }
+
+    public static BitMatrix sum(BitMatrix a, BitMatrix b, Kernel kernel, Parallelism parallelism) {
+        checkSizes(a, b);
+        BitMatrix c = BitMatrix.full(a.size());
+        return tiled(a, b, c, kernel == Kernel.FOUR_RUSSIANS ? BooleanProduct::dualFourRussians : BooleanProduct::dualRowwise, parallelism);
+    }
+
+    /**
+     * Computes the cells of MT in rows [rowFrom, rowTo) and words [wordFrom, wordTo) of each row
+     */
+    private interface Tile {
+        void run(BitMatrix a, BitMatrix b, BitMatrix c, int rowFrom, int rowTo, int wordFrom, int wordTo);
+    }
+
+    /**
+     * Rows of MT only depend on the same rows of MR, so the result is cut into tiles of
+     * TILE_ROWS rows by one column block that are filled independently. Sequentially the
+     * whole matrix is one tile, which lets the table kernels share a table across all rows.
+     */
+    private static BitMatrix tiled(BitMatrix a, BitMatrix b, BitMatrix c, Tile tile, Parallelism parallelism) {
+        int n = a.size();
+        int wordsPerRow = a.getWordsPerRow();
+        if (!parallelism.isParallel(n)) {
+            tile.run(a, b, c, 0, n, 0, wordsPerRow);
+            return c;
+        }
+        int columnTiles = (wordsPerRow + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+        int tiles = (n + TILE_ROWS - 1) / TILE_ROWS * columnTiles;
+        parallelism.forEach(n, tiles, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                int rowFrom = t / columnTiles * TILE_ROWS;
+                int wordFrom = t % columnTiles * COLUMN_BLOCK;
+                tile.run(a, b, c, rowFrom, Math.min(n, rowFrom + TILE_ROWS), wordFrom, Math.min(wordsPerRow, wordFrom + COLUMN_BLOCK));
+            }
+        });
+        return c;
+    }
+
+    /**
+     * Folding row by row costs one row operation per set cell, the table method about
+     * (n + 2^8) / 8 row operations per row, so switch over once a row carries more than
+     * that many cells.
+     * @param size n
+     * @param cells number of cells the kernel would have to visit one by one
+     * @return the cheaper kernel
+     */
+    static Kernel choose(int size, long cells) {
+        if (size < 2 * TABLE / GROUP) return Kernel.BLOCKED;
+        return cells * GROUP > (long) size * (size + TABLE) ? Kernel.FOUR_RUSSIANS : Kernel.BLOCKED;
+    }
+
+    private static void checkSizes(BitMatrix a, BitMatrix b) {
+        if (a.size() != b.size()) throw new IllegalArgumentException("matrices have different sizes");
+    }
+
+    private static void blocked(BitMatrix a, BitMatrix b, BitMatrix c, int rowFrom, int rowTo, int wordFrom, int wordTo) {
+        int n = a.size();
+        int wordsPerRow = a.getWordsPerRow();
+        long[] aw = a.getWords();
+        long[] bw = b.getWords();
+        long[] cw = c.getWords();
+        for (int jStart = wordFrom; jStart < wordTo; jStart += COLUMN_BLOCK) {
+            int jEnd = Math.min(wordTo, jStart + COLUMN_BLOCK);
+            for (int kStart = 0; kStart < n; kStart += ROW_BLOCK) {
+                int kWordStart = kStart >>> 6;
+                int kWordEnd = Math.min(wordsPerRow, (kStart + ROW_BLOCK) >>> 6);
+                for (int i = rowFrom; i < rowTo; i++) {
+                    int aRow = i * wordsPerRow;
+                    int cRow = aRow;
+                    for (int kw = kWordStart; kw < kWordEnd; kw++) {
+                        long word = aw[aRow + kw];
+                        while (word != 0) {
+                            int k = (kw << 6) + Long.numberOfTrailingZeros(word);
+                            word &= word - 1;
+                            int bRow = k * wordsPerRow;
+                            for (int j = jStart; j < jEnd; j++) {
+                                cw[cRow + j] |= bw[bRow + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void fourRussians(BitMatrix a, BitMatrix b, BitMatrix c, int rowFrom, int rowTo, int wordFrom, int wordTo) {
+        int n = a.size();
+        int wordsPerRow = a.getWordsPerRow();
+        long[] aw = a.getWords();
+        long[] bw = b.getWords();
+        long[] cw = c.getWords();
+        long[] table = new long[TABLE * Math.min(wordTo - wordFrom, COLUMN_BLOCK)];
+        for (int jStart = wordFrom; jStart < wordTo; jStart += COLUMN_BLOCK) {
+            int width = Math.min(wordTo, jStart + COLUMN_BLOCK) - jStart;
+            for (int k0 = 0; k0 < n; k0 += GROUP) {
+                // table[m] = ∨ of the rows k0 + t of MS for every bit t set in m
+                for (int m = 1; m < TABLE; m++) {
+                    int k = k0 + Integer.numberOfTrailingZeros(m);
+                    int from = (m & (m - 1)) * width;
+                    int to = m * width;
+                    if (k < n) {
+                        int bRow = k * wordsPerRow + jStart;
+                        for (int j = 0; j < width; j++) {
+                            table[to + j] = table[from + j] | bw[bRow + j];
+                        }
+                    } else {
+                        System.arraycopy(table, from, table, to, width);
+                    }
+                }
+                int word = k0 >>> 6;
+                int shift = k0 & 63;
+                for (int i = rowFrom; i < rowTo; i++) {
+                    int m = (int) (aw[i * wordsPerRow + word] >>> shift) & (TABLE - 1);
+                    if (m == 0) continue;
+                    int cRow = i * wordsPerRow + jStart;
+                    int t = m * width;
+                    for (int j = 0; j < width; j++) {
+                        cw[cRow + j] |= table[t + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Row i of MR ⊕ MS is the ∧ of the rows k of MS for which MR[i][k] is clear, so it is
+     * folded from the clear bits of MR directly; a row stops as soon as it becomes empty.
+     */
+    private static void dualRowwise(BitMatrix a, BitMatrix b, BitMatrix c, int rowFrom, int rowTo, int wordFrom, int wordTo) {
+        int wordsPerRow = a.getWordsPerRow();
+        long tailMask = a.getTailMask();
+        long[] aw = a.getWords();
+        long[] bw = b.getWords();
+        long[] cw = c.getWords();
+        for (int i = rowFrom; i < rowTo; i++) {
+            int row = i * wordsPerRow;
+            rows:
+            for (int kw = 0; kw < wordsPerRow; kw++) {
+                long word = ~aw[row + kw];
+                if (kw == wordsPerRow - 1) word &= tailMask;
+                while (word != 0) {
+                    int k = (kw << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    int bRow = k * wordsPerRow;
+                    long any = 0;
+                    for (int j = wordFrom; j < wordTo; j++) {
+                        any |= cw[row + j] &= bw[bRow + j];
+                    }
+                    if (any == 0) break rows;
+                }
+            }
+        }
+    }
+
+    private static void dualFourRussians(BitMatrix a, BitMatrix b, BitMatrix c, int rowFrom, int rowTo, int wordFrom, int wordTo) {
+        int n = a.size();
+        int wordsPerRow = a.getWordsPerRow();
+        long tailMask = a.getTailMask();
+        long[] aw = a.getWords();
+        long[] bw = b.getWords();
+        long[] cw = c.getWords();
+        long[] table = new long[TABLE * Math.min(wordTo - wordFrom, COLUMN_BLOCK)];
+        for (int jStart = wordFrom; jStart < wordTo; jStart += COLUMN_BLOCK) {
+            int width = Math.min(wordTo, jStart + COLUMN_BLOCK) - jStart;
+            // the empty fold is the all-ones row of this column block
+            Arrays.fill(table, 0, width, -1L);
+            if (jStart + width == wordsPerRow) table[width - 1] = tailMask;
+            for (int k0 = 0; k0 < n; k0 += GROUP) {
+                // table[m] = ∧ of the rows k0 + t of MS for every bit t set in m
+                for (int m = 1; m < TABLE; m++) {
+                    int k = k0 + Integer.numberOfTrailingZeros(m);
+                    int from = (m & (m - 1)) * width;
+                    int to = m * width;
+                    if (k < n) {
+                        int bRow = k * wordsPerRow + jStart;
+                        for (int j = 0; j < width; j++) {
+                            table[to + j] = table[from + j] & bw[bRow + j];
+                        }
+                    } else {
+                        System.arraycopy(table, from, table, to, width);
+                    }
+                }
+                int word = k0 >>> 6;
+                int shift = k0 & 63;
+                // only the columns k < n of −MR take part
+                int valid = n - k0 >= GROUP ? TABLE - 1 : (1 << (n - k0)) - 1;
+                for (int i = rowFrom; i < rowTo; i++) {
+                    int m = (int) (~aw[i * wordsPerRow + word] >>> shift) & valid;
+                    if (m == 0) continue;
+                    int cRow = i * wordsPerRow + jStart;
+                    int t = m * width;
+                    for (int j = 0; j < width; j++) {
+                        cw[cRow + j] &= table[t + j];
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package matrix;
+
+/**
+ * Transitive closures of bit matrices by Warshall's algorithm with whole-row updates: after
+ * round k every row that reaches k has absorbed row k, so each round is one word-parallel OR
+ * per affected row and the closure costs O(n³ / 64) word operations.
+ */
+public final class Closure {
+
+    private Closure() {
+    }
+
+    /**
+     * @param matrix MR
+     * @return matrix of R⁺
+     */
+    public static BitMatrix transitive(BitMatrix matrix) {
+        BitMatrix closure = matrix.copy();
+        int n = closure.size();
+        int wordsPerRow = closure.getWordsPerRow();
+        long[] words = closure.getWords();
+        for (int k = 0; k < n; k++) {
+            int kRow = k * wordsPerRow;
+            int kWord = k >>> 6;
+            long kBit = 1L << k;
+            boolean empty = true;
+            for (int j = 0; j < wordsPerRow && empty; j++) {
+                empty = words[kRow + j] == 0;
+            }
+            if (empty) continue;
+            for (int i = 0; i < n; i++) {
+                int iRow = i * wordsPerRow;
+                if ((words[iRow + kWord] & kBit) == 0) continue;
+                for (int j = 0; j < wordsPerRow; j++) {
+                    words[iRow + j] |= words[kRow + j];
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * @param matrix MR
+     * @return matrix of R* = idU ∪ R⁺
+     */
+    public static BitMatrix reflexiveTransitive(BitMatrix matrix) {
+        BitMatrix closure = transitive(matrix);
+        for (int i = 0; i < closure.size(); i++) {
+            closure.set(i, i);
+        }
+        return closure;
+    }
+
+}
@@ -1,11 +1,17 @@
 package matrix;
 
+import universe.Universe;
+
 import java.util.ArrayList;
 import java.util.Collection;
 
 public class MList<T> extends ArrayList<T> {
 
-    private MRelation<T> identity = null;
+    // built on first use under the lock of the list; volatile so the unlocked first check
+    // never sees a relation that is still being constructed
+    private volatile MRelation<T> identity = null;
+    private volatile MRelation<T> universal = null;
+    private volatile Universe<T> universe = null;
 
     public MList(int initialCapacity) {
         super(initialCapacity);
@@ -19,54 +25,70 @@ public class MList<T> extends ArrayList<T> {
         super(c);
     }
 
+    /**
+     * @param universe U, whose ids become the row and column indices of relations over this list
+     */
+    public MList(Universe<T> universe) {
+        super(universe.getElements());
+        this.universe = universe;
+    }
+
+    /**
+     * Interned form of this list used by the relations over it; built on first use, so the
+     * list must not be modified once a relation has been built over it
+     * @return U
+     */
+    public Universe<T> getUniverse() {
+        Universe<T> universe = this.universe;
+        if (universe != null) return universe;
+        synchronized (this) {
+            if (this.universe == null) this.universe = new Universe<>(this);
+            return this.universe;
+        }
+    }
+
     /**
      * idU = {(α, β) : α, β ∈ U and α = β}
      * @return idU
      */
     public MRelation<T> identityRelation() {
-        if (identity == null) {
-            boolean[][] identityPairs = new boolean[size()][size()];
-            for (int i = 0; i < size(); i++) {
-                identityPairs[i][i] = true;
-            }
-            identity = new MRelation<>(this, identityPairs);
+        MRelation<T> identity = this.identity;
+        if (identity != null) return identity;
+        synchronized (this) {
+            if (this.identity == null) this.identity = new MRelation<>(this, BitMatrix.identity(size()));
+            return this.identity;
         }
-        return identity;
     }
 
     /**
      * @return ∅
      */
     public MRelation<T> emptyRelation() {
-        return new MRelation<>(this, new boolean[size()][size()]);
+        return new MRelation<>(this, new BitMatrix(size()));
     }
 
     /**
      * U × U = {(α, β) : α, β ∈ U}
+     * U × U = ∼∅
+     * Built once, as the complement of an empty matrix, and shared by every call
      * @return U × U
      */
     public MRelation<T> universalRelation() {
-        boolean[][] allPairs = new boolean[size()][size()];
-        for (int i = 0; i < size(); i++) {
-            for (int j = 0; j < size(); j++) {
-                allPairs[i][j] = true;
-            }
+        MRelation<T> universal = this.universal;
+        if (universal != null) return universal;
+        synchronized (this) {
+            if (this.universal == null) this.universal = emptyRelation().complement();
+            return this.universal;
         }
-        return new MRelation<>(this, allPairs);
     }
 
     /**
      * diU = {(α, β) : α, β ∈ U and α ≠ β}
+     * diU = ∼idU
      * @return diU
      */
     public MRelation<T> diversityRelation() {
-        boolean[][] diversityPairs = new boolean[size()][size()];
-        for (int i = 0; i < size(); i++) {
-            for (int j = 0; j < size(); j++) {
-                if (i != j) diversityPairs[i][j] = true;
-            }
-        }
-        return new MRelation<>(this, diversityPairs);
+        return identityRelation().complement();
     }
 
 }
@@ -1,71 +1,209 @@
 package matrix;
 
-import traditional.Pair;
+import metrics.Backend;
+import metrics.Metrics;
+import metrics.Operation;
 import traditional.Relation;
+import universe.PairCoverage;
+import universe.RelationProperty;
+import universe.Universe;
 
 import java.util.*;
 
 public class MRelation<T> {
 
     private final MList<T> universalSet;
-    private final boolean[][] matrix;
-    private int size;
+    private final Universe<T> universe;
+    private final BitMatrix matrix;
+    // when set the relation is ∼matrix, so complement only flips this flag
+    private final boolean negated;
+    private final int size;
+    private final Parallelism parallelism;
 
     public MRelation(Relation<T> relation) {
-        MList<T> universalSet = new MList<>(relation.getUniversalSet().getElements());
-        this.universalSet = universalSet;
-        this.size = universalSet.size();
-        MList<Pair<T>> pairs = new MList<>(relation.getPairs().getElements());
-        matrix = new boolean[universalSet.size()][universalSet.size()];
-        pairs.forEach(pair -> matrix[universalSet.indexOf(pair.getFirst())][universalSet.indexOf(pair.getSecond())]  = true);
+        // both relations share the universe, so ids are already matrix indices
+        this.universe = relation.getUniverse();
+        this.universalSet = new MList<>(universe);
+        this.size = universe.size();
+        this.negated = false;
+        this.parallelism = Parallelism.sequential();
+        matrix = new BitMatrix(size);
+        relation.forEachPair(matrix::set);
     }
 
     public MRelation(Collection<T> universalSet, boolean[][] matrix) {
         this.universalSet = new MList<>(universalSet);
-        this.matrix = matrix;
+        this.universe = this.universalSet.getUniverse();
+        this.size = this.universalSet.size();
+        this.negated = false;
+        this.parallelism = Parallelism.sequential();
+        this.matrix = BitMatrix.fromBooleans(matrix);
     }
 
     public MRelation(T[] universalSet, boolean[][] matrix) {
         this.universalSet = new MList<>(Arrays.asList(universalSet));
+        this.universe = this.universalSet.getUniverse();
+        this.size = this.universalSet.size();
+        this.negated = false;
+        this.parallelism = Parallelism.sequential();
+        this.matrix = BitMatrix.fromBooleans(matrix);
+    }
+
+    /**
+     * Wraps an existing bit matrix without copying either argument
+     * @param universalSet U, shared with the new relation
+     * @param matrix MR, shared with the new relation
+     */
+    public MRelation(MList<T> universalSet, BitMatrix matrix) {
+        this(universalSet, matrix, false);
+    }
+
+    MRelation(MList<T> universalSet, BitMatrix matrix, boolean negated) {
+        this(universalSet, matrix, negated, Parallelism.sequential());
+    }
+
+    private MRelation(MList<T> universalSet, BitMatrix matrix, boolean negated, Parallelism parallelism) {
+        if (matrix.size() != universalSet.size()) throw new IllegalArgumentException("matrix does not match the universal set");
+        this.universalSet = universalSet;
+        this.universe = universalSet.getUniverse();
+        this.size = universalSet.size();
         this.matrix = matrix;
+        this.negated = negated;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return a relation over the universal set of self running under the same parallelism
+     */
+    private MRelation<T> derived(BitMatrix matrix, boolean negated) {
+        return new MRelation<>(universalSet, matrix, negated, parallelism);
     }
 
     public List<T> getUniversalSet() {
         return universalSet;
     }
 
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    /**
+     * Compatibility view of the packed matrix; writes to the returned array are not
+     * reflected in the relation
+     * @return a copy of MR as one boolean per pair
+     */
     public boolean[][] getMatrix() {
+        return getBits().toBooleans();
+    }
+
+    /**
+     * The packed matrix, shared when self is stored as is and materialised when self is a
+     * pending complement
+     * @return MR
+     */
+    public BitMatrix getBits() {
+        return negated ? matrix.not(parallelism) : matrix;
+    }
+
+    /**
+     * @return whether self is kept as the complement of its stored matrix
+     */
+    public boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * @return number of pairs in self
+     */
+    public long size() {
+        long cardinality = matrix.cardinality();
+        return negated ? (long) size * size - cardinality : cardinality;
+    }
+
+    /**
+     * @return the matrix as stored, i.e. the matrix of ∼self when self is negated
+     */
+    BitMatrix storedBits() {
         return matrix;
     }
 
+    /**
+     * @return a relation over the universal set of self with the given matrix
+     */
+    MRelation<T> withMatrix(BitMatrix matrix) {
+        return derived(matrix, false);
+    }
+
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Shares the matrix; operations on the returned relation, and on every relation derived
+     * from it, run under the given parallelism
+     * @return self, evaluated under parallelism
+     */
+    public MRelation<T> withParallelism(Parallelism parallelism) {
+        return new MRelation<>(universalSet, matrix, negated, parallelism);
+    }
+
+    /**
+     * Reports the operation to the metrics listeners if the probe was started
+     * @param otherRelation S, or null for unary operators
+     * @return the result, unchanged
+     */
+    private MRelation<T> measured(Metrics.Probe probe, MRelation<T> otherRelation, MRelation<T> result) {
+        if (probe != null) probe.stop().record(Backend.MATRIX, size, size(), otherRelation == null ? -1 : otherRelation.size(), result.size());
+        return result;
+    }
+
+    private boolean measured(Metrics.Probe probe, MRelation<T> otherRelation, boolean result) {
+        if (probe != null) probe.stop().record(Backend.MATRIX, size, size(), otherRelation.size(), -1);
+        return result;
+    }
+
+    /**
+     * (α, β) ∈ R
+     * @return whether the pair is in self
+     */
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        return i >= 0 && j >= 0 && matrix.get(i, j) != negated;
+    }
+
     /**
      * T = R ∪ S if and only if MT = MR + MS
      * @param otherRelation S
      * @return self ∪ S
      */
     public MRelation<T> union(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newMatrix[i][j] = matrix[i][j] || otherRelation.matrix[i][j];
-            }
-        }
-        return new MRelation<>(universalSet, newMatrix);
+        Metrics.Probe probe = Metrics.start(Operation.UNION);
+        return measured(probe, otherRelation, unionOf(otherRelation));
+    }
+
+    private MRelation<T> unionOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        BitMatrix other = otherRelation.matrix;
+        if (!negated && !otherRelation.negated) return derived(matrix.or(other, parallelism), false);
+        // ∼A ∪ S = ∼(A ∼ S), R ∪ ∼B = ∼(B ∼ R) and ∼A ∪ ∼B = ∼(A ∩ B)
+        if (!otherRelation.negated) return derived(matrix.andNot(other, parallelism), true);
+        if (!negated) return derived(other.andNot(matrix, parallelism), true);
+        return derived(matrix.and(other, parallelism), true);
     }
 
     /**
      * T = ∼R if and only if MT = −MR
+     * Costs O(1): the matrix is shared and only the negation flag flips
      * @return ∼self
      */
     public MRelation<T> complement() {
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newMatrix[i][j] = !matrix[i][j];
-            }
-        }
-        return new MRelation<>(universalSet, newMatrix);
+        Metrics.Probe probe = Metrics.start(Operation.COMPLEMENT);
+        return measured(probe, null, complementOf());
+    }
+
+    private MRelation<T> complementOf() {
+        return derived(matrix, !negated);
     }
 
     /**
@@ -74,29 +212,36 @@ public class MRelation<T> {
      * @return self ∩ S
      */
     public MRelation<T> intersection(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newMatrix[i][j] = matrix[i][j] && otherRelation.matrix[i][j];
-            }
-        }
-        return new MRelation<>(universalSet, newMatrix);
+        Metrics.Probe probe = Metrics.start(Operation.INTERSECTION);
+        return measured(probe, otherRelation, intersectionOf(otherRelation));
+    }
+
+    private MRelation<T> intersectionOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return intersection(otherRelation.matrix, otherRelation.negated);
+    }
+
+    private MRelation<T> intersection(BitMatrix other, boolean otherNegated) {
+        if (!negated && !otherNegated) return derived(matrix.and(other, parallelism), false);
+        // R ∩ ∼B and ∼A ∩ S are single and-not passes, ∼A ∩ ∼B = ∼(A ∪ B)
+        if (otherNegated && !negated) return derived(matrix.andNot(other, parallelism), false);
+        if (!otherNegated) return derived(other.andNot(matrix, parallelism), false);
+        return derived(matrix.or(other, parallelism), true);
     }
 
     /**
+     * T = R ∼ S if and only if MT = MR · −MS
      * @param otherRelation S
      * @return self ∼ S
      */
     public MRelation<T> difference(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newMatrix[i][j] = matrix[i][j] && !otherRelation.matrix[i][j];
-            }
-        }
-        return new MRelation<>(universalSet, newMatrix);
+        Metrics.Probe probe = Metrics.start(Operation.DIFFERENCE);
+        return measured(probe, otherRelation, differenceOf(otherRelation));
+    }
+
+    private MRelation<T> differenceOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return intersection(otherRelation.matrix, !otherRelation.negated);
     }
 
     /**
@@ -104,14 +249,14 @@ public class MRelation<T> {
      * @return self Δ S
      */
     public MRelation<T> symmetricDifference(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newMatrix[i][j] = (matrix[i][j] && !otherRelation.matrix[i][j]) || (!matrix[i][j] && otherRelation.matrix[i][j]);
-            }
-        }
-        return new MRelation<>(universalSet, newMatrix);
+        Metrics.Probe probe = Metrics.start(Operation.SYMMETRIC_DIFFERENCE);
+        return measured(probe, otherRelation, symmetricDifferenceOf(otherRelation));
+    }
+
+    private MRelation<T> symmetricDifferenceOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        // ∼A Δ S = ∼(A Δ S) and ∼A Δ ∼B = A Δ B
+        return derived(matrix.xor(otherRelation.matrix, parallelism), negated != otherRelation.negated);
     }
 
     /**
@@ -120,16 +265,17 @@ public class MRelation<T> {
      * @return self | S
      */
     public MRelation<T> composition(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                for (int k = 0; k < size; k++) {
-                    newMatrix[i][j] = matrix[i][j] || (matrix[i][k] && otherRelation.matrix[k][j]);
-                }
-            }
+        Metrics.Probe probe = Metrics.start(Operation.COMPOSITION);
+        return measured(probe, otherRelation, compositionOf(otherRelation));
+    }
+
+    private MRelation<T> compositionOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        // ∼A | ∼B = ∼(A † B); a single pending complement is cheap next to the product
+        if (negated && otherRelation.negated) {
+            return derived(BooleanProduct.sum(matrix, otherRelation.matrix, parallelism), true);
         }
-        return new MRelation<>(universalSet, newMatrix);
+        return derived(BooleanProduct.multiply(getBits(), otherRelation.getBits(), parallelism), false);
     }
 
     /**
@@ -138,16 +284,65 @@ public class MRelation<T> {
      * @return self † S
      */
     public MRelation<T> sum(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                for (int k = 0; k < size; k++) {
-                    newMatrix[i][j] = matrix[i][j] && (matrix[i][k] || otherRelation.matrix[k][j]);
-                }
-            }
+        Metrics.Probe probe = Metrics.start(Operation.SUM);
+        return measured(probe, otherRelation, sumOf(otherRelation));
+    }
+
+    private MRelation<T> sumOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        // ∼A † ∼B = ∼(A | B)
+        if (negated && otherRelation.negated) {
+            return derived(BooleanProduct.multiply(matrix, otherRelation.matrix, parallelism), true);
         }
-        return new MRelation<>(universalSet, newMatrix);
+        return derived(BooleanProduct.sum(getBits(), otherRelation.getBits(), parallelism), false);
+    }
+
+    /**
+     * R\S = ∼(R⁻¹ | ∼S), the largest X with R | X ⊆ S
+     * (α, β) ∈ R\S iff column α of MR ⊆ column β of MS
+     * @param otherRelation S
+     * @return self\S
+     */
+    public MRelation<T> leftResidual(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.LEFT_RESIDUAL);
+        return measured(probe, otherRelation, leftResidualOf(otherRelation));
+    }
+
+    private MRelation<T> leftResidualOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return derived(Residual.left(matrix, negated, otherRelation.matrix, otherRelation.negated, parallelism), false);
+    }
+
+    /**
+     * S/R = ∼(∼S | R⁻¹), the largest X with X | R ⊆ S
+     * (α, β) ∈ S/R iff row β of MR ⊆ row α of MS
+     * @param otherRelation R
+     * @return self/R
+     */
+    public MRelation<T> rightResidual(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.RIGHT_RESIDUAL);
+        return measured(probe, otherRelation, rightResidualOf(otherRelation));
+    }
+
+    private MRelation<T> rightResidualOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return derived(Residual.right(matrix, negated, otherRelation.matrix, otherRelation.negated, parallelism), false);
+    }
+
+    /**
+     * syq(R, S) = R\S ∩ R⁻¹/S⁻¹
+     * (α, β) ∈ syq(R, S) iff column α of MR = column β of MS
+     * @param otherRelation S
+     * @return syq(self, S)
+     */
+    public MRelation<T> symmetricQuotient(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.SYMMETRIC_QUOTIENT);
+        return measured(probe, otherRelation, symmetricQuotientOf(otherRelation));
+    }
+
+    private MRelation<T> symmetricQuotientOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return derived(Residual.symmetricQuotient(matrix, negated, otherRelation.matrix, otherRelation.negated, parallelism), false);
     }
 
     /**
@@ -155,29 +350,59 @@ public class MRelation<T> {
      * @return self⁻¹
      */
     public MRelation<T> converse() {
-        boolean[][] newMatrix = new boolean[size][size];
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newMatrix[i][j] = matrix[j][i];
-            }
-        }
-        return new MRelation<>(universalSet, newMatrix);
+        Metrics.Probe probe = Metrics.start(Operation.CONVERSE);
+        return measured(probe, null, converseOf());
+    }
+
+    private MRelation<T> converseOf() {
+        return derived(matrix.transpose(parallelism), negated);
     }
 
 
+    /**
+     * R⁺ = R ∪ (R | R) ∪ (R | R | R) ∪ ...
+     * @return the smallest transitive relation containing self
+     */
+    public MRelation<T> transitiveClosure() {
+        Metrics.Probe probe = Metrics.start(Operation.TRANSITIVE_CLOSURE);
+        return measured(probe, null, transitiveClosureOf());
+    }
+
+    private MRelation<T> transitiveClosureOf() {
+        return derived(Closure.transitive(getBits()), false);
+    }
+
+    /**
+     * R* = idU ∪ R⁺
+     * @return the smallest reflexive and transitive relation containing self
+     */
+    public MRelation<T> reflexiveTransitiveClosure() {
+        Metrics.Probe probe = Metrics.start(Operation.REFLEXIVE_TRANSITIVE_CLOSURE);
+        return measured(probe, null, reflexiveTransitiveClosureOf());
+    }
+
+    private MRelation<T> reflexiveTransitiveClosureOf() {
+        return derived(Closure.reflexiveTransitive(getBits()), false);
+    }
+
     /**
      * R ⊆ S
      * @param otherRelation S
      * @return self ⊆ S
      */
     public boolean isSubsetOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (matrix[i][j] && !otherRelation.matrix[i][j]) return false;
-            }
-        }
-        return true;
+        Metrics.Probe probe = Metrics.start(Operation.SUBSET);
+        return measured(probe, otherRelation, subsetOf(otherRelation));
+    }
+
+    private boolean subsetOf(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        BitMatrix other = otherRelation.matrix;
+        if (!negated && !otherRelation.negated) return matrix.isSubsetOf(other, parallelism);
+        if (negated && otherRelation.negated) return other.isSubsetOf(matrix, parallelism);
+        // R ⊆ ∼B iff R and B are disjoint, ∼A ⊆ S iff A ∪ S = U × U
+        if (!negated) return matrix.isDisjointFrom(other, parallelism);
+        return matrix.coversWith(other, parallelism);
     }
 
 
@@ -187,13 +412,14 @@ public class MRelation<T> {
      * @return self = S
      */
     public boolean isEqual(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (matrix[i][j] != otherRelation.matrix[i][j]) return false;
-            }
-        }
-        return true;
+        Metrics.Probe probe = Metrics.start(Operation.EQUALITY);
+        return measured(probe, otherRelation, equalTo(otherRelation));
+    }
+
+    private boolean equalTo(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        if (negated == otherRelation.negated) return matrix.isEqualTo(otherRelation.matrix, parallelism);
+        return matrix.isComplementOf(otherRelation.matrix, parallelism);
     }
 
     /**
@@ -202,7 +428,7 @@ public class MRelation<T> {
      */
     public boolean isReflexive() {
         for (int i = 0; i < size; i++) {
-            if (!matrix[i][i]) return false;
+            if (matrix.get(i, i) == negated) return false;
         }
         return true;
     }
@@ -213,12 +439,7 @@ public class MRelation<T> {
      * @return self⁻¹ ⊆ self
      */
     public boolean isSymmetric() {
-        try {
-            return converse().isSubsetOf(this);
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.SYMMETRIC);
     }
 
     /**
@@ -227,19 +448,14 @@ public class MRelation<T> {
      * @return self | self ⊆ self
      */
     public boolean isTransitive() {
-        try {
-            return composition(this).isSubsetOf(this);
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.TRANSITIVE);
     }
 
     /**
      * @return whether it is an equivalence relation
      */
     public boolean isEquivalence() {
-        return isReflexive() && isSymmetric() && isTransitive();
+        return new RelationProperties().test(this, RelationProperty.EQUIVALENCE);
     }
 
     /**
@@ -248,12 +464,7 @@ public class MRelation<T> {
      * @return self ∩ self⁻¹ ⊆ idU
      */
     public boolean isAntiSymmetric() {
-        try {
-            return intersection(converse()).isSubsetOf(universalSet.identityRelation());
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.ANTISYMMETRIC);
     }
 
 
@@ -261,7 +472,7 @@ public class MRelation<T> {
      * @return whether it is a partial order
      */
     public boolean isPartialOrder() {
-        return isReflexive() && isAntiSymmetric() && isTransitive();
+        return new RelationProperties().test(this, RelationProperty.PARTIAL_ORDER);
     }
 
     /**
@@ -269,16 +480,20 @@ public class MRelation<T> {
      * @return whether it is a function
      */
     public boolean isFunction() {
-        for (int i = 0; i < size; i++) {
-            boolean found = false;
-            for (int j = 0; j < size; j++) {
-                if (matrix[i][j]) {
-                    if (found) return false;
-                    found = true;
+        long[] words = matrix.getWords();
+        int wordsPerRow = matrix.getWordsPerRow();
+        return parallelism.allMatch(size, size, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = matrix.rowOffset(i);
+                int count = 0;
+                for (int w = offset; w < offset + wordsPerRow; w++) {
+                    count += Long.bitCount(words[w]);
                 }
+                // a row of ∼A has n minus the cells of the stored row
+                if ((negated ? size - count : count) > 1) return false;
             }
-        }
-        return true;
+            return true;
+        });
     }
 
     /**
@@ -286,16 +501,7 @@ public class MRelation<T> {
      * @return whether it is one-to-one
      */
     public boolean isOneToOne() {
-        for (int j = 0; j < size; j++) {
-            boolean found = false;
-            for (int i = 0; i < size; i++) {
-                if (matrix[i][j]) {
-                    if (found) return false;
-                    found = true;
-                }
-            }
-        }
-        return true;
+        return new RelationProperties().test(this, RelationProperty.ONE_TO_ONE);
     }
 
     /**
@@ -305,10 +511,11 @@ public class MRelation<T> {
      */
     public MList<T> getDomain() {
         // todo see other relation domain todo
+        BitMatrix matrix = getBits();
         MList<T> domain = new MList<>();
         for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (matrix[i][j]) domain.add(universalSet.get(i));
+            for (int j = matrix.nextSetBit(i, 0); j >= 0; j = matrix.nextSetBit(i, j + 1)) {
+                domain.add(universalSet.get(i));
             }
         }
         return domain;
@@ -321,10 +528,11 @@ public class MRelation<T> {
      */
     public MList<T> getRange() {
         // todo see domain todo
+        BitMatrix matrix = getBits();
         MList<T> range = new MList<>();
         for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (matrix[i][j]) range.add(universalSet.get(j));
+            for (int j = matrix.nextSetBit(i, 0); j >= 0; j = matrix.nextSetBit(i, j + 1)) {
+                range.add(universalSet.get(j));
             }
         }
         return range;
@@ -335,12 +543,26 @@ public class MRelation<T> {
      * is always an element γ in U such that (γ,α) ∈ R and (γ,β) ∈ S
      * ∼[(R⁻¹ | R) ∪ (S⁻¹ | S)] ∪ idU ] ∩ (R⁻¹ | S) = U × U
      * ∼[(R⁻¹ | R) ∪ (S⁻¹ | S)] ∪ idU = U × U and R⁻¹ | S = U × U
+     * Once both are functions, R⁻¹ | S = U × U is a coverage check on their images
      * @param otherRelation S
      * @return whether self and S are conjugated quasi-projections on U
      */
     public boolean conjugatedQuasiProjection(MRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return isFunction() && otherRelation.isFunction() && converse().composition(otherRelation).isEqual(universalSet.universalRelation());
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return isFunction() && otherRelation.isFunction() && PairCoverage.coversAll(images(), otherRelation.images(), size);
+    }
+
+    /**
+     * Only meaningful when self is a function
+     * @return the id of the image of every element, or -1 where it has none
+     */
+    private int[] images() {
+        BitMatrix matrix = getBits();
+        int[] images = new int[size];
+        for (int i = 0; i < size; i++) {
+            images[i] = matrix.nextSetBit(i, 0);
+        }
+        return images;
     }
 
 }
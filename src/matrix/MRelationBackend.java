@@ -0,0 +1,79 @@
+package matrix;
+
+import expression.Backend;
+import expression.Fusion;
+
+import java.util.List;
+
+/**
+ * Evaluates relation-algebra expressions over MRelation. A fused region is computed in one
+ * sweep over the packed words, applying the whole formula to 64 pairs at a time, in row
+ * blocks under the parallelism of the first input.
+ */
+public class MRelationBackend<T> implements Backend<MRelation<T>> {
+
+    @Override
+    public boolean isCompatible(MRelation<T> relation, MRelation<T> otherRelation) {
+        return relation.getUniverse().hasSameOrder(otherRelation.getUniverse());
+    }
+
+    @Override
+    public MRelation<T> uncomplemented(MRelation<T> relation) {
+        return relation.isNegated() ? relation.complement() : null;
+    }
+
+    @Override
+    public MRelation<T> complement(MRelation<T> relation) {
+        return relation.complement();
+    }
+
+    @Override
+    public MRelation<T> converse(MRelation<T> relation) {
+        return relation.converse();
+    }
+
+    @Override
+    public MRelation<T> composition(MRelation<T> relation, MRelation<T> otherRelation) {
+        try {
+            return relation.composition(otherRelation);
+        } catch (UnmatchedUniversalSetsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public MRelation<T> sum(MRelation<T> relation, MRelation<T> otherRelation) {
+        try {
+            return relation.sum(otherRelation);
+        } catch (UnmatchedUniversalSetsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public MRelation<T> fuse(Fusion<MRelation<T>> fusion) {
+        List<MRelation<T>> inputs = fusion.getInputs();
+        long[][] inputWords = new long[inputs.size()][];
+        for (int i = 0; i < inputWords.length; i++) {
+            inputWords[i] = inputs.get(i).getBits().getWords();
+        }
+        MRelation<T> base = inputs.get(0);
+        BitMatrix fused = new BitMatrix(base.getUniverse().size());
+        long[] words = fused.getWords();
+        int wordsPerRow = fused.getWordsPerRow();
+        long tailMask = fused.getTailMask();
+        base.getParallelism().forEach(fused.size(), fused.size(), Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            long[] column = new long[inputWords.length];
+            long[] stack = new long[fusion.getDepth()];
+            for (int w = from * wordsPerRow; w < to * wordsPerRow; w++) {
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = inputWords[i][w];
+                }
+                long word = fusion.evaluate(column, stack);
+                words[w] = (w % wordsPerRow == wordsPerRow - 1) ? word & tailMask : word;
+            }
+        });
+        return base.withMatrix(fused);
+    }
+
+}
@@ -0,0 +1,241 @@
+package matrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Square Boolean matrix in a memory-mapped file, laid out like BitMatrix: row i is the
+ * wordsPerRow longs starting at word i * wordsPerRow, little-endian, with the bits past
+ * the last column kept clear. A single mapping is limited to 2 GiB, so the file is mapped as
+ * a sequence of chunks of whole rows. Nothing is held on the heap but the chunk handles; the
+ * OS page cache decides which rows are resident.
+ * Mappings are only released once the buffers are garbage collected (Java 17 has no
+ * explicit unmap), but close() drops every reference to them.
+ */
+public final class MappedBitMatrix implements Closeable {
+
+    // bytes per mapped chunk, rounded down to whole rows
+    private static final long CHUNK = 1L << 30;
+    // words per streaming block, 512 KiB
+    private static final int BLOCK = 1 << 16;
+
+    private final Path file;
+    private final int size;
+    private final int wordsPerRow;
+    private final long tailMask;
+    private final int rowsPerChunk;
+    private final boolean writable;
+    private FileChannel channel;
+    private MappedByteBuffer[] mappings;
+    private LongBuffer[] chunks;
+
+    private MappedBitMatrix(Path file, FileChannel channel, long offset, int size, boolean writable) throws IOException {
+        this.file = file;
+        this.size = size;
+        this.wordsPerRow = BitMatrix.wordsPerRow(size);
+        this.tailMask = BitMatrix.tailMask(size);
+        this.writable = writable;
+        this.channel = channel;
+        long rowBytes = 8L * wordsPerRow;
+        this.rowsPerChunk = (int) Math.max(1, Math.min(size, CHUNK / Math.max(1, rowBytes)));
+        int count = size == 0 ? 0 : (size + rowsPerChunk - 1) / rowsPerChunk;
+        mappings = new MappedByteBuffer[count];
+        chunks = new LongBuffer[count];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int c = 0; c < count; c++) {
+            int rows = Math.min(rowsPerChunk, size - c * rowsPerChunk);
+            mappings[c] = channel.map(mode, offset + c * rowsPerChunk * rowBytes, rows * rowBytes);
+            chunks[c] = mappings[c].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+    }
+
+    /**
+     * Creates or truncates the file and maps an empty matrix over it
+     * @param file backing file
+     * @param size number of elements in U
+     * @return ∅ as a file-backed matrix
+     */
+    public static MappedBitMatrix create(Path file, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedBitMatrix(file, channel, 0, size, true);
+    }
+
+    /**
+     * Maps a matrix written earlier, e.g. by create()
+     * @param file backing file
+     * @param size number of elements in U
+     * @param writable whether the matrix may be changed
+     */
+    public static MappedBitMatrix open(Path file, int size, boolean writable) throws IOException {
+        return open(file, 0, size, writable);
+    }
+
+    /**
+     * Maps a matrix stored at some offset of a larger file, without copying it
+     * @param offset byte position of row 0 in the file
+     */
+    public static MappedBitMatrix open(Path file, long offset, int size, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        long bytes = 8L * size * BitMatrix.wordsPerRow(size);
+        if (channel.size() < offset + bytes) {
+            channel.close();
+            throw new IOException(file + " is too short for a " + size + " × " + size + " matrix");
+        }
+        return new MappedBitMatrix(file, channel, offset, size, writable);
+    }
+
+    /**
+     * @param matrix MR on the heap
+     * @param file backing file, created or truncated
+     * @return a file-backed copy of MR
+     */
+    public static MappedBitMatrix copyOf(BitMatrix matrix, Path file) throws IOException {
+        MappedBitMatrix mapped = create(file, matrix.size());
+        int rows = mapped.blockRows();
+        long[] block = new long[rows * mapped.wordsPerRow];
+        for (int from = 0; from < matrix.size(); from += rows) {
+            int to = Math.min(matrix.size(), from + rows);
+            System.arraycopy(matrix.getWords(), matrix.rowOffset(from), block, 0, (to - from) * mapped.wordsPerRow);
+            mapped.writeRows(from, to, block);
+        }
+        return mapped;
+    }
+
+    /**
+     * @return the matrix on the heap, as long as it fits in one array
+     */
+    public BitMatrix toBitMatrix() {
+        BitMatrix matrix = new BitMatrix(size);
+        readRows(0, size, matrix.getWords());
+        return matrix;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    public long getTailMask() {
+        return tailMask;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * @return rows per streaming block, so that a block of words fits comfortably on the heap
+     */
+    public int blockRows() {
+        return Math.max(1, Math.min(size, BLOCK / Math.max(1, wordsPerRow)));
+    }
+
+    private LongBuffer chunk(int row) {
+        if (chunks == null) throw new IllegalStateException(file + " is closed");
+        return chunks[row / rowsPerChunk];
+    }
+
+    private int index(int row, int word) {
+        return (row % rowsPerChunk) * wordsPerRow + word;
+    }
+
+    public long getWord(int row, int word) {
+        return chunk(row).get(index(row, word));
+    }
+
+    public void setWord(int row, int word, long value) {
+        chunk(row).put(index(row, word), value);
+    }
+
+    public boolean get(int row, int column) {
+        return (getWord(row, column >>> 6) & (1L << column)) != 0;
+    }
+
+    public void set(int row, int column) {
+        setWord(row, column >>> 6, getWord(row, column >>> 6) | (1L << column));
+    }
+
+    public void clear(int row, int column) {
+        setWord(row, column >>> 6, getWord(row, column >>> 6) & ~(1L << column));
+    }
+
+    /**
+     * Copies rows [from, to) into words, row after row
+     */
+    public void readRows(int from, int to, long[] words) {
+        readRows(from, to, words, 0);
+    }
+
+    public void readRows(int from, int to, long[] words, int offset) {
+        for (int row = from; row < to; ) {
+            int end = Math.min(to, (row / rowsPerChunk + 1) * rowsPerChunk);
+            chunk(row).get(index(row, 0), words, offset, (end - row) * wordsPerRow);
+            offset += (end - row) * wordsPerRow;
+            row = end;
+        }
+    }
+
+    /**
+     * Overwrites rows [from, to) with words, row after row
+     */
+    public void writeRows(int from, int to, long[] words) {
+        int offset = 0;
+        for (int row = from; row < to; ) {
+            int end = Math.min(to, (row / rowsPerChunk + 1) * rowsPerChunk);
+            chunk(row).put(index(row, 0), words, offset, (end - row) * wordsPerRow);
+            offset += (end - row) * wordsPerRow;
+            row = end;
+        }
+    }
+
+    public long cardinality() {
+        long count = 0;
+        int rows = blockRows();
+        long[] block = new long[rows * wordsPerRow];
+        for (int from = 0; from < size; from += rows) {
+            int to = Math.min(size, from + rows);
+            readRows(from, to, block);
+            for (int w = 0; w < (to - from) * wordsPerRow; w++) {
+                count += Long.bitCount(block[w]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes changed rows back to the file
+     */
+    public void force() {
+        if (!writable || mappings == null) return;
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        force();
+        mappings = null;
+        chunks = null;
+        channel.close();
+        channel = null;
+    }
+
+}
@@ -0,0 +1,404 @@
+package matrix;
+
+import universe.Universe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MRelation whose matrix lives in a memory-mapped file rather than on the heap, for
+ * universes whose matrix would not fit there. Operators stream over the operands one block of
+ * rows at a time and write the result to a new file next to the file of self; those files
+ * are temporary and deleted when the result is closed, unless it is copied elsewhere first.
+ * Like MRelation, complement only flips a flag.
+ */
+public class MappedMRelation<T> implements Closeable {
+
+    private static final int OR = 0;
+    private static final int AND = 1;
+    private static final int AND_NOT = 2;
+    private static final int XOR = 3;
+    // words of self held per block of a product, 32 MiB, so that each row of S read from the
+    // file is folded into many rows at once
+    private static final int PRODUCT_BLOCK = 1 << 22;
+
+    private final MList<T> universalSet;
+    private final Universe<T> universe;
+    private final MappedBitMatrix matrix;
+    // when set the relation is ∼matrix
+    private final boolean negated;
+    // whether the file was made for an intermediate result and goes away on close
+    private final boolean temporary;
+    private final int size;
+
+    /**
+     * Wraps a file-backed matrix without copying it
+     * @param universalSet U
+     * @param matrix MR
+     */
+    public MappedMRelation(MList<T> universalSet, MappedBitMatrix matrix) {
+        this(universalSet, matrix, false, false);
+    }
+
+    private MappedMRelation(MList<T> universalSet, MappedBitMatrix matrix, boolean negated, boolean temporary) {
+        if (matrix.size() != universalSet.size()) throw new IllegalArgumentException("matrix does not match the universal set");
+        this.universalSet = universalSet;
+        this.universe = universalSet.getUniverse();
+        this.size = universalSet.size();
+        this.matrix = matrix;
+        this.negated = negated;
+        this.temporary = temporary;
+    }
+
+    /**
+     * @param relation R on the heap
+     * @param file backing file, created or truncated
+     * @return a file-backed copy of R
+     */
+    public static <T> MappedMRelation<T> of(MRelation<T> relation, Path file) throws IOException {
+        MList<T> universalSet = new MList<>(relation.getUniverse());
+        return new MappedMRelation<>(universalSet, MappedBitMatrix.copyOf(relation.getBits(), file));
+    }
+
+    /**
+     * @return self on the heap, as long as its matrix fits there
+     */
+    public MRelation<T> toMRelation() {
+        return new MRelation<>(universalSet, matrix.toBitMatrix(), negated);
+    }
+
+    public List<T> getUniversalSet() {
+        return universalSet;
+    }
+
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    /**
+     * @return the stored matrix, which holds ∼self when self is negated
+     */
+    public MappedBitMatrix getStoredBits() {
+        return matrix;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * (α, β) ∈ R
+     * @return whether the pair is in self
+     */
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        return i >= 0 && j >= 0 && matrix.get(i, j) != negated;
+    }
+
+    /**
+     * @return number of pairs in self
+     */
+    public long size() {
+        long stored = matrix.cardinality();
+        return negated ? (long) size * size - stored : stored;
+    }
+
+    /**
+     * Writes self, with any pending complement applied, to a file that outlives self
+     * @param file target file, created or truncated
+     * @return the copy
+     */
+    public MappedMRelation<T> copyTo(Path file) throws IOException {
+        MappedBitMatrix copy = MappedBitMatrix.create(file, size);
+        int rows = matrix.blockRows();
+        long[] block = new long[rows * matrix.getWordsPerRow()];
+        for (int from = 0; from < size; from += rows) {
+            int to = Math.min(size, from + rows);
+            readRows(from, to, block);
+            copy.writeRows(from, to, block);
+        }
+        return new MappedMRelation<>(universalSet, copy);
+    }
+
+    private MappedMRelation<T> result() throws IOException {
+        Path directory = matrix.getFile().toAbsolutePath().getParent();
+        Path file = Files.createTempFile(directory, "relation", ".bits");
+        return new MappedMRelation<>(universalSet, MappedBitMatrix.create(file, size), false, true);
+    }
+
+    /**
+     * Closes a result that could not be filled, which deletes its file
+     * @param failure the error that stopped the fill, to which a failed close is added
+     */
+    private void discard(Throwable failure) {
+        try {
+            close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Reads rows [from, to) of self, complemented if self is negated
+     */
+    private void readRows(int from, int to, long[] block) {
+        matrix.readRows(from, to, block);
+        if (!negated) return;
+        int wordsPerRow = matrix.getWordsPerRow();
+        long tailMask = matrix.getTailMask();
+        for (int w = 0; w < (to - from) * wordsPerRow; w++) {
+            block[w] = ~block[w];
+            if (w % wordsPerRow == wordsPerRow - 1) block[w] &= tailMask;
+        }
+    }
+
+    private MappedMRelation<T> combine(MappedMRelation<T> otherRelation, int operation) throws IOException {
+        int rows = matrix.blockRows();
+        int words = rows * matrix.getWordsPerRow();
+        long[] block = new long[words];
+        long[] other = new long[words];
+        MappedMRelation<T> result = result();
+        try {
+            for (int from = 0; from < size; from += rows) {
+                int to = Math.min(size, from + rows);
+                readRows(from, to, block);
+                otherRelation.readRows(from, to, other);
+                int length = (to - from) * matrix.getWordsPerRow();
+                switch (operation) {
+                    case OR:
+                        for (int w = 0; w < length; w++) block[w] |= other[w];
+                        break;
+                    case AND:
+                        for (int w = 0; w < length; w++) block[w] &= other[w];
+                        break;
+                    case AND_NOT:
+                        for (int w = 0; w < length; w++) block[w] &= ~other[w];
+                        break;
+                    default:
+                        for (int w = 0; w < length; w++) block[w] ^= other[w];
+                }
+                result.matrix.writeRows(from, to, block);
+            }
+        } catch (Throwable failure) {
+            result.discard(failure);
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ∪ S
+     */
+    public MappedMRelation<T> union(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException, IOException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return combine(otherRelation, OR);
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ∩ S
+     */
+    public MappedMRelation<T> intersection(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException, IOException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return combine(otherRelation, AND);
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ∼ S
+     */
+    public MappedMRelation<T> difference(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException, IOException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return combine(otherRelation, AND_NOT);
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self Δ S
+     */
+    public MappedMRelation<T> symmetricDifference(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException, IOException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return combine(otherRelation, XOR);
+    }
+
+    /**
+     * Costs O(1): the file is shared and only the negation flag flips, so closing either
+     * relation closes both, and deletes the file if self was an intermediate result
+     * @return ∼self
+     */
+    public MappedMRelation<T> complement() {
+        return new MappedMRelation<>(universalSet, matrix, !negated, temporary);
+    }
+
+    /**
+     * Transposed one strip of 64 rows at a time; each 64 × 64 block of the strip becomes one
+     * word in 64 rows of the result
+     * @return self⁻¹
+     */
+    public MappedMRelation<T> converse() throws IOException {
+        int wordsPerRow = matrix.getWordsPerRow();
+        long[] strip = new long[64 * wordsPerRow];
+        long[] block = new long[64];
+        MappedMRelation<T> stored = result();
+        try {
+            for (int blockRow = 0; blockRow < wordsPerRow; blockRow++) {
+                int rowStart = blockRow << 6;
+                int rows = Math.min(64, size - rowStart);
+                matrix.readRows(rowStart, rowStart + rows, strip);
+                for (int blockColumn = 0; blockColumn < wordsPerRow; blockColumn++) {
+                    boolean empty = true;
+                    for (int r = 0; r < rows; r++) {
+                        block[r] = strip[r * wordsPerRow + blockColumn];
+                        empty &= block[r] == 0;
+                    }
+                    if (empty) continue;
+                    Arrays.fill(block, rows, 64, 0L);
+                    BitMatrix.transpose64(block);
+                    int columnStart = blockColumn << 6;
+                    int columns = Math.min(64, size - columnStart);
+                    for (int c = 0; c < columns; c++) {
+                        stored.matrix.setWord(columnStart + c, blockRow, block[c]);
+                    }
+                }
+            }
+        } catch (Throwable failure) {
+            stored.discard(failure);
+            throw failure;
+        }
+        // (∼A)⁻¹ = ∼(A⁻¹), so the flag carries over
+        return new MappedMRelation<>(universalSet, stored.matrix, negated, true);
+    }
+
+    /**
+     * Each block of rows of self collects the rows k it needs from S, then reads every such
+     * row once and folds it into all rows of the block that contain k
+     * @param otherRelation S
+     * @return self | S
+     */
+    public MappedMRelation<T> composition(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException, IOException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return product(otherRelation, false);
+    }
+
+    /**
+     * Like composition, with rows of the result starting full and AND-ed with the rows k of S
+     * that the row of self misses
+     * @param otherRelation S
+     * @return self † S
+     */
+    public MappedMRelation<T> sum(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException, IOException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return product(otherRelation, true);
+    }
+
+    private MappedMRelation<T> product(MappedMRelation<T> otherRelation, boolean dual) throws IOException {
+        int wordsPerRow = matrix.getWordsPerRow();
+        long tailMask = matrix.getTailMask();
+        int rows = Math.max(1, Math.min(size, PRODUCT_BLOCK / Math.max(1, wordsPerRow)));
+        long[] block = new long[rows * wordsPerRow];
+        long[] product = new long[rows * wordsPerRow];
+        long[] needed = new long[wordsPerRow];
+        long[] row = new long[wordsPerRow];
+        MappedMRelation<T> result = result();
+        try {
+            for (int from = 0; from < size; from += rows) {
+                int to = Math.min(size, from + rows);
+                int length = (to - from) * wordsPerRow;
+                readRows(from, to, block);
+                if (dual) {
+                    // the sum only looks at the cells self misses
+                    for (int w = 0; w < length; w++) {
+                        block[w] = ~block[w];
+                        if (w % wordsPerRow == wordsPerRow - 1) block[w] &= tailMask;
+                    }
+                }
+                Arrays.fill(needed, 0L);
+                for (int w = 0; w < length; w++) {
+                    needed[w % wordsPerRow] |= block[w];
+                    product[w] = dual ? (w % wordsPerRow == wordsPerRow - 1 ? tailMask : -1L) : 0L;
+                }
+                for (int kw = 0; kw < wordsPerRow; kw++) {
+                    long ks = needed[kw];
+                    while (ks != 0) {
+                        int k = (kw << 6) + Long.numberOfTrailingZeros(ks);
+                        ks &= ks - 1;
+                        otherRelation.readRows(k, k + 1, row);
+                        long bit = 1L << k;
+                        for (int i = 0; i < to - from; i++) {
+                            if ((block[i * wordsPerRow + kw] & bit) == 0) continue;
+                            int offset = i * wordsPerRow;
+                            if (dual) {
+                                for (int j = 0; j < wordsPerRow; j++) product[offset + j] &= row[j];
+                            } else {
+                                for (int j = 0; j < wordsPerRow; j++) product[offset + j] |= row[j];
+                            }
+                        }
+                    }
+                }
+                result.matrix.writeRows(from, to, product);
+            }
+        } catch (Throwable failure) {
+            result.discard(failure);
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self ⊆ S, stopping at the first block with a pair outside S
+     */
+    public boolean isSubsetOf(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        int rows = matrix.blockRows();
+        int words = rows * matrix.getWordsPerRow();
+        long[] block = new long[words];
+        long[] other = new long[words];
+        for (int from = 0; from < size; from += rows) {
+            int to = Math.min(size, from + rows);
+            readRows(from, to, block);
+            otherRelation.readRows(from, to, other);
+            for (int w = 0; w < (to - from) * matrix.getWordsPerRow(); w++) {
+                if ((block[w] & ~other[w]) != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param otherRelation S
+     * @return self = S, stopping at the first block that differs
+     */
+    public boolean isEqual(MappedMRelation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        int rows = matrix.blockRows();
+        int words = rows * matrix.getWordsPerRow();
+        long[] block = new long[words];
+        long[] other = new long[words];
+        for (int from = 0; from < size; from += rows) {
+            int to = Math.min(size, from + rows);
+            readRows(from, to, block);
+            otherRelation.readRows(from, to, other);
+            for (int w = 0; w < (to - from) * matrix.getWordsPerRow(); w++) {
+                if (block[w] != other[w]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases the mapping; a temporary result also deletes its file
+     */
+    @Override
+    public void close() throws IOException {
+        matrix.close();
+        if (temporary) Files.deleteIfExists(matrix.getFile());
+    }
+
+}
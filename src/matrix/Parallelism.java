@@ -0,0 +1,167 @@
+package matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * How bit matrix operations are spread over threads. Work is cut into independent blocks
+ * (row blocks for element-wise operations and predicates, tiles for transpose and products)
+ * which are split recursively on a fork-join pool. Universes smaller than the threshold, and
+ * operations with a single block, run on the calling thread.
+ */
+public final class Parallelism {
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private static final Parallelism SEQUENTIAL = new Parallelism(null, Integer.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    private Parallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return every operation on the calling thread
+     */
+    public static Parallelism sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * @return the common pool with the default threshold
+     */
+    public static Parallelism common() {
+        return of(ForkJoinPool.commonPool());
+    }
+
+    public static Parallelism of(ForkJoinPool pool) {
+        return of(pool, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool pool the blocks are run on
+     * @param threshold smallest universe size that is worth forking for
+     */
+    public static Parallelism of(ForkJoinPool pool, int threshold) {
+        if (pool == null) throw new IllegalArgumentException("pool is null");
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be positive");
+        return new Parallelism(pool, threshold);
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param size number of elements in U
+     * @return whether operations over U fork
+     */
+    public boolean isParallel(int size) {
+        return pool != null && size >= threshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * @param wordsPerRow words in one row of the matrix
+     * @return rows per block so that a block covers about 16k words
+     */
+    static int rowGrain(int wordsPerRow) {
+        return Math.max(1, (1 << 14) / Math.max(1, wordsPerRow));
+    }
+
+    interface Block {
+        void run(int from, int to);
+    }
+
+    interface BlockPredicate {
+        boolean test(int from, int to);
+    }
+
+    /**
+     * Runs the blocks [from, to) covering [0, count), none longer than grain
+     * @param size number of elements in U
+     */
+    void forEach(int size, int count, int grain, Block block) {
+        if (count <= grain || !isParallel(size)) {
+            block.run(0, count);
+            return;
+        }
+        pool.invoke(new ForEach(block, 0, count, grain));
+    }
+
+    /**
+     * Tests the blocks covering [0, count); once one fails the blocks that have not started
+     * yet are skipped
+     * @param size number of elements in U
+     * @return whether every block passed
+     */
+    boolean allMatch(int size, int count, int grain, BlockPredicate predicate) {
+        if (count <= grain || !isParallel(size)) return predicate.test(0, count);
+        AtomicBoolean failed = new AtomicBoolean();
+        pool.invoke(new AllMatch(predicate, failed, 0, count, grain));
+        return !failed.get();
+    }
+
+    private static final class ForEach extends RecursiveAction {
+
+        private final Block block;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        ForEach(Block block, int from, int to, int grain) {
+            this.block = block;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                block.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForEach(block, from, middle, grain), new ForEach(block, middle, to, grain));
+        }
+
+    }
+
+    private static final class AllMatch extends RecursiveAction {
+
+        private final BlockPredicate predicate;
+        private final AtomicBoolean failed;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        AllMatch(BlockPredicate predicate, AtomicBoolean failed, int from, int to, int grain) {
+            this.predicate = predicate;
+            this.failed = failed;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed.get()) return;
+            if (to - from <= grain) {
+                if (!predicate.test(from, to)) failed.set(true);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AllMatch(predicate, failed, from, middle, grain), new AllMatch(predicate, failed, middle, to, grain));
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+package matrix;
+
+import java.util.Arrays;
+
+import static universe.RelationProperty.*;
+
+/**
+ * Checks reflexivity, symmetry, antisymmetry, transitivity, functionality and injectivity of
+ * relations straight on the packed words, without building converses, compositions or
+ * intersections and without materialising pending complements. Reflexivity, functionality
+ * and injectivity share one sweep over the rows, symmetry and antisymmetry one sweep over
+ * mirrored 64 × 64 blocks, and transitivity checks row k ⊆ row i for every pair (i, k).
+ * The scratch arrays are kept between calls, so an analyser reused over many relations of
+ * similar size allocates nothing. Not thread-safe: use one analyser per thread.
+ */
+public final class RelationProperties {
+
+    private final long[] block = new long[64];
+    private final long[] mirror = new long[64];
+    // columns already hit by an earlier row
+    private long[] seen = new long[0];
+
+    /**
+     * Stops at the first counterexample to any of the properties
+     * @param relation R
+     * @param properties OR of RelationProperty flags
+     * @return whether R has all of them
+     */
+    public boolean test(MRelation<?> relation, int properties) {
+        return check(relation, properties, true) == properties;
+    }
+
+    /**
+     * @param relation R
+     * @param properties OR of RelationProperty flags
+     * @return the flags among properties that R has
+     */
+    public int analyse(MRelation<?> relation, int properties) {
+        return check(relation, properties, false);
+    }
+
+    private int check(MRelation<?> relation, int properties, boolean stopEarly) {
+        BitMatrix matrix = relation.storedBits();
+        // every word is read through flip, so ∼A is checked on A
+        long flip = relation.isNegated() ? -1L : 0L;
+        int holds = rows(matrix, flip, properties, stopEarly);
+        if (stopEarly && holds != properties) return holds;
+        holds = blocks(matrix, flip, holds, stopEarly);
+        if (stopEarly && holds != properties) return holds;
+        if ((holds & TRANSITIVE) != 0 && !isTransitive(matrix, flip)) holds &= ~TRANSITIVE;
+        return holds;
+    }
+
+    private static long word(long[] words, int w, long flip, long mask) {
+        return (words[w] ^ flip) & mask;
+    }
+
+    private int rows(BitMatrix matrix, long flip, int holds, boolean stopEarly) {
+        if ((holds & (REFLEXIVE | FUNCTION | ONE_TO_ONE)) == 0) return holds;
+        int n = matrix.size();
+        int wordsPerRow = matrix.getWordsPerRow();
+        long tailMask = matrix.getTailMask();
+        long[] words = matrix.getWords();
+        if ((holds & ONE_TO_ONE) != 0) {
+            if (seen.length < wordsPerRow) seen = new long[wordsPerRow];
+            else Arrays.fill(seen, 0, wordsPerRow, 0L);
+        }
+        for (int i = 0; i < n && (holds & (REFLEXIVE | FUNCTION | ONE_TO_ONE)) != 0; i++) {
+            int offset = i * wordsPerRow;
+            int failed = 0;
+            if ((holds & REFLEXIVE) != 0 && (word(words, offset + (i >>> 6), flip, -1L) & (1L << i)) == 0) {
+                failed |= REFLEXIVE;
+            }
+            if ((holds & (FUNCTION | ONE_TO_ONE)) != 0) {
+                boolean columns = (holds & ONE_TO_ONE) != 0;
+                int count = 0;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    long word = word(words, offset + w, flip, w == wordsPerRow - 1 ? tailMask : -1L);
+                    count += Long.bitCount(word);
+                    if (columns) {
+                        if ((seen[w] & word) != 0) failed |= ONE_TO_ONE;
+                        seen[w] |= word;
+                    }
+                }
+                if (count > 1) failed |= FUNCTION;
+            }
+            failed &= holds;
+            holds &= ~failed;
+            if (stopEarly && failed != 0) return holds;
+        }
+        return holds;
+    }
+
+    /**
+     * Block (bi, bj) of R against block (bi, bj) of R⁻¹, i.e. the transposed block (bj, bi)
+     */
+    private int blocks(BitMatrix matrix, long flip, int holds, boolean stopEarly) {
+        if ((holds & (SYMMETRIC | ANTISYMMETRIC)) == 0) return holds;
+        int n = matrix.size();
+        int wordsPerRow = matrix.getWordsPerRow();
+        long tailMask = matrix.getTailMask();
+        long[] words = matrix.getWords();
+        for (int bi = 0; bi < wordsPerRow; bi++) {
+            for (int bj = bi; bj < wordsPerRow; bj++) {
+                load(words, n, wordsPerRow, bi, bj, flip, bj == wordsPerRow - 1 ? tailMask : -1L, block);
+                load(words, n, wordsPerRow, bj, bi, flip, bi == wordsPerRow - 1 ? tailMask : -1L, mirror);
+                BitMatrix.transpose64(mirror);
+                int failed = 0;
+                for (int r = 0; r < 64; r++) {
+                    if (block[r] != mirror[r]) failed |= SYMMETRIC;
+                    long both = block[r] & mirror[r];
+                    // only (α, α) may be in R and R⁻¹ at once
+                    if (bi == bj) both &= ~(1L << r);
+                    if (both != 0) failed |= ANTISYMMETRIC;
+                }
+                failed &= holds;
+                holds &= ~failed;
+                if ((holds & (SYMMETRIC | ANTISYMMETRIC)) == 0 || (stopEarly && failed != 0)) return holds;
+            }
+        }
+        return holds;
+    }
+
+    private static void load(long[] words, int n, int wordsPerRow, int blockRow, int blockColumn, long flip, long mask, long[] block) {
+        int rowStart = blockRow << 6;
+        int rows = Math.min(64, n - rowStart);
+        for (int r = 0; r < rows; r++) {
+            block[r] = word(words, (rowStart + r) * wordsPerRow + blockColumn, flip, mask);
+        }
+        Arrays.fill(block, rows, 64, 0L);
+    }
+
+    /**
+     * (i, k) ∈ R implies row k of R ⊆ row i of R
+     */
+    private static boolean isTransitive(BitMatrix matrix, long flip) {
+        int n = matrix.size();
+        int wordsPerRow = matrix.getWordsPerRow();
+        long tailMask = matrix.getTailMask();
+        long[] words = matrix.getWords();
+        for (int i = 0; i < n; i++) {
+            int iRow = i * wordsPerRow;
+            for (int kw = 0; kw < wordsPerRow; kw++) {
+                long ks = word(words, iRow + kw, flip, kw == wordsPerRow - 1 ? tailMask : -1L);
+                while (ks != 0) {
+                    int k = (kw << 6) + Long.numberOfTrailingZeros(ks);
+                    ks &= ks - 1;
+                    if (k == i) continue;
+                    int kRow = k * wordsPerRow;
+                    for (int w = 0; w < wordsPerRow; w++) {
+                        long mask = w == wordsPerRow - 1 ? tailMask : -1L;
+                        if ((word(words, kRow + w, flip, mask) & ~word(words, iRow + w, flip, mask)) != 0) return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+}
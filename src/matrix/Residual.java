@@ -0,0 +1,119 @@
+package matrix;
+
+/**
+ * Residuals over the Boolean semiring, the upper adjoints of composition.
+ * R\S = ∼(R⁻¹ | ∼S): (α, β) ∈ R\S iff column α of MR ⊆ column β of MS.
+ * S/R = ∼(∼S | R⁻¹): (α, β) ∈ S/R iff row α of MS ⊇ row β of MR.
+ * syq(R, S) = R\S ∩ (R⁻¹/S⁻¹): column α of MR = column β of MS.
+ * Every cell compares two packed rows (columns after one transpose) word by word and stops
+ * at the first word that settles it; the row counts are compared first, which settles most
+ * cells of unequal rows without reading them. Pending complements are read through a flip of
+ * every word, so no complement and no product is ever built.
+ */
+public final class Residual {
+
+    private enum Test {
+        SUBSET, SUPERSET, EQUAL
+    }
+
+    private Residual() {
+    }
+
+    /**
+     * @param a MR, read as −MR when aNegated
+     * @param b MS, read as −MS when bNegated
+     * @return M(R\S)
+     */
+    public static BitMatrix left(BitMatrix a, boolean aNegated, BitMatrix b, boolean bNegated, Parallelism parallelism) {
+        checkSizes(a, b);
+        // a transpose commutes with the flip, so the stored matrices are transposed as they are
+        return compare(a.transpose(parallelism), aNegated, b.transpose(parallelism), bNegated, Test.SUBSET, parallelism);
+    }
+
+    /**
+     * @param s MS, read as −MS when sNegated
+     * @param r MR, read as −MR when rNegated
+     * @return M(S/R)
+     */
+    public static BitMatrix right(BitMatrix s, boolean sNegated, BitMatrix r, boolean rNegated, Parallelism parallelism) {
+        checkSizes(s, r);
+        return compare(s, sNegated, r, rNegated, Test.SUPERSET, parallelism);
+    }
+
+    /**
+     * @param a MR, read as −MR when aNegated
+     * @param b MS, read as −MS when bNegated
+     * @return M(syq(R, S))
+     */
+    public static BitMatrix symmetricQuotient(BitMatrix a, boolean aNegated, BitMatrix b, boolean bNegated, Parallelism parallelism) {
+        checkSizes(a, b);
+        return compare(a.transpose(parallelism), aNegated, b.transpose(parallelism), bNegated, Test.EQUAL, parallelism);
+    }
+
+    private static void checkSizes(BitMatrix a, BitMatrix b) {
+        if (a.size() != b.size()) throw new IllegalArgumentException("matrices have different sizes");
+    }
+
+    /**
+     * Cell (i, j) of the result tests row i of X against row j of Y
+     */
+    private static BitMatrix compare(BitMatrix x, boolean xNegated, BitMatrix y, boolean yNegated, Test test, Parallelism parallelism) {
+        int n = x.size();
+        int wordsPerRow = x.getWordsPerRow();
+        long tailMask = x.getTailMask();
+        long[] xw = x.getWords();
+        long[] yw = y.getWords();
+        long xFlip = xNegated ? -1L : 0L;
+        long yFlip = yNegated ? -1L : 0L;
+        int[] xCounts = counts(x, xNegated);
+        int[] yCounts = counts(y, yNegated);
+        BitMatrix c = new BitMatrix(n);
+        long[] cw = c.getWords();
+        parallelism.forEach(n, n, Parallelism.rowGrain(wordsPerRow), (from, to) -> {
+            long[] row = new long[wordsPerRow];
+            for (int i = from; i < to; i++) {
+                int xRow = i * wordsPerRow;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    row[w] = (xw[xRow + w] ^ xFlip) & (w == wordsPerRow - 1 ? tailMask : -1L);
+                }
+                int count = xCounts[i];
+                for (int j = 0; j < n; j++) {
+                    int other = yCounts[j];
+                    if (test == Test.SUBSET ? count > other : test == Test.SUPERSET ? count < other : count != other) continue;
+                    if (holds(row, yw, j * wordsPerRow, yFlip, tailMask, test)) cw[xRow + (j >>> 6)] |= 1L << j;
+                }
+            }
+        });
+        return c;
+    }
+
+    private static boolean holds(long[] row, long[] yw, int yRow, long yFlip, long tailMask, Test test) {
+        int last = row.length - 1;
+        for (int w = 0; w <= last; w++) {
+            long x = row[w];
+            long y = (yw[yRow + w] ^ yFlip) & (w == last ? tailMask : -1L);
+            long witness = test == Test.SUBSET ? x & ~y : test == Test.SUPERSET ? y & ~x : x ^ y;
+            if (witness != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return cells in every row, as read through the flip
+     */
+    private static int[] counts(BitMatrix matrix, boolean negated) {
+        int n = matrix.size();
+        int wordsPerRow = matrix.getWordsPerRow();
+        long[] words = matrix.getWords();
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            int count = 0;
+            for (int w = i * wordsPerRow; w < (i + 1) * wordsPerRow; w++) {
+                count += Long.bitCount(words[w]);
+            }
+            counts[i] = negated ? n - count : count;
+        }
+        return counts;
+    }
+
+}
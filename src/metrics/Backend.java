@@ -0,0 +1,15 @@
+package metrics;
+
+/**
+ * Relation implementation an operation ran on
+ */
+public enum Backend {
+    /**
+     * traditional.Relation, a hash of pairs
+     */
+    PAIRS,
+    /**
+     * matrix.MRelation, a bit matrix
+     */
+    MATRIX
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * Listener that turns every sample into a relations.Operation flight recorder event.
+ * Register it with Metrics.register(new FlightRecorderMetrics()) and start a recording
+ * that enables the event; while no recording has it enabled a sample is dropped after one
+ * check.
+ */
+public final class FlightRecorderMetrics implements MetricsListener {
+
+    @Override
+    public void record(OperationSample sample) {
+        OperationEvent event = new OperationEvent();
+        if (!event.shouldCommit()) return;
+        event.operation = sample.getOperation().name();
+        event.backend = sample.getBackend().name();
+        event.universeSize = sample.getUniverseSize();
+        event.leftSize = sample.getLeftSize();
+        event.rightSize = sample.getRightSize();
+        event.resultSize = sample.getResultSize();
+        event.resultDensity = sample.getResultDensity();
+        event.nanos = sample.getNanos();
+        event.allocatedBytes = sample.getAllocatedBytes();
+        event.commit();
+    }
+
+}
@@ -0,0 +1,116 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Registry of the listeners that relation operators report to. While none is registered an
+ * operator pays one volatile read and skips all measuring; sizes, times and allocations are
+ * only taken once a listener is there to receive them.
+ * Operators are measured like this, so that the arguments are evaluated in order and the
+ * probe is stopped before any size is counted:
+ * <pre>
+ *     Metrics.Probe probe = Metrics.start(Operation.UNION);
+ *     R union = ...;
+ *     if (probe != null) probe.stop().record(backend, n, |R|, |S|, |union|);
+ * </pre>
+ */
+public final class Metrics {
+
+    private static final MetricsListener[] NONE = {};
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    // replaced as a whole on every change, so readers never see a partial array
+    private static volatile MetricsListener[] listeners = NONE;
+
+    private Metrics() {
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        return allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled() ? allocations : null;
+    }
+
+    public static synchronized void register(MetricsListener listener) {
+        if (listener == null) throw new IllegalArgumentException("listener is null");
+        MetricsListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+     * @return whether the listener was registered
+     */
+    public static synchronized boolean unregister(MetricsListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] != listener) continue;
+            MetricsListener[] shrunk = new MetricsListener[listeners.length - 1];
+            System.arraycopy(listeners, 0, shrunk, 0, i);
+            System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+            listeners = shrunk;
+            return true;
+        }
+        return false;
+    }
+
+    public static boolean isEnabled() {
+        return listeners.length != 0;
+    }
+
+    /**
+     * @return a running probe, or null when no listener is registered
+     */
+    public static Probe start(Operation operation) {
+        MetricsListener[] current = listeners;
+        return current.length == 0 ? null : new Probe(operation, current);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Measures one operation, from start() to stop(), and hands the sample to the listeners
+     * that were registered when it started
+     */
+    public static final class Probe {
+
+        private final Operation operation;
+        private final MetricsListener[] listeners;
+        private final long startBytes;
+        private final long startNanos;
+        private long nanos;
+        private long bytes;
+
+        private Probe(Operation operation, MetricsListener[] listeners) {
+            this.operation = operation;
+            this.listeners = listeners;
+            this.startBytes = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * @return self, with the time and allocation of the operation taken
+         */
+        public Probe stop() {
+            nanos = System.nanoTime() - startNanos;
+            bytes = startBytes < 0 ? -1 : allocatedBytes() - startBytes;
+            return this;
+        }
+
+        /**
+         * @param rightSize |S|, or -1 for unary operators
+         * @param resultSize size of the result, or -1 for predicates
+         */
+        public void record(Backend backend, int universeSize, long leftSize, long rightSize, long resultSize) {
+            OperationSample sample = new OperationSample(operation, backend, universeSize, leftSize, rightSize, resultSize, nanos, bytes);
+            for (MetricsListener listener : listeners) {
+                listener.record(sample);
+            }
+        }
+
+    }
+
+}
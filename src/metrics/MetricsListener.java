@@ -0,0 +1,11 @@
+package metrics;
+
+/**
+ * Receives one sample per measured operation, on the thread that ran it. Implementations
+ * must be thread-safe and should return quickly, since the caller waits for them.
+ */
+public interface MetricsListener {
+
+    void record(OperationSample sample);
+
+}
@@ -0,0 +1,33 @@
+package metrics;
+
+/**
+ * Relation operators that report to the registered listeners
+ */
+public enum Operation {
+    UNION("∪"),
+    INTERSECTION("∩"),
+    DIFFERENCE("∼"),
+    SYMMETRIC_DIFFERENCE("Δ"),
+    COMPLEMENT("∼R"),
+    CONVERSE("R⁻¹"),
+    COMPOSITION("|"),
+    SUM("†"),
+    LEFT_RESIDUAL("\\"),
+    RIGHT_RESIDUAL("/"),
+    SYMMETRIC_QUOTIENT("syq"),
+    TRANSITIVE_CLOSURE("R⁺"),
+    REFLEXIVE_TRANSITIVE_CLOSURE("R*"),
+    SUBSET("⊆"),
+    EQUALITY("=");
+
+    private final String symbol;
+
+    Operation(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+}
@@ -0,0 +1,52 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one relation operation, committed by FlightRecorderMetrics.
+ * The event is created after the operation has finished, so its own duration is zero and
+ * the time taken is in the nanos field.
+ */
+@Name("relations.Operation")
+@Label("Relation Operation")
+@Category({"Calculus of Relations"})
+@Description("An operator of the calculus of relations with its operand sizes, time and allocation")
+@StackTrace(false)
+final class OperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Universe Size")
+    int universeSize;
+
+    @Label("Left Size")
+    long leftSize;
+
+    @Label("Right Size")
+    long rightSize;
+
+    @Label("Result Size")
+    long resultSize;
+
+    @Label("Result Density")
+    double resultDensity;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+
+}
@@ -0,0 +1,97 @@
+package metrics;
+
+/**
+ * One measured operation. Sizes count pairs; a size of -1 means there is no such operand,
+ * e.g. the right side of a unary operator or the result of a predicate.
+ */
+public final class OperationSample {
+
+    private final Operation operation;
+    private final Backend backend;
+    private final int universeSize;
+    private final long leftSize;
+    private final long rightSize;
+    private final long resultSize;
+    private final long nanos;
+    private final long allocatedBytes;
+
+    OperationSample(Operation operation, Backend backend, int universeSize, long leftSize, long rightSize, long resultSize, long nanos, long allocatedBytes) {
+        this.operation = operation;
+        this.backend = backend;
+        this.universeSize = universeSize;
+        this.leftSize = leftSize;
+        this.rightSize = rightSize;
+        this.resultSize = resultSize;
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return |U|
+     */
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    public long getLeftSize() {
+        return leftSize;
+    }
+
+    public long getRightSize() {
+        return rightSize;
+    }
+
+    public long getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * @return wall-clock time of the operation
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Counts what the calling thread allocated, so work handed to a fork-join pool is left
+     * out
+     * @return bytes allocated by the operation, or -1 if the JVM cannot tell
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public double getLeftDensity() {
+        return density(leftSize);
+    }
+
+    public double getRightDensity() {
+        return density(rightSize);
+    }
+
+    public double getResultDensity() {
+        return density(resultSize);
+    }
+
+    /**
+     * @return |R| / |U × U|, or NaN if there is no such operand
+     */
+    private double density(long size) {
+        if (size < 0 || universeSize == 0) return Double.NaN;
+        return size / ((double) universeSize * universeSize);
+    }
+
+    @Override
+    public String toString() {
+        return operation + " on " + backend + ": |U| = " + universeSize + ", " + leftSize + ", " + rightSize + " -> " + resultSize + " pairs, " + nanos + " ns, " + allocatedBytes + " bytes";
+    }
+
+}
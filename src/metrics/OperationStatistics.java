@@ -0,0 +1,133 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener that keeps running totals per backend and operator: calls, time, allocation,
+ * pairs in and out, and a latency histogram whose bucket k counts the calls that took
+ * between 2^(k-1) and 2^k - 1 nanoseconds (bucket 0 counts calls under a nanosecond).
+ * Every counter is updated without locks, so any number of threads can report at once.
+ */
+public final class OperationStatistics implements MetricsListener {
+
+    public static final int BUCKETS = 64;
+
+    private final Counters[][] counters = new Counters[Backend.values().length][Operation.values().length];
+
+    public OperationStatistics() {
+        for (Counters[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new Counters();
+            }
+        }
+    }
+
+    @Override
+    public void record(OperationSample sample) {
+        Counters c = counters[sample.getBackend().ordinal()][sample.getOperation().ordinal()];
+        c.calls.increment();
+        c.nanos.add(sample.getNanos());
+        if (sample.getAllocatedBytes() > 0) c.bytes.add(sample.getAllocatedBytes());
+        if (sample.getLeftSize() > 0) c.pairsIn.add(sample.getLeftSize());
+        if (sample.getRightSize() > 0) c.pairsIn.add(sample.getRightSize());
+        if (sample.getResultSize() > 0) c.pairsOut.add(sample.getResultSize());
+        c.latencies.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(sample.getNanos()));
+    }
+
+    public long getCalls(Backend backend, Operation operation) {
+        return counters[backend.ordinal()][operation.ordinal()].calls.sum();
+    }
+
+    public long getNanos(Backend backend, Operation operation) {
+        return counters[backend.ordinal()][operation.ordinal()].nanos.sum();
+    }
+
+    /**
+     * @return bytes allocated on the calling threads, see OperationSample.getAllocatedBytes()
+     */
+    public long getAllocatedBytes(Backend backend, Operation operation) {
+        return counters[backend.ordinal()][operation.ordinal()].bytes.sum();
+    }
+
+    /**
+     * @return pairs in all operands
+     */
+    public long getPairsIn(Backend backend, Operation operation) {
+        return counters[backend.ordinal()][operation.ordinal()].pairsIn.sum();
+    }
+
+    /**
+     * @return pairs in all results
+     */
+    public long getPairsOut(Backend backend, Operation operation) {
+        return counters[backend.ordinal()][operation.ordinal()].pairsOut.sum();
+    }
+
+    /**
+     * @return a copy of the latency histogram, BUCKETS entries long
+     */
+    public long[] getLatencyHistogram(Backend backend, Operation operation) {
+        AtomicLongArray latencies = counters[backend.ordinal()][operation.ordinal()].latencies;
+        long[] histogram = new long[BUCKETS];
+        for (int k = 0; k < BUCKETS; k++) {
+            histogram[k] = latencies.get(k);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return upper bound of the bucket holding the quantile, in nanoseconds, or 0 without calls
+     */
+    public long getLatencyQuantile(Backend backend, Operation operation, double quantile) {
+        long[] histogram = getLatencyHistogram(backend, operation);
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int k = 0; k < BUCKETS; k++) {
+            seen += histogram[k];
+            // 1 << 63 wraps, so the last bucket ends at Long.MAX_VALUE
+            if (seen >= Math.max(rank, 1)) return (1L << k) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Not atomic with respect to samples arriving at the same time
+     */
+    public void reset() {
+        for (Counters[] row : counters) {
+            for (Counters c : row) {
+                c.reset();
+            }
+        }
+    }
+
+    private static final class Counters {
+
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder pairsIn = new LongAdder();
+        final LongAdder pairsOut = new LongAdder();
+        final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+        void reset() {
+            calls.reset();
+            nanos.reset();
+            bytes.reset();
+            pairsIn.reset();
+            pairsOut.reset();
+            for (int k = 0; k < BUCKETS; k++) {
+                latencies.set(k, 0);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns elements of a universe into bytes and back for the dictionary section of a relation
+ * file. Every element is stored as its encoded length followed by the encoded bytes.
+ * @param <T> element type
+ */
+public interface ElementCodec<T> {
+
+    ElementCodec<String> STRING = new ElementCodec<>() {
+        @Override
+        public byte[] encode(String element) {
+            return element.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer bytes) {
+            byte[] encoded = new byte[bytes.remaining()];
+            bytes.get(encoded);
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+    };
+
+    ElementCodec<Integer> INTEGER = new ElementCodec<>() {
+        @Override
+        public byte[] encode(Integer element) {
+            return ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(element).array();
+        }
+
+        @Override
+        public Integer decode(ByteBuffer bytes) {
+            return bytes.order(ByteOrder.LITTLE_ENDIAN).getInt();
+        }
+    };
+
+    ElementCodec<Long> LONG = new ElementCodec<>() {
+        @Override
+        public byte[] encode(Long element) {
+            return ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(element).array();
+        }
+
+        @Override
+        public Long decode(ByteBuffer bytes) {
+            return bytes.order(ByteOrder.LITTLE_ENDIAN).getLong();
+        }
+    };
+
+    byte[] encode(T element);
+
+    /**
+     * @param bytes exactly the encoded bytes of one element, from position to limit
+     */
+    T decode(ByteBuffer bytes);
+
+}
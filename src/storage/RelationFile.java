@@ -0,0 +1,483 @@
+package storage;
+
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import matrix.MappedBitMatrix;
+import matrix.MappedMRelation;
+import traditional.RSet;
+import traditional.Relation;
+import universe.Universe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.zip.CRC32C;
+
+/**
+ * A relation stored in one binary file, opened by mapping it rather than parsing it.
+ * Everything is little-endian:
+ * <pre>
+ *  0  int   magic "RELN"
+ *  4  short format version
+ *  6  byte  section kind, 0 dense or 1 sparse
+ *  7  byte  flags, reserved
+ *  8  int   n, the number of elements in U
+ * 12  int   reserved
+ * 16  long  dictionary offset    24  long dictionary length
+ * 32  long  data offset          40  long data length
+ * 48  long  number of pairs      56  long CRC-32C of bytes 0 .. 55, the dictionary and the data
+ * </pre>
+ * The dictionary lists the elements of U in id order, each as an int length and the bytes of
+ * its ElementCodec. A dense section is the bit matrix in the layout of MappedBitMatrix; a
+ * sparse one is the pairs packed as (first << 32) | second in ascending order. Writers pick
+ * whichever section is smaller.
+ * Opening decodes the dictionary and maps the data section; the checksum is only recomputed
+ * by verify(), so opening does not touch the data.
+ */
+public final class RelationFile<T> implements Closeable {
+
+    public static final int VERSION = 1;
+
+    // "RELN" read as a little-endian int
+    private static final int MAGIC = 0x4E4C4552;
+    private static final int HEADER = 64;
+    private static final int CHECKED_HEADER = 56;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    // longs per mapped chunk of a sparse section, 1 GiB
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final Path file;
+    private final int version;
+    private final int size;
+    private final long pairCount;
+    private final long dictionaryOffset;
+    private final long dictionaryLength;
+    private final long dataOffset;
+    private final long dataLength;
+    private final long checksum;
+    private final Universe<T> universe;
+    // exactly one of these is set, depending on the section kind
+    private MappedBitMatrix matrix;
+    private LongBuffer[] pairs;
+
+    private RelationFile(Path file, ElementCodec<T> codec) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new IOException(file + " is not a relation file");
+            }
+            header.flip();
+            if (header.getInt(0) != MAGIC) throw new IOException(file + " is not a relation file");
+            version = header.getShort(4);
+            if (version < 1 || version > VERSION) throw new IOException(file + " has unsupported format version " + version);
+            byte kind = header.get(6);
+            size = header.getInt(8);
+            dictionaryOffset = header.getLong(16);
+            dictionaryLength = header.getLong(24);
+            dataOffset = header.getLong(32);
+            dataLength = header.getLong(40);
+            pairCount = header.getLong(48);
+            checksum = header.getLong(56);
+            if (dictionaryOffset + dictionaryLength > channel.size() || dataOffset + dataLength > channel.size()) {
+                throw new IOException(file + " is truncated");
+            }
+            if (dictionaryLength > Integer.MAX_VALUE) throw new IOException(file + " has a dictionary over 2 GiB");
+            universe = readDictionary(channel, codec);
+            if (kind == DENSE) {
+                matrix = MappedBitMatrix.open(file, dataOffset, size, false);
+            } else if (kind == SPARSE) {
+                pairs = mapPairs(channel);
+            } else {
+                throw new IOException(file + " has unknown section kind " + kind);
+            }
+        }
+    }
+
+    /**
+     * Maps the file; cost depends on the size of U, not on the number of pairs
+     * @param file relation file
+     * @param codec reads the elements of U
+     */
+    public static <T> RelationFile<T> open(Path file, ElementCodec<T> codec) throws IOException {
+        return new RelationFile<>(file, codec);
+    }
+
+    private Universe<T> readDictionary(FileChannel channel, ElementCodec<T> codec) throws IOException {
+        MappedByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, dictionaryLength);
+        dictionary.order(ByteOrder.LITTLE_ENDIAN);
+        List<T> elements = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            int length = dictionary.getInt();
+            ByteBuffer encoded = dictionary.slice(dictionary.position(), length);
+            elements.add(codec.decode(encoded));
+            dictionary.position(dictionary.position() + length);
+        }
+        return new Universe<>(elements);
+    }
+
+    private LongBuffer[] mapPairs(FileChannel channel) throws IOException {
+        int count = (int) ((pairCount + CHUNK_MASK) >>> CHUNK_SHIFT);
+        LongBuffer[] chunks = new LongBuffer[count];
+        for (int c = 0; c < count; c++) {
+            long first = (long) c << CHUNK_SHIFT;
+            long longs = Math.min(pairCount - first, 1L << CHUNK_SHIFT);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + 8 * first, 8 * longs)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        return chunks;
+    }
+
+    private long pair(long index) {
+        return pairs[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    public boolean isDense() {
+        return matrix != null;
+    }
+
+    /**
+     * @return number of pairs in the relation
+     */
+    public long size() {
+        return pairCount;
+    }
+
+    /**
+     * Answered from the mapping: a bit test when dense, a binary search when sparse
+     * @return whether (α, β) is in the relation
+     */
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        if (i < 0 || j < 0) return false;
+        if (matrix != null) return matrix.get(i, j);
+        long target = ((long) i << 32) | j;
+        long low = 0;
+        long high = pairCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long found = pair(middle);
+            if (found < target) low = middle + 1;
+            else if (found > target) high = middle - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    /**
+     * Wraps the dense section without copying it; the result shares the mapping, so it is
+     * read-only and closing either closes both
+     * @return the relation as a file-backed MRelation
+     */
+    public MappedMRelation<T> toMappedMRelation() {
+        if (matrix == null) throw new IllegalStateException(file + " holds a sparse section");
+        return new MappedMRelation<>(new MList<>(universe), matrix);
+    }
+
+    /**
+     * @return the relation copied onto the heap as an MRelation
+     */
+    public MRelation<T> toMRelation() {
+        if (matrix != null) return new MRelation<>(new MList<>(universe), matrix.toBitMatrix());
+        BitMatrix bits = new BitMatrix(size);
+        for (long index = 0; index < pairCount; index++) {
+            long pair = pair(index);
+            bits.set((int) (pair >>> 32), (int) pair);
+        }
+        return new MRelation<>(new MList<>(universe), bits);
+    }
+
+    /**
+     * @return the relation copied onto the heap as a Relation, without boxing any pair
+     */
+    public Relation<T> toRelation() {
+        return Relation.fromPackedPairs(new RSet<>(universe), matrix != null ? denseIterator() : sparseIterator(), pairCount);
+    }
+
+    private PrimitiveIterator.OfLong sparseIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < pairCount;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return pair(index++);
+            }
+        };
+    }
+
+    private PrimitiveIterator.OfLong denseIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private final int wordsPerRow = matrix.getWordsPerRow();
+            private int row = 0;
+            private int word = 0;
+            private long bits = size == 0 ? 0 : matrix.getWord(0, 0);
+
+            @Override
+            public boolean hasNext() {
+                while (bits == 0) {
+                    if (row >= size) return false;
+                    if (++word == wordsPerRow) {
+                        word = 0;
+                        if (++row >= size) return false;
+                    }
+                    bits = matrix.getWord(row, word);
+                }
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int column = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                return ((long) row << 32) | column;
+            }
+        };
+    }
+
+    /**
+     * Recomputes the checksum over the header, dictionary and data
+     * @throws IOException if the file is damaged
+     */
+    public void verify() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (checksum(channel, dictionaryOffset, dictionaryLength, dataOffset, dataLength) != checksum) {
+                throw new IOException(file + " fails its checksum");
+            }
+        }
+    }
+
+    private static long checksum(FileChannel channel, long dictionaryOffset, long dictionaryLength, long dataOffset, long dataLength) throws IOException {
+        CRC32C crc = new CRC32C();
+        update(crc, channel, 0, CHECKED_HEADER);
+        update(crc, channel, dictionaryOffset, dictionaryLength);
+        update(crc, channel, dataOffset, dataLength);
+        return crc.getValue();
+    }
+
+    private static void update(CRC32C crc, FileChannel channel, long offset, long length) throws IOException {
+        for (long done = 0; done < length; ) {
+            long chunk = Math.min(length - done, 1L << 30);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset + done, chunk));
+            done += chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (matrix != null) matrix.close();
+        pairs = null;
+    }
+
+    /**
+     * @param relation R
+     * @param file target, created or truncated
+     * @param codec writes the elements of U
+     */
+    public static <T> void write(MRelation<T> relation, Path file, ElementCodec<T> codec) throws IOException {
+        BitMatrix bits = relation.getBits();
+        int n = bits.size();
+        long count = bits.cardinality();
+        try (Writer writer = new Writer(file, relation.getUniverse(), codec, count)) {
+            if (writer.dense) {
+                try (MappedBitMatrix target = MappedBitMatrix.open(file, writer.dataOffset, n, true)) {
+                    long[] words = bits.getWords();
+                    int rows = target.blockRows();
+                    long[] block = new long[rows * target.getWordsPerRow()];
+                    for (int from = 0; from < n; from += rows) {
+                        int to = Math.min(n, from + rows);
+                        System.arraycopy(words, bits.rowOffset(from), block, 0, (to - from) * target.getWordsPerRow());
+                        target.writeRows(from, to, block);
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    for (int j = bits.nextSetBit(i, 0); j >= 0; j = bits.nextSetBit(i, j + 1)) {
+                        writer.put(((long) i << 32) | j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param relation R, with any pending complement applied on the way
+     * @param file target, created or truncated; must not be the file of R
+     * @param codec writes the elements of U
+     */
+    public static <T> void write(MappedMRelation<T> relation, Path file, ElementCodec<T> codec) throws IOException {
+        MappedBitMatrix stored = relation.getStoredBits();
+        int n = stored.size();
+        int wordsPerRow = stored.getWordsPerRow();
+        long tailMask = stored.getTailMask();
+        long flip = relation.isNegated() ? -1L : 0L;
+        try (Writer writer = new Writer(file, relation.getUniverse(), codec, relation.size())) {
+            MappedBitMatrix target = writer.dense ? MappedBitMatrix.open(file, writer.dataOffset, n, true) : null;
+            int rows = stored.blockRows();
+            long[] block = new long[rows * wordsPerRow];
+            for (int from = 0; from < n; from += rows) {
+                int to = Math.min(n, from + rows);
+                stored.readRows(from, to, block);
+                for (int w = 0; w < (to - from) * wordsPerRow; w++) {
+                    block[w] ^= flip;
+                    if (w % wordsPerRow == wordsPerRow - 1) block[w] &= tailMask;
+                }
+                if (target != null) {
+                    target.writeRows(from, to, block);
+                    continue;
+                }
+                for (int w = 0; w < (to - from) * wordsPerRow; w++) {
+                    long row = from + w / wordsPerRow;
+                    for (long word = block[w]; word != 0; word &= word - 1) {
+                        writer.put((row << 32) | ((w % wordsPerRow) << 6) + Long.numberOfTrailingZeros(word));
+                    }
+                }
+            }
+            if (target != null) target.close();
+        }
+    }
+
+    /**
+     * @param relation R
+     * @param file target, created or truncated
+     * @param codec writes the elements of U
+     */
+    public static <T> void write(Relation<T> relation, Path file, ElementCodec<T> codec) throws IOException {
+        int n = relation.getUniverse().size();
+        long count = relation.size();
+        try (Writer writer = new Writer(file, relation.getUniverse(), codec, count)) {
+            if (writer.dense) {
+                try (MappedBitMatrix target = MappedBitMatrix.open(file, writer.dataOffset, n, true)) {
+                    relation.forEachPair(target::set);
+                }
+            } else {
+                // a sparse section is smaller than the matrix, so its pairs fit in one array
+                long[] sorted = new long[(int) count];
+                int[] next = {0};
+                relation.forEachPair((first, second) -> sorted[next[0]++] = ((long) first << 32) | second);
+                Arrays.sort(sorted);
+                for (long pair : sorted) {
+                    writer.put(pair);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lays out header and dictionary, sizes the file for the chosen section and fills in the
+     * header with the checksum once the section has been written
+     */
+    private static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final int size;
+        private final long count;
+        private final boolean dense;
+        private final long dictionaryLength;
+        private final long dataOffset;
+        private final long dataLength;
+        private LongBuffer chunk;
+        private long written;
+
+        <T> Writer(Path file, Universe<T> universe, ElementCodec<T> codec, long count) throws IOException {
+            this.size = universe.size();
+            this.count = count;
+            long matrixWords = (long) size * ((size + 63) >>> 6);
+            this.dense = count >= matrixWords;
+            ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 0; id < size; id++) {
+                byte[] encoded = codec.encode(universe.get(id));
+                dictionary.write(length.putInt(0, encoded.length).array(), 0, Integer.BYTES);
+                dictionary.write(encoded, 0, encoded.length);
+            }
+            this.dictionaryLength = dictionary.size();
+            // data starts on a page boundary so the mapping of the section is page aligned
+            this.dataOffset = (HEADER + dictionaryLength + 4095) & ~4095L;
+            this.dataLength = 8 * (dense ? matrixWords : count);
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer bytes = ByteBuffer.wrap(dictionary.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, HEADER + bytes.position());
+            }
+            // extend the file over the whole section, which reads as zeros until written
+            channel.write(ByteBuffer.allocate(1), dataOffset + dataLength - 1);
+        }
+
+        void put(long pair) throws IOException {
+            if (chunk == null || !chunk.hasRemaining()) {
+                long longs = Math.min(count - written, 1L << CHUNK_SHIFT);
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset + 8 * written, 8 * longs)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            chunk.put(pair);
+            written++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0, MAGIC);
+                header.putShort(4, (short) VERSION);
+                header.put(6, dense ? DENSE : SPARSE);
+                header.putInt(8, size);
+                header.putLong(16, HEADER);
+                header.putLong(24, dictionaryLength);
+                header.putLong(32, dataOffset);
+                header.putLong(40, dataLength);
+                header.putLong(48, count);
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(false);
+                header.putLong(56, checksum(channel, HEADER, dictionaryLength, dataOffset, dataLength));
+                header.position(56);
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            } finally {
+                chunk = null;
+                channel.close();
+            }
+        }
+
+    }
+
+}
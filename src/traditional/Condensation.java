@@ -0,0 +1,124 @@
+package traditional;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of a relation viewed as a directed graph on its ids, found
+ * with an iterative Tarjan search so deep paths do not exhaust the call stack. Tarjan emits a
+ * component only after every component it reaches, so component ids are a reverse
+ * topological order of the condensation: every edge between components goes from a higher id
+ * to a lower one.
+ */
+class Condensation {
+
+    private final int count;
+    // component of each element id
+    private final int[] component;
+    // members of component c are members[memberStart[c]] .. members[memberStart[c + 1] - 1]
+    private final int[] memberStart;
+    private final int[] members;
+    // whether a component lies on a cycle, i.e. has two members or a loop
+    private final boolean[] cyclic;
+
+    Condensation(PairSet pairs, int size) {
+        PairIndex successors = PairIndex.byFirst(pairs, size);
+        component = new int[size];
+        Arrays.fill(component, -1);
+        int[] order = new int[size];
+        int[] low = new int[size];
+        Arrays.fill(order, -1);
+        int[] stack = new int[size];
+        int stackTop = 0;
+        boolean[] onStack = new boolean[size];
+        // explicit call stack of (node, next successor position)
+        int[] callNode = new int[size];
+        int[] callPosition = new int[size];
+        int counter = 0;
+        int components = 0;
+        for (int root = 0; root < size; root++) {
+            if (order[root] >= 0) continue;
+            int depth = 0;
+            callNode[0] = root;
+            callPosition[0] = successors.start(root);
+            order[root] = low[root] = counter++;
+            stack[stackTop++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callPosition[depth] < successors.end(node)) {
+                    int next = successors.partner(callPosition[depth]++);
+                    if (order[next] < 0) {
+                        order[next] = low[next] = counter++;
+                        stack[stackTop++] = next;
+                        onStack[next] = true;
+                        depth++;
+                        callNode[depth] = next;
+                        callPosition[depth] = successors.start(next);
+                    } else if (onStack[next]) {
+                        low[node] = Math.min(low[node], order[next]);
+                    }
+                    continue;
+                }
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackTop];
+                        onStack[member] = false;
+                        component[member] = components;
+                    } while (member != node);
+                    components++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+            }
+        }
+        count = components;
+        memberStart = new int[count + 1];
+        for (int id = 0; id < size; id++) {
+            memberStart[component[id] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            memberStart[c + 1] += memberStart[c];
+        }
+        members = new int[size];
+        int[] next = memberStart.clone();
+        for (int id = 0; id < size; id++) {
+            members[next[component[id]]++] = id;
+        }
+        cyclic = new boolean[count];
+        for (int c = 0; c < count; c++) {
+            cyclic[c] = memberStart[c + 1] - memberStart[c] > 1;
+        }
+        pairs.forEach(pair -> {
+            if (PairSet.first(pair) == PairSet.second(pair)) cyclic[component[PairSet.first(pair)]] = true;
+        });
+    }
+
+    int count() {
+        return count;
+    }
+
+    int componentOf(int id) {
+        return component[id];
+    }
+
+    int memberStart(int c) {
+        return memberStart[c];
+    }
+
+    int memberEnd(int c) {
+        return memberStart[c + 1];
+    }
+
+    int member(int position) {
+        return members[position];
+    }
+
+    boolean isCyclic(int c) {
+        return cyclic[c];
+    }
+
+}
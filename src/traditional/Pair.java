@@ -1,9 +1,11 @@
 package traditional;
 
+import java.util.Objects;
+
 public class Pair<T> {
 
-    private T first;
-    private T second;
+    private final T first;
+    private final T second;
 
     public Pair(T first, T second) {
         this.first = first;
@@ -18,9 +20,23 @@ public class Pair<T> {
         return second;
     }
 
-    public void reverse() {
-        T temp = first;
-        first = second;
-        second = temp;
+    /**
+     * @return (β, α) for self = (α, β)
+     */
+    public Pair<T> reversed() {
+        return new Pair<>(second, first);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Pair)) return false;
+        Pair<?> other = (Pair<?>) o;
+        return Objects.equals(first, other.first) && Objects.equals(second, other.second);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(first) + Objects.hashCode(second);
     }
 }
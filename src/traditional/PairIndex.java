@@ -0,0 +1,85 @@
+package traditional;
+
+import java.util.Arrays;
+
+/**
+ * Hash-join index over the pairs of a relation, mapping each element id to its partners on
+ * the other side. Partners are grouped per key in one int array (compressed rows), so
+ * indexing S by first component turns R | S into an equi-join on R.second = S.first that
+ * probes one contiguous slice per pair of R.
+ */
+class PairIndex {
+
+    private int size;
+    // partners of key k are partners[start[k]] .. partners[start[k + 1] - 1]
+    private int[] start = new int[1];
+    private int[] partners = new int[0];
+
+    /**
+     * An empty index to be filled with index(), so one set of arrays serves many relations
+     */
+    PairIndex() {
+    }
+
+    private PairIndex(PairSet pairs, int size, boolean byFirst) {
+        index(pairs, size, byFirst);
+    }
+
+    /**
+     * Rebuilds the index in place, reusing the arrays whenever they are large enough
+     */
+    void index(PairSet pairs, int size, boolean byFirst) {
+        this.size = size;
+        if (start.length < size + 1) start = new int[size + 1];
+        else Arrays.fill(start, 0, size + 1, 0);
+        if (partners.length < pairs.size()) partners = new int[pairs.size()];
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.slot(slot);
+            if (pair != PairSet.EMPTY) start[(byFirst ? PairSet.first(pair) : PairSet.second(pair)) + 1]++;
+        }
+        for (int key = 0; key < size; key++) {
+            start[key + 1] += start[key];
+        }
+        // place every partner at start[key]++, which leaves start[key] at the end of the slice
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.slot(slot);
+            if (pair == PairSet.EMPTY) continue;
+            if (byFirst) partners[start[PairSet.first(pair)]++] = PairSet.second(pair);
+            else partners[start[PairSet.second(pair)]++] = PairSet.first(pair);
+        }
+        // and shift back so start[key] is the beginning again
+        System.arraycopy(start, 0, start, 1, size);
+        start[0] = 0;
+    }
+
+    /**
+     * @return α ↦ {β : (α, β) ∈ pairs}
+     */
+    static PairIndex byFirst(PairSet pairs, int size) {
+        return new PairIndex(pairs, size, true);
+    }
+
+    /**
+     * @return β ↦ {α : (α, β) ∈ pairs}
+     */
+    static PairIndex bySecond(PairSet pairs, int size) {
+        return new PairIndex(pairs, size, false);
+    }
+
+    int start(int key) {
+        return start[key];
+    }
+
+    int end(int key) {
+        return start[key + 1];
+    }
+
+    int partner(int position) {
+        return partners[position];
+    }
+
+    int degree(int key) {
+        return start[key + 1] - start[key];
+    }
+
+}
@@ -0,0 +1,242 @@
+package traditional;
+
+import universe.PackedPairs;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash set of pairs of element ids, each pair packed into one long as
+ * (first << 32) | second. Ids are non-negative ints, so packed pairs are never negative and
+ * -1 can mark an empty slot. Collisions are resolved by linear probing and removals shift
+ * the following run back, so lookups never need tombstones.
+ */
+class PairSet {
+
+    static final long EMPTY = PackedPairs.EMPTY;
+    private static final int MIN_CAPACITY = 16;
+    /** largest table an int-indexed array of slots can double into */
+    static final int MAX_CAPACITY = 1 << 30;
+    /** most pairs the table holds at a load factor of 1/2 */
+    static final int MAX_SIZE = MAX_CAPACITY / 2;
+
+    private long[] slots;
+    private int size;
+    private int mask;
+
+    PairSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize number of pairs expected, a hint capped at MAX_SIZE; the table
+     *                     still grows up to MAX_SIZE pairs when the hint is too small
+     */
+    PairSet(long expectedSize) {
+        long wanted = 2 * Math.min(MAX_SIZE, expectedSize);
+        int capacity = MIN_CAPACITY;
+        // keep the load factor at or below 1/2
+        while (capacity < wanted) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    static long pair(int first, int second) {
+        return PackedPairs.pair(first, second);
+    }
+
+    static int first(long pair) {
+        return PackedPairs.first(pair);
+    }
+
+    static int second(long pair) {
+        return PackedPairs.second(pair);
+    }
+
+    static long reverse(long pair) {
+        return (pair << 32) | (pair >>> 32);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(long pair) {
+        return slots[PackedPairs.find(slots, pair)] == pair;
+    }
+
+    boolean contains(int first, int second) {
+        return contains(pair(first, second));
+    }
+
+    /**
+     * @return whether the pair was not present before
+     */
+    boolean add(long pair) {
+        int slot = PackedPairs.find(slots, pair);
+        if (slots[slot] == pair) return false;
+        slots[slot] = pair;
+        if (++size * 2 > slots.length) grow();
+        return true;
+    }
+
+    boolean add(int first, int second) {
+        return add(pair(first, second));
+    }
+
+    /**
+     * @return whether the pair was present
+     */
+    boolean remove(long pair) {
+        int slot = PackedPairs.find(slots, pair);
+        if (slots[slot] == EMPTY) return false;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (slots[next] != EMPTY) {
+            if (PackedPairs.shiftsBack(slots, gap, next)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    private void grow() {
+        if (slots.length >= MAX_CAPACITY) {
+            throw new OutOfMemoryError("a pair set holds at most " + MAX_SIZE + " pairs");
+        }
+        long[] old = slots;
+        allocate(old.length << 1);
+        for (long pair : old) {
+            if (pair != EMPTY) add(pair);
+        }
+    }
+
+    /**
+     * Slots can be walked directly, for loops that must not allocate a consumer
+     * @return number of slots
+     */
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the pair in the slot, or EMPTY
+     */
+    long slot(int index) {
+        return slots[index];
+    }
+
+    void forEach(LongConsumer action) {
+        for (long pair : slots) {
+            if (pair != EMPTY) action.accept(pair);
+        }
+    }
+
+    /**
+     * @return whether every pair satisfies the predicate, stopping at the first that does not
+     */
+    boolean allMatch(LongPredicate predicate) {
+        for (long pair : slots) {
+            if (pair != EMPTY && !predicate.test(pair)) return false;
+        }
+        return true;
+    }
+
+    PairSet copy() {
+        PairSet copy = new PairSet();
+        copy.slots = slots.clone();
+        copy.mask = mask;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return self ∪ S
+     */
+    PairSet union(PairSet other) {
+        PairSet larger = size >= other.size ? this : other;
+        PairSet smaller = larger == this ? other : this;
+        PairSet union = larger.copy();
+        for (long pair : smaller.slots) {
+            if (pair != EMPTY) union.add(pair);
+        }
+        return union;
+    }
+
+    /**
+     * @return self ∩ S
+     */
+    PairSet intersection(PairSet other) {
+        PairSet larger = size >= other.size ? this : other;
+        PairSet smaller = larger == this ? other : this;
+        PairSet intersection = new PairSet(smaller.size);
+        for (long pair : smaller.slots) {
+            if (pair != EMPTY && larger.contains(pair)) intersection.add(pair);
+        }
+        return intersection;
+    }
+
+    /**
+     * @return self \ S
+     */
+    PairSet difference(PairSet other) {
+        PairSet difference = new PairSet(size);
+        for (long pair : slots) {
+            if (pair != EMPTY && !other.contains(pair)) difference.add(pair);
+        }
+        return difference;
+    }
+
+    /**
+     * @return {(β, α) : (α, β) ∈ self}
+     */
+    PairSet converse() {
+        PairSet converse = new PairSet(size);
+        for (long pair : slots) {
+            if (pair != EMPTY) converse.add(reverse(pair));
+        }
+        return converse;
+    }
+
+    /**
+     * @return S ⊆ self
+     */
+    boolean containsAll(PairSet other) {
+        if (other.size > size) return false;
+        for (long pair : other.slots) {
+            if (pair != EMPTY && !contains(pair)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return |self \ S|
+     */
+    int countNotIn(PairSet other) {
+        int count = 0;
+        for (long pair : slots) {
+            if (pair != EMPTY && !other.contains(pair)) count++;
+        }
+        return count;
+    }
+
+    boolean isEqual(PairSet other) {
+        return size == other.size && containsAll(other);
+    }
+
+}
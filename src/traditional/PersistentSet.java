@@ -0,0 +1,366 @@
+package traditional;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Immutable hash set with structural sharing: a hash array mapped trie that branches 32 ways
+ * on five bits of the hash per level. with() and without() copy only the path from the root
+ * to the element, O(log₃₂ n) nodes of at most 32 entries, and share everything else with the
+ * set they started from, so every earlier version stays valid. Nodes are never modified after
+ * construction and every field is final, so versions can be read from any thread.
+ * Elements whose 32-bit hashes are equal end up together in a collision node at the bottom.
+ */
+final class PersistentSet<E> extends AbstractCollection<E> {
+
+    private static final PersistentSet<?> EMPTY = new PersistentSet<>(BitmapNode.EMPTY, 0);
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // the last level that still has hash bits to branch on
+    private static final int MAX_SHIFT = 30;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentSet(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> PersistentSet<E> empty() {
+        return (PersistentSet<E>) EMPTY;
+    }
+
+    static <E> PersistentSet<E> of(Collection<? extends E> elements) {
+        PersistentSet<E> set = empty();
+        for (E element : elements) {
+            set = set.with(element);
+        }
+        return set;
+    }
+
+    private static int hash(Object element) {
+        int h = element == null ? 0 : element.hashCode();
+        // spread the high bits down, the low bits pick the first branches
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return root.contains(0, hash(element), element);
+    }
+
+    /**
+     * @return the set with the element added; self if it was there already
+     */
+    PersistentSet<E> with(E element) {
+        Node updated = root.with(0, hash(element), element);
+        return updated == root ? this : new PersistentSet<>(updated, size + 1);
+    }
+
+    /**
+     * @return the set without the element; self if it was not there
+     */
+    PersistentSet<E> without(Object element) {
+        Node updated = root.without(0, hash(element), element);
+        if (updated == root) return this;
+        return new PersistentSet<>(updated == null ? BitmapNode.EMPTY : updated, size - 1);
+    }
+
+    /**
+     * Adds the smaller set to the larger one, so the result shares the larger one's nodes
+     * @return self ∪ S
+     */
+    PersistentSet<E> union(PersistentSet<E> other) {
+        PersistentSet<E> larger = size >= other.size ? this : other;
+        PersistentSet<E> smaller = larger == this ? other : this;
+        PersistentSet<E> union = larger;
+        for (E element : smaller) {
+            union = union.with(element);
+        }
+        return union;
+    }
+
+    /**
+     * Removes from the smaller set what the larger one lacks
+     * @return self ∩ S
+     */
+    PersistentSet<E> intersection(PersistentSet<E> other) {
+        PersistentSet<E> larger = size >= other.size ? this : other;
+        PersistentSet<E> smaller = larger == this ? other : this;
+        PersistentSet<E> intersection = smaller;
+        for (E element : smaller) {
+            if (!larger.contains(element)) intersection = intersection.without(element);
+        }
+        return intersection;
+    }
+
+    /**
+     * Walks whichever side is smaller and removes the shared elements from self
+     * @return self \ S
+     */
+    PersistentSet<E> difference(PersistentSet<E> other) {
+        if (other.size <= size) {
+            PersistentSet<E> difference = this;
+            for (E element : other) {
+                difference = difference.without(element);
+            }
+            return difference;
+        }
+        PersistentSet<E> difference = this;
+        for (E element : this) {
+            if (other.contains(element)) difference = difference.without(element);
+        }
+        return difference;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> elements) {
+        if (elements instanceof PersistentSet && elements.size() > size) return false;
+        return super.containsAll(elements);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        root.forEach(action);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            // nodes on the path to the next element and the next entry index in each
+            private final Node[] nodes = new Node[MAX_SHIFT / BITS + 2];
+            private final int[] positions = new int[nodes.length];
+            private int depth = 0;
+            private Object next;
+
+            {
+                nodes[0] = root;
+                advance();
+            }
+
+            private void advance() {
+                next = null;
+                while (depth >= 0) {
+                    Node node = nodes[depth];
+                    Object[] entries = node.entries();
+                    if (positions[depth] == entries.length) {
+                        depth--;
+                        continue;
+                    }
+                    Object entry = entries[positions[depth]++];
+                    if (entry instanceof Node) {
+                        depth++;
+                        nodes[depth] = (Node) entry;
+                        positions[depth] = 0;
+                    } else {
+                        next = entry;
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return depth >= 0;
+            }
+
+            @Override
+            public E next() {
+                if (depth < 0) throw new NoSuchElementException();
+                Object element = next;
+                advance();
+                return (E) element;
+            }
+        };
+    }
+
+    /**
+     * Entries are elements or child nodes; a child node never holds fewer than two elements
+     */
+    private abstract static class Node {
+
+        abstract Object[] entries();
+
+        abstract boolean contains(int shift, int hash, Object element);
+
+        abstract Node with(int shift, int hash, Object element);
+
+        /**
+         * @return the node without the element, self if unchanged, or null once empty
+         */
+        abstract Node without(int shift, int hash, Object element);
+
+        @SuppressWarnings("unchecked")
+        <E> void forEach(Consumer<? super E> action) {
+            for (Object entry : entries()) {
+                if (entry instanceof Node) ((Node) entry).forEach(action);
+                else action.accept((E) entry);
+            }
+        }
+
+    }
+
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        // bit i is set when branch i is present, entries holds the present branches in order
+        private final int bitmap;
+        private final Object[] entries;
+
+        BitmapNode(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        @Override
+        Object[] entries() {
+            return entries;
+        }
+
+        private int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        boolean contains(int shift, int hash, Object element) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return false;
+            Object entry = entries[position(bit)];
+            if (entry instanceof Node) return ((Node) entry).contains(shift + BITS, hash, element);
+            return entry == null ? element == null : entry.equals(element);
+        }
+
+        @Override
+        Node with(int shift, int hash, Object element) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int position = position(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[entries.length + 1];
+                System.arraycopy(entries, 0, grown, 0, position);
+                grown[position] = element;
+                System.arraycopy(entries, position, grown, position + 1, entries.length - position);
+                return new BitmapNode(bitmap | bit, grown);
+            }
+            Object entry = entries[position];
+            Node child;
+            if (entry instanceof Node) {
+                child = ((Node) entry).with(shift + BITS, hash, element);
+                if (child == entry) return this;
+            } else {
+                if (entry == null ? element == null : entry.equals(element)) return this;
+                child = pair(shift + BITS, entry, hash(entry), element, hash);
+            }
+            return replace(position, child);
+        }
+
+        @Override
+        Node without(int shift, int hash, Object element) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return this;
+            int position = position(bit);
+            Object entry = entries[position];
+            if (entry instanceof Node) {
+                Node child = ((Node) entry).without(shift + BITS, hash, element);
+                if (child == entry) return this;
+                // a child left with one element gives it back to this level
+                if (child == null) return remove(bit, position);
+                Object[] childEntries = child.entries();
+                if (childEntries.length == 1 && !(childEntries[0] instanceof Node)) return replace(position, childEntries[0]);
+                return replace(position, child);
+            }
+            if (!(entry == null ? element == null : entry.equals(element))) return this;
+            return remove(bit, position);
+        }
+
+        private Node replace(int position, Object entry) {
+            Object[] copy = entries.clone();
+            copy[position] = entry;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private Node remove(int bit, int position) {
+            if (entries.length == 1) return null;
+            Object[] shrunk = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, shrunk, 0, position);
+            System.arraycopy(entries, position + 1, shrunk, position, shrunk.length - position);
+            return new BitmapNode(bitmap & ~bit, shrunk);
+        }
+
+        /**
+         * @return a node holding two distinct elements, branching where their hashes differ
+         */
+        private static Node pair(int shift, Object first, int firstHash, Object second, int secondHash) {
+            if (shift > MAX_SHIFT) return new CollisionNode(firstHash, new Object[]{first, second});
+            int firstIndex = (firstHash >>> shift) & MASK;
+            int secondIndex = (secondHash >>> shift) & MASK;
+            if (firstIndex == secondIndex) {
+                return new BitmapNode(1 << firstIndex, new Object[]{pair(shift + BITS, first, firstHash, second, secondHash)});
+            }
+            Object[] entries = firstIndex < secondIndex ? new Object[]{first, second} : new Object[]{second, first};
+            return new BitmapNode((1 << firstIndex) | (1 << secondIndex), entries);
+        }
+
+    }
+
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] entries;
+
+        CollisionNode(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        Object[] entries() {
+            return entries;
+        }
+
+        private int indexOf(Object element) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] == null ? element == null : entries[i].equals(element)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        boolean contains(int shift, int hash, Object element) {
+            return hash == this.hash && indexOf(element) >= 0;
+        }
+
+        @Override
+        Node with(int shift, int hash, Object element) {
+            if (indexOf(element) >= 0) return this;
+            Object[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = element;
+            return new CollisionNode(this.hash, grown);
+        }
+
+        @Override
+        Node without(int shift, int hash, Object element) {
+            int index = indexOf(element);
+            if (index < 0) return this;
+            if (entries.length == 1) return null;
+            Object[] shrunk = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, shrunk, 0, index);
+            System.arraycopy(entries, index + 1, shrunk, index, shrunk.length - index);
+            return new CollisionNode(this.hash, shrunk);
+        }
+
+    }
+
+}
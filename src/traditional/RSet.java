@@ -1,51 +1,121 @@
 package traditional;
 
+import universe.Universe;
+
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.stream.Collectors;
+import java.util.Iterator;
 
-public class RSet<T> {
+/**
+ * Immutable set of elements backed by a PersistentSet, so union, intersection, relative
+ * complement, with() and without() share structure with their operands instead of copying
+ * them, and every version stays valid and readable from any thread.
+ */
+public class RSet<T> implements Iterable<T> {
 
     // todo consider arraylist (much more work)
     // todo make work with open sets
 
-    private Relation<T> identity = null;
-    private final HashSet<T> elements;
+    // built on first use under the lock of the set; volatile so the unlocked first check
+    // never sees a relation that is still being constructed
+    private volatile Relation<T> identity = null;
+    private volatile Relation<T> universal = null;
+    private volatile Universe<T> universe = null;
+    private final PersistentSet<T> elements;
 
     public RSet(HashSet<T> elements) {
-        this.elements = elements;
+        this.elements = PersistentSet.of(elements);
     }
 
     public RSet(Collection<T> elements) {
-        this.elements = new HashSet<>(elements);
+        this.elements = PersistentSet.of(elements);
     }
 
     public RSet(T[] elements) {
-        this.elements = new HashSet<>(Arrays.asList(elements));
+        this.elements = PersistentSet.of(Arrays.asList(elements));
     }
 
 
     public RSet() {
-        this.elements = new HashSet<>();
+        this.elements = PersistentSet.empty();
+    }
+
+    private RSet(PersistentSet<T> elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * @param universe U, whose ids relations over this set will share
+     */
+    public RSet(Universe<T> universe) {
+        this.elements = PersistentSet.of(universe.getElements());
+        this.universe = universe;
     }
 
+    /**
+     * Mutable copy, built on every call; changes to it do not reach the set
+     * @return the elements of self
+     */
     public HashSet<T> getElements() {
-        return elements;
+        return new HashSet<>(elements);
     }
 
     public int size() {
         return elements.size();
     }
 
+    @Override
+    public Iterator<T> iterator() {
+        return elements.iterator();
+    }
+
+    /**
+     * α ∈ R
+     * @return whether the element is in self
+     */
+    public boolean containsElement(T element) {
+        return elements.contains(element);
+    }
+
+    /**
+     * O(log n), sharing everything but one path with self
+     * @return self ∪ {α}
+     */
+    public RSet<T> with(T element) {
+        PersistentSet<T> updated = elements.with(element);
+        return updated == elements ? this : new RSet<>(updated);
+    }
+
+    /**
+     * O(log n), sharing everything but one path with self
+     * @return self \ {α}
+     */
+    public RSet<T> without(T element) {
+        PersistentSet<T> updated = elements.without(element);
+        return updated == elements ? this : new RSet<>(updated);
+    }
+
+    /**
+     * Interned form of this set used by the relations over it; built on first use, so the set
+     * must not be modified once a relation has been built over it
+     * @return U
+     */
+    public Universe<T> getUniverse() {
+        Universe<T> universe = this.universe;
+        if (universe != null) return universe;
+        synchronized (this) {
+            if (this.universe == null) this.universe = new Universe<>(elements);
+            return this.universe;
+        }
+    }
+
     /**
      * @param otherSet S
      * @return self ∪ S
      */
     public RSet<T> union(RSet<T> otherSet) {
-        HashSet<T> unionSet = new HashSet<>(elements);
-        unionSet.addAll(otherSet.elements);
-        return new RSet<>(unionSet);
+        return new RSet<>(elements.union(otherSet.elements));
     }
 
     /**
@@ -53,9 +123,7 @@ public class RSet<T> {
      * @return self ∩ S
      */
     public RSet<T> intersection(RSet<T> otherSet) {
-        HashSet<T> intersectSet = new HashSet<>(elements);
-        intersectSet.retainAll(otherSet.elements);
-        return new RSet<>(intersectSet);
+        return new RSet<>(elements.intersection(otherSet.elements));
     }
 
     /**
@@ -63,9 +131,7 @@ public class RSet<T> {
      * @return self \ S
      */
     public RSet<T> relativeComplement(RSet<T> otherSet) {
-        HashSet<T> differenceSet = new HashSet<>(elements);
-        differenceSet.removeAll(otherSet.elements);
-        return new RSet<>(differenceSet);
+        return new RSet<>(elements.difference(otherSet.elements));
     }
 
     /**
@@ -73,12 +139,18 @@ public class RSet<T> {
      * @return idU
      */
     public Relation<T> identityRelation() {
-        if (identity == null) {
-            HashSet<Pair<T>> identityPairs = elements.stream().map(e -> new Pair<>(e, e)).collect(Collectors.toCollection(HashSet::new));
-            identity = new Relation<>(this, new RSet<>(identityPairs));
+        Relation<T> identity = this.identity;
+        if (identity != null) return identity;
+        synchronized (this) {
+            if (this.identity == null) {
+                PairSet identityPairs = new PairSet(size());
+                for (int id = 0; id < size(); id++) {
+                    identityPairs.add(id, id);
+                }
+                this.identity = new Relation<>(this, identityPairs);
+            }
+            return this.identity;
         }
-        return identity;
-
     }
 
     /**
@@ -86,24 +158,23 @@ public class RSet<T> {
      * @return ∅
      */
     public Relation<T> emptyRelation() {
-        return new Relation<>(this, new RSet<>());
+        return new Relation<>(this, new PairSet());
         // traditional.Relation<T> identity = identityRelation();
         // return identity.complement().union(identity).complement();
     }
 
     /**
      * U × U = {(α, β) : α, β ∈ U}
-     * U × U = ∼idU ∪ idU
+     * U × U = ∼∅
      * @return U × U
      */
     public Relation<T> universalRelation() {
-        try {
-            Relation<T> identity = identityRelation();
-            return identity.complement().union(identity);
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
+        Relation<T> universal = this.universal;
+        if (universal != null) return universal;
+        synchronized (this) {
+            if (this.universal == null) this.universal = emptyRelation().complement();
+            return this.universal;
         }
-        return null;
     }
 
     /**
@@ -130,7 +201,7 @@ public class RSet<T> {
      * @return self = S
      */
     public boolean equals(RSet<T> otherSet) {
-        return elements.equals(otherSet.elements);
+        return elements.size() == otherSet.elements.size() && elements.containsAll(otherSet.elements);
     }
 
 }
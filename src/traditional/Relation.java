@@ -1,10 +1,20 @@
 package traditional;
 
+import matrix.BitMatrix;
 import matrix.MRelation;
-
+import metrics.Backend;
+import metrics.Metrics;
+import metrics.Operation;
+import universe.IdPairConsumer;
+import universe.PairCoverage;
+import universe.RelationProperty;
+import universe.Universe;
+
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.PrimitiveIterator;
 
 public class Relation<T> {
 
@@ -12,52 +22,240 @@ public class Relation<T> {
     //  quasi-projections) to a separate service class
 
     private final RSet<T> universalSet;
-    private final RSet<Pair<T>> pairs;
+    private final Universe<T> universe;
+    // pairs of element ids as assigned by universe
+    private final PairSet pairs;
+    // when set the relation is ∼pairs, so complement only flips this flag
+    private final boolean negated;
 
     public Relation(RSet<T> universalSet, RSet<Pair<T>> pairs) {
         this.universalSet = universalSet;
-        this.pairs = pairs;
+        this.universe = universalSet.getUniverse();
+        this.pairs = new PairSet(pairs.size());
+        this.negated = false;
+        for (Pair<T> pair : pairs) {
+            int first = universe.indexOf(pair.getFirst());
+            int second = universe.indexOf(pair.getSecond());
+            if (first < 0 || second < 0) throw new IllegalArgumentException("pair is not in U × U");
+            this.pairs.add(first, second);
+        }
     }
 
     public Relation(MRelation<T> relation) {
-        List<T> universalSet = relation.getUniversalSet();
-        this.universalSet = new RSet<>(relation.getUniversalSet());
-        boolean[][] matrix = relation.getMatrix();
-        HashSet<Pair<T>> elements = new HashSet<>();
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix.length; j++) {
-                if (matrix[i][j]) {
-                    elements.add(new Pair<>(universalSet.get(i), universalSet.get(j)));
-                }
+        // both relations share the universe, so matrix indices are already ids
+        this.universe = relation.getUniverse();
+        this.universalSet = new RSet<>(universe);
+        this.negated = false;
+        BitMatrix matrix = relation.getBits();
+        this.pairs = new PairSet(matrix.cardinality());
+        for (int i = 0; i < matrix.size(); i++) {
+            for (int j = matrix.nextSetBit(i, 0); j >= 0; j = matrix.nextSetBit(i, j + 1)) {
+                pairs.add(i, j);
             }
         }
-        this.pairs = new RSet<>(elements);
+    }
+
+    Relation(RSet<T> universalSet, PairSet pairs) {
+        this(universalSet, pairs, false);
+    }
+
+    Relation(RSet<T> universalSet, PairSet pairs, boolean negated) {
+        this.universalSet = universalSet;
+        this.universe = universalSet.getUniverse();
+        this.pairs = pairs;
+        this.negated = negated;
+    }
+
+    /**
+     * Builds a relation straight from pairs of element ids, without boxing
+     * @param universalSet U
+     * @param pairs ids of U packed as (first << 32) | second
+     * @param expectedSize number of pairs, to size the table once
+     * @return the relation holding the pairs
+     * @throws OutOfMemoryError if there are more pairs than one table can hold
+     */
+    public static <T> Relation<T> fromPackedPairs(RSet<T> universalSet, PrimitiveIterator.OfLong pairs, long expectedSize) {
+        int n = universalSet.getUniverse().size();
+        PairSet stored = new PairSet(expectedSize);
+        while (pairs.hasNext()) {
+            long pair = pairs.nextLong();
+            int first = PairSet.first(pair);
+            int second = PairSet.second(pair);
+            if (first < 0 || first >= n || second < 0 || second >= n) throw new IllegalArgumentException("pair is not in U × U");
+            stored.add(pair);
+        }
+        return new Relation<>(universalSet, stored);
     }
 
     public RSet<T> getUniversalSet() {
         return universalSet;
     }
 
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    /**
+     * Boxed view of the pairs, built on every call; changes to it do not reach the relation
+     * @return the pairs of self
+     */
     public RSet<Pair<T>> getPairs() {
+        HashSet<Pair<T>> elements = new HashSet<>();
+        forEachPair((first, second) -> elements.add(new Pair<>(universe.get(first), universe.get(second))));
+        return new RSet<>(elements);
+    }
+
+    /**
+     * Streams the pairs as ids of the universe, without boxing
+     * @param action receives (α, β) for every pair in self
+     */
+    public void forEachPair(IdPairConsumer action) {
+        if (!negated) {
+            pairs.forEach(pair -> action.accept(PairSet.first(pair), PairSet.second(pair)));
+            return;
+        }
+        int n = universe.size();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!pairs.contains(i, j)) action.accept(i, j);
+            }
+        }
+    }
+
+    /**
+     * @return number of pairs in self
+     */
+    public long size() {
+        return negated ? (long) universe.size() * universe.size() - pairs.size() : pairs.size();
+    }
+
+    /**
+     * (α, β) ∈ R
+     * @return whether the pair is in self
+     */
+    public boolean contains(T first, T second) {
+        int firstId = universe.indexOf(first);
+        int secondId = universe.indexOf(second);
+        return firstId >= 0 && secondId >= 0 && contains(firstId, secondId);
+    }
+
+    private boolean contains(int first, int second) {
+        return pairs.contains(first, second) != negated;
+    }
+
+    /**
+     * Pairs of S renumbered to the ids of self; S must range over an equal universal set
+     * @param otherRelation S
+     * @return the stored pairs of S as ids of self
+     */
+    private PairSet alignedPairs(Relation<T> otherRelation) {
+        if (universe.hasSameOrder(otherRelation.universe)) return otherRelation.pairs;
+        int[] ids = new int[otherRelation.universe.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = universe.indexOf(otherRelation.universe.get(id));
+        }
+        PairSet aligned = new PairSet(otherRelation.pairs.size());
+        otherRelation.pairs.forEach(pair -> aligned.add(ids[PairSet.first(pair)], ids[PairSet.second(pair)]));
+        return aligned;
+    }
+
+    /**
+     * @return whether self is kept as the complement of its stored pairs
+     */
+    public boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * @return the pairs as stored, i.e. the complement of self when self is negated
+     */
+    PairSet storedPairs() {
         return pairs;
     }
 
+    /**
+     * @return the pairs of S, materialised if S is negated, as ids of self
+     */
+    PairSet alignedPositivePairs(Relation<T> otherRelation) {
+        PairSet aligned = alignedPairs(otherRelation);
+        return otherRelation.negated ? complementOf(aligned, universe.size()) : aligned;
+    }
+
+    /**
+     * @return a relation over the universal set of self with the given pairs
+     */
+    Relation<T> withPairs(PairSet pairs) {
+        return new Relation<>(universalSet, pairs);
+    }
+
+    /**
+     * Materialises the complement of stored pairs
+     * @return U × U \ stored
+     */
+    private static PairSet complementOf(PairSet stored, int n) {
+        PairSet complement = new PairSet((long) n * n - stored.size());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!stored.contains(i, j)) complement.add(i, j);
+            }
+        }
+        return complement;
+    }
+
+    /**
+     * @return the pairs of self, materialised if self is negated
+     */
+    private PairSet positivePairs() {
+        return negated ? complementOf(pairs, universe.size()) : pairs;
+    }
+
+    /**
+     * Reports the operation to the metrics listeners if the probe was started
+     * @param otherRelation S, or null for unary operators
+     * @return the result, unchanged
+     */
+    private Relation<T> measured(Metrics.Probe probe, Relation<T> otherRelation, Relation<T> result) {
+        if (probe != null) probe.stop().record(Backend.PAIRS, universe.size(), size(), otherRelation == null ? -1 : otherRelation.size(), result.size());
+        return result;
+    }
+
+    private boolean measured(Metrics.Probe probe, Relation<T> otherRelation, boolean result) {
+        if (probe != null) probe.stop().record(Backend.PAIRS, universe.size(), size(), otherRelation.size(), -1);
+        return result;
+    }
+
     /**
      * R ∪ S = {(α, β):(α, β) ∈ R or (α, β) ∈ S}
      * @param otherRelation S
      * @return self ∪ S
      */
     public Relation<T> union(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return new Relation<>(universalSet, pairs.union(otherRelation.pairs));
+        Metrics.Probe probe = Metrics.start(Operation.UNION);
+        return measured(probe, otherRelation, unionOf(otherRelation));
+    }
+
+    private Relation<T> unionOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        if (!negated && !otherRelation.negated) return new Relation<>(universalSet, pairs.union(otherPairs));
+        // ∼A ∪ S = ∼(A ∼ S), R ∪ ∼B = ∼(B ∼ R) and ∼A ∪ ∼B = ∼(A ∩ B)
+        if (!otherRelation.negated) return new Relation<>(universalSet, pairs.difference(otherPairs), true);
+        if (!negated) return new Relation<>(universalSet, otherPairs.difference(pairs), true);
+        return new Relation<>(universalSet, pairs.intersection(otherPairs), true);
     }
 
     /**
      * ∼R = {(α, β):(α, β) ∈ U × U and (α, β) ∉ R}
+     * Costs O(1): the pairs are shared and only the negation flag flips
      * @return ∼self
      */
     public Relation<T> complement() {
-        return new Relation<>(universalSet, universalSet.universalRelation().pairs.relativeComplement(pairs));
+        Metrics.Probe probe = Metrics.start(Operation.COMPLEMENT);
+        return measured(probe, null, complementOf());
+    }
+
+    private Relation<T> complementOf() {
+        return new Relation<>(universalSet, pairs, !negated);
     }
 
     /**
@@ -67,12 +265,25 @@ public class Relation<T> {
      * @return self ∩ S
      */
     public Relation<T> intersection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return new Relation<>(universalSet, pairs.intersection(otherRelation.pairs));
+        Metrics.Probe probe = Metrics.start(Operation.INTERSECTION);
+        return measured(probe, otherRelation, intersectionOf(otherRelation));
+    }
+
+    private Relation<T> intersectionOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return intersection(alignedPairs(otherRelation), otherRelation.negated);
         // you can implement intersection using complement and union but easy to implement without
         // return complement().union(otherRelation.complement()).complement();
     }
 
+    private Relation<T> intersection(PairSet otherPairs, boolean otherNegated) {
+        if (!negated && !otherNegated) return new Relation<>(universalSet, pairs.intersection(otherPairs));
+        // R ∩ ∼B and ∼A ∩ S are and-not passes over the positive side, ∼A ∩ ∼B = ∼(A ∪ B)
+        if (otherNegated && !negated) return new Relation<>(universalSet, pairs.difference(otherPairs));
+        if (!otherNegated) return new Relation<>(universalSet, otherPairs.difference(pairs));
+        return new Relation<>(universalSet, pairs.union(otherPairs), true);
+    }
+
     /**
      * R ∼ S = {(α, β):(α, β) ∈ R and (α, β) ∉ S}
      * R ∼ S = R ∩ ∼S = ∼(∼R ∪ S)
@@ -80,8 +291,13 @@ public class Relation<T> {
      * @return self ∼ S
      */
     public Relation<T> difference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return complement().union(otherRelation).complement();
+        Metrics.Probe probe = Metrics.start(Operation.DIFFERENCE);
+        return measured(probe, otherRelation, differenceOf(otherRelation));
+    }
+
+    private Relation<T> differenceOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return intersection(alignedPairs(otherRelation), !otherRelation.negated);
     }
 
     /**
@@ -91,8 +307,19 @@ public class Relation<T> {
      * @return self Δ S
      */
     public Relation<T> symmetricDifference(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return difference(otherRelation).union(otherRelation.difference(this));
+        Metrics.Probe probe = Metrics.start(Operation.SYMMETRIC_DIFFERENCE);
+        return measured(probe, otherRelation, symmetricDifferenceOf(otherRelation));
+    }
+
+    private Relation<T> symmetricDifferenceOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        // ∼A Δ S = ∼(A Δ S) and ∼A Δ ∼B = A Δ B, so only the stored pairs are compared
+        PairSet otherPairs = alignedPairs(otherRelation);
+        PairSet symmetricDifference = pairs.difference(otherPairs);
+        otherPairs.forEach(pair -> {
+            if (!pairs.contains(pair)) symmetricDifference.add(pair);
+        });
+        return new Relation<>(universalSet, symmetricDifference, negated != otherRelation.negated);
     }
 
     /**
@@ -101,19 +328,64 @@ public class Relation<T> {
      * @return self | S
      */
     public Relation<T> composition(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        // todo not sure if this is the best way to do it if this works
-        HashSet<Pair<T>> selfElements = new HashSet<>(pairs.getElements());
-        HashSet<Pair<T>> otherElements = new HashSet<>(pairs.getElements());
-        HashSet<Pair<T>> composedElements = new HashSet<>();
-        for (Pair<T> selfPair : selfElements) {
-            for (Pair<T> otherPair : otherElements) {
-                if (selfPair.getSecond().equals(otherPair.getFirst())) {
-                    composedElements.add(new Pair<>(selfPair.getFirst(), otherPair.getSecond()));
+        Metrics.Probe probe = Metrics.start(Operation.COMPOSITION);
+        return measured(probe, otherRelation, compositionOf(otherRelation));
+    }
+
+    private Relation<T> compositionOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return new Relation<>(universalSet, compose(pairs, negated, alignedPairs(otherRelation), otherRelation.negated));
+    }
+
+    /**
+     * @return the pairs of L | R, where L is ∼left when leftNegated and likewise for R
+     */
+    private PairSet compose(PairSet left, boolean leftNegated, PairSet right, boolean rightNegated) {
+        int n = universe.size();
+        if (leftNegated && rightNegated) return composeNegatedLeft(left, complementOf(right, n));
+        if (leftNegated) return composeNegatedLeft(left, right);
+        // R | ∼B = (∼B⁻¹ | R⁻¹)⁻¹, which puts the negated operand on the left
+        if (rightNegated) return composeNegatedLeft(right.converse(), left.converse()).converse();
+        PairSet composed = new PairSet(Math.max(left.size(), right.size()));
+        // build the hash index on the smaller side and stream the larger one past it
+        if (right.size() <= left.size()) {
+            PairIndex rightIndex = PairIndex.byFirst(right, n);
+            left.forEach(pair -> {
+                int first = PairSet.first(pair);
+                int middle = PairSet.second(pair);
+                for (int p = rightIndex.start(middle); p < rightIndex.end(middle); p++) {
+                    composed.add(first, rightIndex.partner(p));
+                }
+            });
+        } else {
+            PairIndex leftIndex = PairIndex.bySecond(left, n);
+            right.forEach(pair -> {
+                int middle = PairSet.first(pair);
+                int second = PairSet.second(pair);
+                for (int p = leftIndex.start(middle); p < leftIndex.end(middle); p++) {
+                    composed.add(leftIndex.partner(p), second);
+                }
+            });
+        }
+        return composed;
+    }
+
+    /**
+     * ∼A | S: row α is the union of the S-rows at the gaps of row α of A
+     */
+    private PairSet composeNegatedLeft(PairSet left, PairSet right) {
+        int n = universe.size();
+        PairIndex rightIndex = PairIndex.byFirst(right, n);
+        PairSet composed = new PairSet(right.size());
+        for (int first = 0; first < n; first++) {
+            for (int middle = 0; middle < n; middle++) {
+                if (left.contains(first, middle)) continue;
+                for (int p = rightIndex.start(middle); p < rightIndex.end(middle); p++) {
+                    composed.add(first, rightIndex.partner(p));
                 }
             }
         }
-        return new Relation<>(universalSet, new RSet<>(composedElements));
+        return composed;
     }
 
     /**
@@ -123,8 +395,181 @@ public class Relation<T> {
      * @return self † S
      */
     public Relation<T> sum(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return complement().composition(otherRelation.complement()).complement();
+        Metrics.Probe probe = Metrics.start(Operation.SUM);
+        return measured(probe, otherRelation, sumOf(otherRelation));
+    }
+
+    private Relation<T> sumOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        // with S = ∼B the dual form ∼(∼R | B) only needs the flags flipped
+        if (otherRelation.negated) return new Relation<>(universalSet, compose(pairs, !negated, otherPairs, false), true);
+        // (α, β) ∈ R † S iff β ∈ S(γ) for every γ with (α, γ) ∉ R, so count for each β how
+        // many of the gaps of row α reach it through the index of S
+        int n = universe.size();
+        PairIndex otherIndex = PairIndex.byFirst(otherPairs, n);
+        PairSet summed = new PairSet();
+        int[] hits = new int[n];
+        rows:
+        for (int first = 0; first < n; first++) {
+            int gaps = 0;
+            Arrays.fill(hits, 0);
+            for (int middle = 0; middle < n; middle++) {
+                if (contains(first, middle)) continue;
+                if (otherIndex.degree(middle) == 0) continue rows;
+                gaps++;
+                for (int p = otherIndex.start(middle); p < otherIndex.end(middle); p++) {
+                    hits[otherIndex.partner(p)]++;
+                }
+            }
+            for (int second = 0; second < n; second++) {
+                if (hits[second] == gaps) summed.add(first, second);
+            }
+        }
+        return new Relation<>(universalSet, summed);
+    }
+
+    /**
+     * R\S = {(α, β):(γ, α) ∈ R implies (γ, β) ∈ S for all γ ∈ U}
+     * R\S = ∼(R⁻¹ | ∼S)
+     * @param otherRelation S
+     * @return self\S
+     */
+    public Relation<T> leftResidual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.LEFT_RESIDUAL);
+        return measured(probe, otherRelation, leftResidualOf(otherRelation));
+    }
+
+    private Relation<T> leftResidualOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        // pending complements go through the definition, whose composition takes them as flags
+        if (negated || otherRelation.negated) {
+            return new Relation<>(universalSet, compose(pairs.converse(), negated, otherPairs, !otherRelation.negated), true);
+        }
+        return residual(pairs, otherPairs, false);
+    }
+
+    /**
+     * S/R = {(α, β):(β, γ) ∈ R implies (α, γ) ∈ S for all γ ∈ U}
+     * S/R = ∼(∼S | R⁻¹) = (R⁻¹\S⁻¹)⁻¹
+     * @param otherRelation R
+     * @return self/R
+     */
+    public Relation<T> rightResidual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.RIGHT_RESIDUAL);
+        return measured(probe, otherRelation, rightResidualOf(otherRelation));
+    }
+
+    private Relation<T> rightResidualOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        if (negated || otherRelation.negated) {
+            return new Relation<>(universalSet, compose(pairs, !negated, otherPairs.converse(), otherRelation.negated), true);
+        }
+        return residual(otherPairs.converse(), pairs.converse(), false).converseOf();
+    }
+
+    /**
+     * syq(R, S) = {(α, β):(γ, α) ∈ R iff (γ, β) ∈ S for all γ ∈ U}
+     * syq(R, S) = R\S ∩ R⁻¹/S⁻¹
+     * @param otherRelation S
+     * @return syq(self, S)
+     */
+    public Relation<T> symmetricQuotient(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.SYMMETRIC_QUOTIENT);
+        return measured(probe, otherRelation, symmetricQuotientOf(otherRelation));
+    }
+
+    private Relation<T> symmetricQuotientOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        if (negated || otherRelation.negated) {
+            // R\S ∩ R⁻¹/S⁻¹ = ∼(R⁻¹ | ∼S) ∩ ∼(∼R⁻¹ | S) = ∼((R⁻¹ | ∼S) ∪ (∼R⁻¹ | S))
+            PairSet converse = pairs.converse();
+            PairSet left = compose(converse, negated, otherPairs, !otherRelation.negated);
+            PairSet right = compose(converse, !negated, otherPairs, otherRelation.negated);
+            return new Relation<>(universalSet, left.union(right), true);
+        }
+        return residual(pairs, otherPairs, true);
+    }
+
+    /**
+     * Row α of R\S is the intersection of the rows of S at the members of column α of R,
+     * seeded with the shortest of them and abandoned as soon as it is empty; an empty column
+     * gives all of U. For syq(R, S) the survivors must also have a column of S no larger than
+     * that of R, and an empty column gives the empty columns of S. The result is kept as
+     * whichever of itself and its complement has fewer pairs.
+     * @param equal whether to compute syq(R, S) rather than R\S
+     * @return R\S or syq(R, S), with R and S as stored pairs of self
+     */
+    private Relation<T> residual(PairSet left, PairSet right, boolean equal) {
+        int n = universe.size();
+        PairIndex columns = PairIndex.bySecond(left, n);
+        PairIndex rows = PairIndex.byFirst(right, n);
+        PairIndex rightColumns = equal ? PairIndex.bySecond(right, n) : null;
+        // null stands for the whole of U
+        int[] unconstrained = null;
+        if (equal) {
+            int count = 0;
+            int[] empty = new int[n];
+            for (int second = 0; second < n; second++) {
+                if (rightColumns.degree(second) == 0) empty[count++] = second;
+            }
+            unconstrained = Arrays.copyOf(empty, count);
+        }
+        int[][] members = new int[n][];
+        long size = 0;
+        int[] candidates = new int[n];
+        for (int first = 0; first < n; first++) {
+            int degree = columns.degree(first);
+            if (degree == 0) {
+                members[first] = unconstrained;
+                size += unconstrained == null ? n : unconstrained.length;
+                continue;
+            }
+            int seed = columns.partner(columns.start(first));
+            for (int p = columns.start(first); p < columns.end(first); p++) {
+                if (rows.degree(columns.partner(p)) < rows.degree(seed)) seed = columns.partner(p);
+            }
+            int count = 0;
+            for (int p = rows.start(seed); p < rows.end(seed); p++) {
+                int second = rows.partner(p);
+                if (!equal || rightColumns.degree(second) == degree) candidates[count++] = second;
+            }
+            for (int p = columns.start(first); p < columns.end(first) && count > 0; p++) {
+                int middle = columns.partner(p);
+                if (middle == seed) continue;
+                int kept = 0;
+                for (int c = 0; c < count; c++) {
+                    if (right.contains(middle, candidates[c])) candidates[kept++] = candidates[c];
+                }
+                count = kept;
+            }
+            members[first] = Arrays.copyOf(candidates, count);
+            size += count;
+        }
+        long cells = (long) n * n;
+        boolean complemented = 2 * size > cells;
+        PairSet result = new PairSet(complemented ? cells - size : size);
+        boolean[] marked = new boolean[n];
+        for (int first = 0; first < n; first++) {
+            int[] row = members[first];
+            if (!complemented) {
+                if (row == null) {
+                    for (int second = 0; second < n; second++) result.add(first, second);
+                } else {
+                    for (int second : row) result.add(first, second);
+                }
+            } else if (row != null) {
+                for (int second : row) marked[second] = true;
+                for (int second = 0; second < n; second++) {
+                    if (!marked[second]) result.add(first, second);
+                }
+                for (int second : row) marked[second] = false;
+            }
+        }
+        return new Relation<>(universalSet, result, complemented);
     }
 
     /**
@@ -132,9 +577,86 @@ public class Relation<T> {
      * @return self⁻¹
      */
     public Relation<T> converse() {
-        HashSet<Pair<T>> reversedSet = new HashSet<>(pairs.getElements());
-        reversedSet.forEach(Pair::reverse);
-        return new Relation<>(universalSet, new RSet<>(reversedSet));
+        Metrics.Probe probe = Metrics.start(Operation.CONVERSE);
+        return measured(probe, null, converseOf());
+    }
+
+    private Relation<T> converseOf() {
+        return new Relation<>(universalSet, pairs.converse(), negated);
+    }
+
+    /**
+     * R⁺ = R ∪ (R | R) ∪ (R | R | R) ∪ ...
+     * @return the smallest transitive relation containing self
+     */
+    public Relation<T> transitiveClosure() {
+        Metrics.Probe probe = Metrics.start(Operation.TRANSITIVE_CLOSURE);
+        return measured(probe, null, transitiveClosureOf());
+    }
+
+    private Relation<T> transitiveClosureOf() {
+        return closure(false);
+    }
+
+    /**
+     * R* = idU ∪ R⁺
+     * @return the smallest reflexive and transitive relation containing self
+     */
+    public Relation<T> reflexiveTransitiveClosure() {
+        Metrics.Probe probe = Metrics.start(Operation.REFLEXIVE_TRANSITIVE_CLOSURE);
+        return measured(probe, null, reflexiveTransitiveClosureOf());
+    }
+
+    private Relation<T> reflexiveTransitiveClosureOf() {
+        return closure(true);
+    }
+
+    /**
+     * Works on the condensation of R: components are visited sinks first and each collects
+     * the components reached by its edges together with everything those reach, so the cost
+     * is linear in R plus the size of the closure
+     */
+    private Relation<T> closure(boolean reflexive) {
+        PairSet positive = positivePairs();
+        int n = universe.size();
+        Condensation condensation = new Condensation(positive, n);
+        PairIndex successors = PairIndex.byFirst(positive, n);
+        int count = condensation.count();
+        BitSet[] reach = new BitSet[count];
+        long total = 0;
+        for (int c = 0; c < count; c++) {
+            BitSet reached = new BitSet();
+            for (int m = condensation.memberStart(c); m < condensation.memberEnd(c); m++) {
+                int first = condensation.member(m);
+                for (int p = successors.start(first); p < successors.end(first); p++) {
+                    int d = condensation.componentOf(successors.partner(p));
+                    // reach[d] is already inside reached whenever d is
+                    if (d == c || reached.get(d)) continue;
+                    reached.set(d);
+                    reached.or(reach[d]);
+                }
+            }
+            if (reflexive || condensation.isCyclic(c)) reached.set(c);
+            reach[c] = reached;
+            long targets = 0;
+            for (int d = reached.nextSetBit(0); d >= 0; d = reached.nextSetBit(d + 1)) {
+                targets += condensation.memberEnd(d) - condensation.memberStart(d);
+            }
+            total += targets * (condensation.memberEnd(c) - condensation.memberStart(c));
+        }
+        PairSet closure = new PairSet(total);
+        for (int c = 0; c < count; c++) {
+            BitSet reached = reach[c];
+            for (int m = condensation.memberStart(c); m < condensation.memberEnd(c); m++) {
+                int first = condensation.member(m);
+                for (int d = reached.nextSetBit(0); d >= 0; d = reached.nextSetBit(d + 1)) {
+                    for (int q = condensation.memberStart(d); q < condensation.memberEnd(d); q++) {
+                        closure.add(first, condensation.member(q));
+                    }
+                }
+            }
+        }
+        return new Relation<>(universalSet, closure);
     }
 
     /**
@@ -143,9 +665,28 @@ public class Relation<T> {
      * @return self ⊆ S
      */
     public boolean isSubsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        Metrics.Probe probe = Metrics.start(Operation.SUBSET);
+        return measured(probe, otherRelation, subsetOf(otherRelation));
+    }
+
+    private boolean subsetOf(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
         // todo maybe use R ⊆ S if and only if R ∪ S = S
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return otherRelation.pairs.contains(pairs);
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        if (!negated && !otherRelation.negated) return otherPairs.containsAll(pairs);
+        if (negated && otherRelation.negated) return pairs.containsAll(otherPairs);
+        // R ⊆ ∼B iff R and B are disjoint
+        if (!negated) return pairs.allMatch(pair -> !otherPairs.contains(pair));
+        // ∼A ⊆ S iff A ∪ S = U × U
+        return covers(pairs, otherPairs);
+    }
+
+    /**
+     * @return whether every pair of U × U is in A or in B
+     */
+    private boolean covers(PairSet a, PairSet b) {
+        long n = universe.size();
+        return a.size() + (long) b.countNotIn(a) == n * n;
     }
 
 
@@ -155,8 +696,17 @@ public class Relation<T> {
      * @return self = S
      */
     public boolean isEqual(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return pairs.equals(otherRelation.pairs);
+        Metrics.Probe probe = Metrics.start(Operation.EQUALITY);
+        return measured(probe, otherRelation, equalTo(otherRelation));
+    }
+
+    private boolean equalTo(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        PairSet otherPairs = alignedPairs(otherRelation);
+        if (negated == otherRelation.negated) return pairs.isEqual(otherPairs);
+        // R = ∼B iff R and B are disjoint and together cover U × U
+        long n = universe.size();
+        return pairs.size() + (long) otherPairs.size() == n * n && pairs.allMatch(pair -> !otherPairs.contains(pair));
     }
 
     /**
@@ -165,12 +715,7 @@ public class Relation<T> {
      * @return idU ⊆ self
      */
     public boolean isReflexive() {
-        try {
-            return universalSet.identityRelation().isSubsetOf(this);
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.REFLEXIVE);
     }
 
     /**
@@ -179,12 +724,7 @@ public class Relation<T> {
      * @return self⁻¹ ⊆ self
      */
     public boolean isSymmetric() {
-        try {
-            return converse().isSubsetOf(this);
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.SYMMETRIC);
     }
 
     /**
@@ -193,12 +733,7 @@ public class Relation<T> {
      * @return self | self ⊆ self
      */
     public boolean isTransitive() {
-        try {
-            return composition(this).isSubsetOf(this);
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.TRANSITIVE);
     }
 
     /**
@@ -207,7 +742,7 @@ public class Relation<T> {
      * @return whether it is an equivalence relation
      */
     public boolean isEquivalence() {
-        return isReflexive() && isSymmetric() && isTransitive();
+        return new RelationProperties().test(this, RelationProperty.EQUIVALENCE);
     }
 
     /**
@@ -216,12 +751,7 @@ public class Relation<T> {
      * @return self ∩ self⁻¹ ⊆ idU
      */
     public boolean isAntiSymmetric() {
-        try {
-            return intersection(converse()).isSubsetOf(universalSet.identityRelation());
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.ANTISYMMETRIC);
     }
 
 
@@ -232,7 +762,7 @@ public class Relation<T> {
      * @return whether it is a partial order
      */
     public boolean isPartialOrder() {
-        return isReflexive() && isAntiSymmetric() && isTransitive();
+        return new RelationProperties().test(this, RelationProperty.PARTIAL_ORDER);
     }
 
     /**
@@ -241,12 +771,7 @@ public class Relation<T> {
      * @return self⁻¹ | self ⊆ idU
      */
     public boolean isFunction() {
-        try {
-            return converse().composition(this).isSubsetOf(universalSet.identityRelation());
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.FUNCTION);
     }
 
     /**
@@ -255,12 +780,7 @@ public class Relation<T> {
      * @return self | self⁻¹ ⊆ idU
      */
     public boolean isOneToOne() {
-        try {
-            return composition(converse()).isSubsetOf(universalSet.identityRelation());
-        } catch (UnmatchedUniversalSetsException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return new RelationProperties().test(this, RelationProperty.ONE_TO_ONE);
     }
 
     /**
@@ -273,8 +793,17 @@ public class Relation<T> {
         // todo the given formula gives a relation with all identity pairs relating to the
         //  domain so decide whether to return set (just split up the set and remove
         //  duplicates) or relation (in which case use the given formula)
-        return new RSet<>(pairs.getElements().stream().map(Pair::getFirst).collect(Collectors.toCollection(HashSet::new)));
-
+        HashSet<T> domain = new HashSet<>();
+        if (negated) {
+            // α is in the domain of ∼A unless A relates it to every element
+            PairIndex index = PairIndex.byFirst(pairs, universe.size());
+            for (int id = 0; id < universe.size(); id++) {
+                if (index.degree(id) < universe.size()) domain.add(universe.get(id));
+            }
+        } else {
+            pairs.forEach(pair -> domain.add(universe.get(PairSet.first(pair))));
+        }
+        return new RSet<>(domain);
     }
 
     /**
@@ -285,7 +814,16 @@ public class Relation<T> {
      */
     public RSet<T> getRange() {
         // todo see domain todo
-        return new RSet<>(pairs.getElements().stream().map(Pair::getSecond).collect(Collectors.toCollection(HashSet::new)));
+        HashSet<T> range = new HashSet<>();
+        if (negated) {
+            PairIndex index = PairIndex.bySecond(pairs, universe.size());
+            for (int id = 0; id < universe.size(); id++) {
+                if (index.degree(id) < universe.size()) range.add(universe.get(id));
+            }
+        } else {
+            pairs.forEach(pair -> range.add(universe.get(PairSet.second(pair))));
+        }
+        return new RSet<>(range);
     }
 
     /**
@@ -293,12 +831,25 @@ public class Relation<T> {
      * is always an element γ in U such that (γ,α) ∈ R and (γ,β) ∈ S
      * ∼[(R⁻¹ | R) ∪ (S⁻¹ | S)] ∪ idU ] ∩ (R⁻¹ | S) = U × U
      * ∼[(R⁻¹ | R) ∪ (S⁻¹ | S)] ∪ idU = U × U and R⁻¹ | S = U × U
+     * Once both are functions, R⁻¹ | S = U × U is a coverage check on their images
      * @param otherRelation S
      * @return whether self and S are conjugated quasi-projections on U
      */
     public boolean conjugatedQuasiProjection(Relation<T> otherRelation) throws UnmatchedUniversalSetsException {
-        if (!universalSet.equals(otherRelation.universalSet)) throw new UnmatchedUniversalSetsException();
-        return isFunction() && otherRelation.isFunction() && converse().composition(otherRelation).isEqual(universalSet.universalRelation());
+        if (!universe.hasSameElements(otherRelation.universe)) throw new UnmatchedUniversalSetsException();
+        return isFunction() && otherRelation.isFunction() && PairCoverage.coversAll(images(this), images(otherRelation), universe.size());
+    }
+
+    /**
+     * Only meaningful when R is a function
+     * @param relation R, over an equal universal set
+     * @return the id in self of the image of every element, or -1 where it has none
+     */
+    private int[] images(Relation<T> relation) {
+        int[] images = new int[universe.size()];
+        Arrays.fill(images, -1);
+        alignedPositivePairs(relation).forEach(pair -> images[PairSet.first(pair)] = PairSet.second(pair));
+        return images;
     }
 
 }
@@ -0,0 +1,77 @@
+package traditional;
+
+import expression.Backend;
+import expression.Fusion;
+
+import java.util.List;
+
+/**
+ * Evaluates relation-algebra expressions over Relation. A fused region is computed by
+ * enumerating only the pairs of the inputs that bound its result and testing each against
+ * the formula; an unbounded region is computed as the pending complement of its negation.
+ */
+public class RelationBackend<T> implements Backend<Relation<T>> {
+
+    @Override
+    public boolean isCompatible(Relation<T> relation, Relation<T> otherRelation) {
+        return relation.getUniverse().hasSameElements(otherRelation.getUniverse());
+    }
+
+    @Override
+    public Relation<T> uncomplemented(Relation<T> relation) {
+        return relation.isNegated() ? relation.complement() : null;
+    }
+
+    @Override
+    public Relation<T> complement(Relation<T> relation) {
+        return relation.complement();
+    }
+
+    @Override
+    public Relation<T> converse(Relation<T> relation) {
+        return relation.converse();
+    }
+
+    @Override
+    public Relation<T> composition(Relation<T> relation, Relation<T> otherRelation) {
+        try {
+            return relation.composition(otherRelation);
+        } catch (UnmatchedUniversalSetsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Relation<T> sum(Relation<T> relation, Relation<T> otherRelation) {
+        try {
+            return relation.sum(otherRelation);
+        } catch (UnmatchedUniversalSetsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Relation<T> fuse(Fusion<Relation<T>> fusion) {
+        if (!fusion.isBounded()) return fuse(fusion.negated()).complement();
+        List<Relation<T>> inputs = fusion.getInputs();
+        Relation<T> base = inputs.get(0);
+        PairSet[] pairs = new PairSet[inputs.size()];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = base.alignedPositivePairs(inputs.get(i));
+        }
+        PairSet fused = new PairSet();
+        boolean[] values = new boolean[pairs.length];
+        boolean[] stack = new boolean[fusion.getDepth()];
+        for (int candidate : fusion.getCandidates()) {
+            pairs[candidate].forEach(pair -> {
+                if (fused.contains(pair)) return;
+                for (int i = 0; i < pairs.length; i++) {
+                    values[i] = pairs[i].contains(pair);
+                }
+                if (fusion.test(values, stack)) fused.add(pair);
+            });
+        }
+        return base.withPairs(fused);
+    }
+
+}
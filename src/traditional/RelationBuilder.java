@@ -0,0 +1,200 @@
+package traditional;
+
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import universe.Universe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Collects the pairs of a relation over a fixed U one at a time, from single calls, iterators,
+ * streams or delimited text, without a HashSet of Pairs in between. Each pair is resolved to
+ * ids as it arrives and goes straight into the storage the relation will keep: a PairSet while
+ * that is smaller than the bit matrix of U, the bit matrix once it no longer is. Duplicates are
+ * dropped on insertion, so memory follows the number of distinct pairs rather than the input.
+ * toRelation() and toMRelation() hand the storage over without copying when the kinds match
+ * and leave the builder empty for reuse.
+ */
+public final class RelationBuilder<T> {
+
+    private final RSet<T> universalSet;
+    private final Universe<T> universe;
+    private final int size;
+    // words of the bit matrix of U, the point at which the PairSet stops being smaller
+    private final long matrixWords;
+    private final int expectedSize;
+    // exactly one of these holds the pairs
+    private PairSet pairs;
+    private BitMatrix matrix;
+    private long count;
+
+    /**
+     * @param universalSet U
+     */
+    public RelationBuilder(RSet<T> universalSet) {
+        this(universalSet, 0);
+    }
+
+    /**
+     * @param universalSet U
+     * @param expectedSize number of distinct pairs expected, to size the table once
+     */
+    public RelationBuilder(RSet<T> universalSet, int expectedSize) {
+        this.universalSet = universalSet;
+        this.universe = universalSet.getUniverse();
+        this.size = universe.size();
+        this.matrixWords = (long) size * ((size + 63) >>> 6);
+        this.expectedSize = expectedSize;
+        reset();
+    }
+
+    private void reset() {
+        count = 0;
+        matrix = null;
+        if (2L * expectedSize > matrixWords) {
+            matrix = new BitMatrix(size);
+            pairs = null;
+        } else {
+            pairs = new PairSet(expectedSize);
+        }
+    }
+
+    private int id(T element) {
+        int id = universe.indexOf(element);
+        if (id < 0) throw new IllegalArgumentException(element + " is not in U");
+        return id;
+    }
+
+    /**
+     * @return whether (α, β) was not added before
+     */
+    public boolean add(T first, T second) {
+        return add(id(first), id(second));
+    }
+
+    public boolean add(Pair<T> pair) {
+        return add(pair.getFirst(), pair.getSecond());
+    }
+
+    private boolean add(int first, int second) {
+        if (matrix != null) {
+            if (matrix.get(first, second)) return false;
+            matrix.set(first, second);
+        } else {
+            if (!pairs.add(first, second)) return false;
+            // the table would outgrow the matrix on its next doubling
+            if (2L * pairs.capacity() > matrixWords) toMatrix();
+        }
+        count++;
+        return true;
+    }
+
+    private void toMatrix() {
+        matrix = new BitMatrix(size);
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.slot(slot);
+            if (pair != PairSet.EMPTY) matrix.set(PairSet.first(pair), PairSet.second(pair));
+        }
+        pairs = null;
+    }
+
+    public RelationBuilder<T> addAll(Iterator<? extends Pair<T>> pairs) {
+        while (pairs.hasNext()) {
+            add(pairs.next());
+        }
+        return this;
+    }
+
+    /**
+     * Consumes the stream in encounter order on the calling thread
+     */
+    public RelationBuilder<T> addAll(Stream<? extends Pair<T>> pairs) {
+        return addAll(pairs.sequential().iterator());
+    }
+
+    /**
+     * Reads one pair per line, first and second element separated by the delimiter; blank
+     * lines are skipped. Only the current line is held in memory.
+     * @param reader delimited text, e.g. CSV or TSV
+     * @param delimiter separator between the two fields
+     * @param parser turns a field into an element of U
+     * @throws IOException if reading fails or a line does not hold exactly two fields
+     */
+    public RelationBuilder<T> read(Reader reader, char delimiter, Function<String, ? extends T> parser) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int number = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            number++;
+            if (line.isBlank()) continue;
+            int split = line.indexOf(delimiter);
+            if (split < 0 || line.indexOf(delimiter, split + 1) >= 0) {
+                throw new IOException("line " + number + " does not hold two fields: " + line);
+            }
+            try {
+                add(parser.apply(line.substring(0, split)), parser.apply(line.substring(split + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("line " + number + ": " + e.getMessage(), e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return number of distinct pairs added so far
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return whether the pairs have moved to the bit matrix
+     */
+    public boolean isDense() {
+        return matrix != null;
+    }
+
+    /**
+     * Once dense, a relation holding more than half of U × U is returned negated, storing its gaps
+     * @return the relation of the pairs added so far
+     */
+    public Relation<T> toRelation() {
+        Relation<T> relation = pairs != null ? new Relation<>(universalSet, pairs) : fromMatrix();
+        reset();
+        return relation;
+    }
+
+    private Relation<T> fromMatrix() {
+        long cells = (long) size * size;
+        boolean complemented = 2 * count > cells;
+        PairSet stored = new PairSet(complemented ? cells - count : count);
+        for (int i = 0; i < size; i++) {
+            if (complemented) {
+                for (int j = 0; j < size; j++) {
+                    if (!matrix.get(i, j)) stored.add(i, j);
+                }
+            } else {
+                for (int j = matrix.nextSetBit(i, 0); j >= 0; j = matrix.nextSetBit(i, j + 1)) {
+                    stored.add(i, j);
+                }
+            }
+        }
+        return new Relation<>(universalSet, stored, complemented);
+    }
+
+    /**
+     * @return the relation of the pairs added so far, as a matrix
+     */
+    public MRelation<T> toMRelation() {
+        if (pairs != null) toMatrix();
+        MRelation<T> relation = new MRelation<>(new MList<>(universe), matrix);
+        reset();
+        return relation;
+    }
+
+}
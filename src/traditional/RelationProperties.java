@@ -0,0 +1,175 @@
+package traditional;
+
+import java.util.Arrays;
+
+import static universe.RelationProperty.*;
+
+/**
+ * Checks reflexivity, symmetry, antisymmetry, transitivity, functionality and injectivity of
+ * relations without building converses, compositions or intersections. All properties
+ * except transitivity come out of one walk over the stored pairs; transitivity then probes
+ * the successors of every pair through an index. The scratch arrays are kept between calls,
+ * so an analyser reused over many relations of similar size stops allocating once warm.
+ * Not thread-safe: use one analyser per thread.
+ */
+public final class RelationProperties {
+
+    private final PairIndex successors = new PairIndex();
+    private int[] firstDegrees = new int[0];
+    private int[] secondDegrees = new int[0];
+
+    /**
+     * Stops at the first counterexample to any of the properties
+     * @param relation R
+     * @param properties OR of RelationProperty flags
+     * @return whether R has all of them
+     */
+    public boolean test(Relation<?> relation, int properties) {
+        return check(relation, properties, true) == properties;
+    }
+
+    /**
+     * @param relation R
+     * @param properties OR of RelationProperty flags
+     * @return the flags among properties that R has
+     */
+    public int analyse(Relation<?> relation, int properties) {
+        return check(relation, properties, false);
+    }
+
+    private int check(Relation<?> relation, int properties, boolean stopEarly) {
+        PairSet pairs = relation.storedPairs();
+        int n = relation.getUniverse().size();
+        int holds = properties;
+        if (relation.isNegated()) {
+            holds = negatedPass(pairs, n, holds, stopEarly);
+            if (stopEarly && holds != properties) return holds;
+            if ((holds & TRANSITIVE) != 0 && !isComplementTransitive(pairs, n)) holds &= ~TRANSITIVE;
+        } else {
+            holds = pass(pairs, n, holds, stopEarly);
+            if (stopEarly && holds != properties) return holds;
+            if ((holds & TRANSITIVE) != 0 && !isTransitive(pairs, n)) holds &= ~TRANSITIVE;
+        }
+        return holds;
+    }
+
+    private void resetDegrees(int n) {
+        if (firstDegrees.length < n) {
+            firstDegrees = new int[n];
+            secondDegrees = new int[n];
+        } else {
+            Arrays.fill(firstDegrees, 0, n, 0);
+            Arrays.fill(secondDegrees, 0, n, 0);
+        }
+    }
+
+    /**
+     * One walk over the pairs of R
+     */
+    private int pass(PairSet pairs, int n, int holds, boolean stopEarly) {
+        int asked = holds & (REFLEXIVE | SYMMETRIC | ANTISYMMETRIC | FUNCTION | ONE_TO_ONE);
+        if (asked == 0) return holds;
+        // R is reflexive iff it holds n diagonal pairs, so fewer pairs than that settle it
+        if ((holds & REFLEXIVE) != 0 && pairs.size() < n) {
+            holds &= ~REFLEXIVE;
+            if (stopEarly) return holds;
+        }
+        if ((holds & (FUNCTION | ONE_TO_ONE)) != 0) resetDegrees(n);
+        int diagonal = 0;
+        for (int slot = 0; slot < pairs.capacity() && (holds & asked) != 0; slot++) {
+            long pair = pairs.slot(slot);
+            if (pair == PairSet.EMPTY) continue;
+            int first = PairSet.first(pair);
+            int second = PairSet.second(pair);
+            int failed = 0;
+            if (first == second) {
+                diagonal++;
+            } else if ((holds & (SYMMETRIC | ANTISYMMETRIC)) != 0) {
+                boolean mirrored = pairs.contains(second, first);
+                failed |= mirrored ? ANTISYMMETRIC : SYMMETRIC;
+            }
+            if ((holds & FUNCTION) != 0 && ++firstDegrees[first] > 1) failed |= FUNCTION;
+            if ((holds & ONE_TO_ONE) != 0 && ++secondDegrees[second] > 1) failed |= ONE_TO_ONE;
+            failed &= holds;
+            holds &= ~failed;
+            if (stopEarly && failed != 0) return holds;
+        }
+        if ((holds & REFLEXIVE) != 0 && diagonal < n) holds &= ~REFLEXIVE;
+        return holds;
+    }
+
+    /**
+     * One walk over the stored pairs A of R = ∼A
+     */
+    private int negatedPass(PairSet pairs, int n, int holds, boolean stopEarly) {
+        int asked = holds & (REFLEXIVE | SYMMETRIC | ANTISYMMETRIC | FUNCTION | ONE_TO_ONE);
+        if (asked == 0) return holds;
+        // a row of ∼A with two pairs means A misses two, so A needs n - 1 pairs in every row
+        long nearlyFull = (long) n * (n - 1);
+        if ((holds & FUNCTION) != 0 && pairs.size() < nearlyFull) holds &= ~FUNCTION;
+        if ((holds & ONE_TO_ONE) != 0 && pairs.size() < nearlyFull) holds &= ~ONE_TO_ONE;
+        if (stopEarly && (holds & asked) != asked) return holds;
+        if ((holds & (FUNCTION | ONE_TO_ONE)) != 0) resetDegrees(n);
+        // ∼A is antisymmetric iff A holds (α, β) or (β, α) for every α ≠ β
+        long covered = 0;
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.slot(slot);
+            if (pair == PairSet.EMPTY) continue;
+            int first = PairSet.first(pair);
+            int second = PairSet.second(pair);
+            int failed = 0;
+            if (first == second) {
+                failed |= REFLEXIVE;
+            } else if ((holds & (SYMMETRIC | ANTISYMMETRIC)) != 0) {
+                boolean mirrored = pairs.contains(second, first);
+                if (!mirrored) failed |= SYMMETRIC;
+                if (first < second || !mirrored) covered++;
+            }
+            if ((holds & FUNCTION) != 0) firstDegrees[first]++;
+            if ((holds & ONE_TO_ONE) != 0) secondDegrees[second]++;
+            failed &= holds;
+            holds &= ~failed;
+            if (stopEarly && failed != 0) return holds;
+        }
+        if ((holds & ANTISYMMETRIC) != 0 && covered < nearlyFull / 2) holds &= ~ANTISYMMETRIC;
+        for (int id = 0; id < n && (holds & (FUNCTION | ONE_TO_ONE)) != 0; id++) {
+            if (firstDegrees[id] < n - 1) holds &= ~FUNCTION;
+            if (secondDegrees[id] < n - 1) holds &= ~ONE_TO_ONE;
+        }
+        return holds;
+    }
+
+    /**
+     * (α, γ) ∈ R and (γ, β) ∈ R implies (α, β) ∈ R
+     */
+    private boolean isTransitive(PairSet pairs, int n) {
+        successors.index(pairs, n, true);
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.slot(slot);
+            if (pair == PairSet.EMPTY) continue;
+            int first = PairSet.first(pair);
+            int middle = PairSet.second(pair);
+            for (int p = successors.start(middle); p < successors.end(middle); p++) {
+                if (!pairs.contains(first, successors.partner(p))) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ∼A is transitive iff every (α, β) ∈ A has, for each γ, (α, γ) ∈ A or (γ, β) ∈ A
+     */
+    private static boolean isComplementTransitive(PairSet pairs, int n) {
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.slot(slot);
+            if (pair == PairSet.EMPTY) continue;
+            int first = PairSet.first(pair);
+            int second = PairSet.second(pair);
+            for (int middle = 0; middle < n; middle++) {
+                if (!pairs.contains(first, middle) && !pairs.contains(middle, second)) return false;
+            }
+        }
+        return true;
+    }
+
+}
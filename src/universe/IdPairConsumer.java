@@ -0,0 +1,11 @@
+package universe;
+
+/**
+ * Receives the pairs of a relation as ids of its universe, without boxing.
+ */
+@FunctionalInterface
+public interface IdPairConsumer {
+
+    void accept(int first, int second);
+
+}
@@ -0,0 +1,66 @@
+package universe;
+
+/**
+ * Pairs of element ids packed into one long as (first << 32) | second, and the linear probing
+ * shared by the open-addressing tables keyed by them. Ids are non-negative ints, so packed
+ * pairs are never negative and EMPTY can mark a free slot. Tables have a power of two slots.
+ */
+public final class PackedPairs {
+
+    public static final long EMPTY = -1L;
+
+    private PackedPairs() {
+    }
+
+    public static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * murmur3 finaliser, so that ids sharing their low bits still spread out
+     */
+    public static int hash(long pair) {
+        pair ^= pair >>> 33;
+        pair *= 0xff51afd7ed558ccdL;
+        pair ^= pair >>> 33;
+        pair *= 0xc4ceb9fe1a85ec53L;
+        pair ^= pair >>> 33;
+        return (int) pair;
+    }
+
+    /**
+     * @param slots the keys of the table, EMPTY where free
+     * @return the slot holding the pair, or the free slot that ends its run
+     */
+    public static int find(long[] slots, long pair) {
+        int mask = slots.length - 1;
+        int slot = hash(pair) & mask;
+        while (slots[slot] != pair && slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Backward-shift deletion: after a removal leaves a gap, every later entry of the run moves
+     * back into the gap unless its home slot lies between the gap and it
+     * @param slots the keys of the table
+     * @param gap the slot just emptied
+     * @param next a later slot of the run, not EMPTY
+     * @return whether the entry in next moves into the gap
+     */
+    public static boolean shiftsBack(long[] slots, int gap, int next) {
+        int mask = slots.length - 1;
+        int home = hash(slots[next]) & mask;
+        return ((next - home) & mask) >= ((next - gap) & mask);
+    }
+
+}
@@ -0,0 +1,24 @@
+package universe;
+
+/**
+ * Test behind conjugated quasi-projections: for functions R and S on U, R⁻¹ | S = U × U iff
+ * every pair (α, β) of U × U is (R(γ), S(γ)) for some γ ∈ U. Each γ contributes at most one
+ * pair, so the n values of γ meet at most n of the n² pairs, and U × U is covered exactly when
+ * n = 0, or n = 1 and both functions are defined at its only element. No composition is built.
+ */
+public final class PairCoverage {
+
+    private PairCoverage() {
+    }
+
+    /**
+     * @param first R(γ) as an id for every γ, or -1 where R is undefined
+     * @param second S(γ) likewise
+     * @param n |U|
+     * @return whether (R(γ), S(γ)) meets every pair of U × U
+     */
+    public static boolean coversAll(int[] first, int[] second, int n) {
+        return n == 0 || n == 1 && first[0] >= 0 && second[0] >= 0;
+    }
+
+}
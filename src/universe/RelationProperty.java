@@ -0,0 +1,44 @@
+package universe;
+
+/**
+ * Bit flags naming the properties a relation analyser checks; a set of properties is the OR
+ * of its flags, so asking for and reporting on several of them allocates nothing.
+ */
+public final class RelationProperty {
+
+    // idU ⊆ R
+    public static final int REFLEXIVE = 1;
+    // R⁻¹ ⊆ R
+    public static final int SYMMETRIC = 1 << 1;
+    // R ∩ R⁻¹ ⊆ idU
+    public static final int ANTISYMMETRIC = 1 << 2;
+    // R | R ⊆ R
+    public static final int TRANSITIVE = 1 << 3;
+    // R⁻¹ | R ⊆ idU
+    public static final int FUNCTION = 1 << 4;
+    // R | R⁻¹ ⊆ idU
+    public static final int ONE_TO_ONE = 1 << 5;
+
+    public static final int EQUIVALENCE = REFLEXIVE | SYMMETRIC | TRANSITIVE;
+    public static final int PARTIAL_ORDER = REFLEXIVE | ANTISYMMETRIC | TRANSITIVE;
+    public static final int ALL = REFLEXIVE | SYMMETRIC | ANTISYMMETRIC | TRANSITIVE | FUNCTION | ONE_TO_ONE;
+
+    private RelationProperty() {
+    }
+
+    /**
+     * @param properties OR of flags
+     * @return the names of the flags, e.g. [REFLEXIVE, TRANSITIVE]
+     */
+    public static String toString(int properties) {
+        String[] names = {"REFLEXIVE", "SYMMETRIC", "ANTISYMMETRIC", "TRANSITIVE", "FUNCTION", "ONE_TO_ONE"};
+        StringBuilder builder = new StringBuilder("[");
+        for (int bit = 0; bit < names.length; bit++) {
+            if ((properties & (1 << bit)) == 0) continue;
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(names[bit]);
+        }
+        return builder.append(']').toString();
+    }
+
+}
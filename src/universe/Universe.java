@@ -0,0 +1,90 @@
+package universe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable universal set U shared by relations of both packages. Elements are interned to
+ * the dense ids 0 .. n - 1 in iteration order, so looking up an element is one hash probe
+ * and relations built on the same universe agree on every id. Each universe carries a token
+ * that is unique within the process, which lets relations recognise a shared universe in
+ * constant time instead of comparing the elements.
+ */
+public final class Universe<T> {
+
+    private static final AtomicLong TOKENS = new AtomicLong();
+
+    private final long token;
+    private final List<T> elements;
+    private final HashMap<T, Integer> ids;
+
+    public Universe(Collection<? extends T> elements) {
+        ArrayList<T> list = new ArrayList<>(elements);
+        HashMap<T, Integer> ids = new HashMap<>(list.size() * 2);
+        for (int id = 0; id < list.size(); id++) {
+            if (ids.put(list.get(id), id) != null) throw new IllegalArgumentException("duplicate element " + list.get(id));
+        }
+        this.token = TOKENS.incrementAndGet();
+        this.elements = Collections.unmodifiableList(list);
+        this.ids = ids;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * @return the id of the element, or -1 if it is not in U
+     */
+    public int indexOf(Object element) {
+        Integer id = ids.get(element);
+        return id == null ? -1 : id;
+    }
+
+    public boolean contains(Object element) {
+        return ids.containsKey(element);
+    }
+
+    public T get(int id) {
+        return elements.get(id);
+    }
+
+    /**
+     * @return the elements in id order, unmodifiable
+     */
+    public List<T> getElements() {
+        return elements;
+    }
+
+    /**
+     * O(1) when both sides are the same universe, O(n) otherwise
+     * @param other V
+     * @return whether U and V contain the same elements, in any order
+     */
+    public boolean hasSameElements(Universe<?> other) {
+        if (token == other.token) return true;
+        if (size() != other.size()) return false;
+        for (Object element : other.elements) {
+            if (!ids.containsKey(element)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * O(1) when both sides are the same universe, O(n) otherwise
+     * @param other V
+     * @return whether U and V assign the same id to every element
+     */
+    public boolean hasSameOrder(Universe<?> other) {
+        return token == other.token || elements.equals(other.elements);
+    }
+
+}
@@ -0,0 +1,68 @@
+package view;
+
+import java.util.Arrays;
+
+/**
+ * Mutable neighbour lists of a relation on ids 0 .. n - 1, with O(1) insertion and removal:
+ * each list is an int array, and the position of every entry is kept in a PairMap so that a
+ * removal can move the last entry into the hole.
+ */
+final class Adjacency {
+
+    private static final int[] NONE = new int[0];
+
+    private final int[][] lists;
+    private final int[] degrees;
+    // (v, w) -> 1 + index of w in the list of v
+    private final PairMap positions = new PairMap();
+
+    Adjacency(int size) {
+        lists = new int[size][];
+        Arrays.fill(lists, NONE);
+        degrees = new int[size];
+    }
+
+    /**
+     * @return whether w was not a neighbour of v before
+     */
+    boolean add(int v, int w) {
+        long pair = PairMap.pair(v, w);
+        if (positions.get(pair) != 0) return false;
+        int degree = degrees[v];
+        if (degree == lists[v].length) lists[v] = Arrays.copyOf(lists[v], Math.max(4, degree * 2));
+        lists[v][degree] = w;
+        degrees[v] = degree + 1;
+        positions.put(pair, degree + 1);
+        return true;
+    }
+
+    /**
+     * @return whether w was a neighbour of v
+     */
+    boolean remove(int v, int w) {
+        long pair = PairMap.pair(v, w);
+        int position = positions.get(pair);
+        if (position == 0) return false;
+        positions.put(pair, 0);
+        int last = --degrees[v];
+        if (position - 1 != last) {
+            int moved = lists[v][last];
+            lists[v][position - 1] = moved;
+            positions.put(PairMap.pair(v, moved), position);
+        }
+        return true;
+    }
+
+    boolean contains(int v, int w) {
+        return positions.get(PairMap.pair(v, w)) != 0;
+    }
+
+    int degree(int v) {
+        return degrees[v];
+    }
+
+    int neighbour(int v, int index) {
+        return lists[v][index];
+    }
+
+}
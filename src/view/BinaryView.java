@@ -0,0 +1,35 @@
+package view;
+
+/**
+ * View of a binary operator, which also follows a second input
+ */
+abstract class BinaryView<T> extends View<T> {
+
+    private final LiveRelation<T> right;
+    private final Listener rightListener;
+
+    BinaryView(LiveRelation<T> left, LiveRelation<T> right) {
+        super(left);
+        this.right = right;
+        this.rightListener = this::rightChanged;
+    }
+
+    /**
+     * Registers with the inputs and replays their current pairs, left first
+     */
+    @Override
+    final void attach() {
+        super.attach();
+        right.forEachPair((first, second) -> rightChanged(first, second, true));
+        right.listen(rightListener);
+    }
+
+    abstract void rightChanged(int first, int second, boolean inserted);
+
+    @Override
+    public void close() {
+        super.close();
+        right.ignore(rightListener);
+    }
+
+}
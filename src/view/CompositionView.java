@@ -0,0 +1,71 @@
+package view;
+
+import universe.IdPairConsumer;
+
+/**
+ * R ; S by counting derivations: (α, γ) is held while some β has (α, β) ∈ R and (β, γ) ∈ S,
+ * and the count of such β is kept per pair. A change (α, β) of R meets the successors of β in
+ * S, a change (β, γ) of S the predecessors of β in R, so it costs the degree of β.
+ * Both neighbour lists are the view's own copies, updated as changes arrive, so each change
+ * is joined with exactly the input states that preceded it even when one edit reaches R and S
+ * along different paths. That is the rule Δ(R ; S) = ΔR ; S + R' ; ΔS applied one pair at a
+ * time.
+ */
+final class CompositionView<T> extends BinaryView<T> {
+
+    // β -> α for (α, β) ∈ R
+    private final Adjacency predecessors;
+    // β -> γ for (β, γ) ∈ S
+    private final Adjacency successors;
+    private final PairMap counts = new PairMap();
+
+    CompositionView(LiveRelation<T> left, LiveRelation<T> right) {
+        super(left, right);
+        predecessors = new Adjacency(universe.size());
+        successors = new Adjacency(universe.size());
+        attach();
+    }
+
+    private void count(int first, int second, int delta) {
+        int count = counts.add(PairMap.pair(first, second), delta);
+        if (delta > 0 && count == 1) emit(first, second, true);
+        else if (delta < 0 && count == 0) emit(first, second, false);
+    }
+
+    @Override
+    void leftChanged(int first, int middle, boolean inserted) {
+        if (inserted ? !predecessors.add(middle, first) : !predecessors.remove(middle, first)) return;
+        int delta = inserted ? 1 : -1;
+        for (int k = 0; k < successors.degree(middle); k++) {
+            count(first, successors.neighbour(middle, k), delta);
+        }
+    }
+
+    @Override
+    void rightChanged(int middle, int second, boolean inserted) {
+        if (inserted ? !successors.add(middle, second) : !successors.remove(middle, second)) return;
+        int delta = inserted ? 1 : -1;
+        for (int k = 0; k < predecessors.degree(middle); k++) {
+            count(predecessors.neighbour(middle, k), second, delta);
+        }
+    }
+
+    @Override
+    boolean contains(int first, int second) {
+        return counts.get(PairMap.pair(first, second)) > 0;
+    }
+
+    @Override
+    public long size() {
+        return counts.size();
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            long pair = counts.key(slot);
+            if (pair != PairMap.EMPTY) action.accept(PairMap.first(pair), PairMap.second(pair));
+        }
+    }
+
+}
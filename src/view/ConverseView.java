@@ -0,0 +1,38 @@
+package view;
+
+import universe.IdPairConsumer;
+
+/**
+ * R⁻¹: stores nothing, reads R with the pair reversed
+ */
+final class ConverseView<T> extends View<T> {
+
+    private final LiveRelation<T> relation;
+
+    ConverseView(LiveRelation<T> relation) {
+        super(relation);
+        this.relation = relation;
+        attach();
+    }
+
+    @Override
+    void leftChanged(int first, int second, boolean inserted) {
+        emit(second, first, inserted);
+    }
+
+    @Override
+    boolean contains(int first, int second) {
+        return relation.contains(second, first);
+    }
+
+    @Override
+    public long size() {
+        return relation.size();
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        relation.forEachPair((first, second) -> action.accept(second, first));
+    }
+
+}
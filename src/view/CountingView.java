@@ -0,0 +1,64 @@
+package view;
+
+import universe.IdPairConsumer;
+
+/**
+ * R ∪ S or R ∩ S: counts for every pair how many of the two inputs hold it, and holds the
+ * pair while the count reaches the threshold, 1 for the union and 2 for the intersection
+ */
+final class CountingView<T> extends BinaryView<T> {
+
+    private final int threshold;
+    private final PairMap counts = new PairMap();
+    private long size;
+
+    CountingView(LiveRelation<T> left, LiveRelation<T> right, int threshold) {
+        super(left, right);
+        this.threshold = threshold;
+        attach();
+    }
+
+    private void changed(int first, int second, boolean inserted) {
+        long pair = PairMap.pair(first, second);
+        if (inserted) {
+            if (counts.add(pair, 1) == threshold) {
+                size++;
+                emit(first, second, true);
+            }
+        } else if (counts.add(pair, -1) == threshold - 1) {
+            size--;
+            emit(first, second, false);
+        }
+    }
+
+    @Override
+    void leftChanged(int first, int second, boolean inserted) {
+        changed(first, second, inserted);
+    }
+
+    @Override
+    void rightChanged(int first, int second, boolean inserted) {
+        changed(first, second, inserted);
+    }
+
+    @Override
+    boolean contains(int first, int second) {
+        return counts.get(PairMap.pair(first, second)) >= threshold;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            long pair = counts.key(slot);
+            if (pair != PairMap.EMPTY && counts.value(slot) >= threshold) {
+                action.accept(PairMap.first(pair), PairMap.second(pair));
+            }
+        }
+    }
+
+}
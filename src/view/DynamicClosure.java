@@ -0,0 +1,248 @@
+package view;
+
+import matrix.BitMatrix;
+import traditional.Relation;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Relation R edited pair by pair together with its transitive closure R⁺, kept as a bit
+ * matrix so that reaches() is one bit test. As a live relation its pairs are those of R⁺,
+ * so views can be built over the closure.
+ * Adding (α, β) ORs {β} ∪ R⁺(β) into the rows of α and of everything that reaches α, skipping
+ * rows that already reach β. Removing (α, β) can only shrink the rows of α and of everything
+ * reaching α; those rows are rebuilt from their remaining successors, taking the rows of all
+ * other elements as they are, and spread backwards within the affected set until nothing
+ * changes. A removal that leaves β reachable through a successor outside that set changes no
+ * row at all.
+ * R is transitive iff R = R⁺, and as R ⊆ R⁺ comparing sizes answers isTransitive() in O(1).
+ */
+public final class DynamicClosure<T> extends LiveRelation<T> {
+
+    private final int size;
+    private final Adjacency successors;
+    private final Adjacency predecessors;
+    private final BitMatrix closure;
+    private long pairs;
+    private long closurePairs;
+
+    /**
+     * @param universe U
+     */
+    public DynamicClosure(Universe<T> universe) {
+        super(universe);
+        this.size = universe.size();
+        this.successors = new Adjacency(size);
+        this.predecessors = new Adjacency(size);
+        this.closure = new BitMatrix(size);
+    }
+
+    /**
+     * Computes the closure once with Relation.transitiveClosure() instead of pair by pair
+     * @param relation R
+     * @return R with its closure, ready for edits
+     */
+    public static <T> DynamicClosure<T> of(Relation<T> relation) {
+        DynamicClosure<T> dynamic = new DynamicClosure<>(relation.getUniverse());
+        relation.forEachPair((first, second) -> {
+            dynamic.successors.add(first, second);
+            dynamic.predecessors.add(second, first);
+            dynamic.pairs++;
+        });
+        relation.transitiveClosure().forEachPair((first, second) -> {
+            dynamic.closure.set(first, second);
+            dynamic.closurePairs++;
+        });
+        return dynamic;
+    }
+
+    /**
+     * @return whether (α, β) is in R
+     */
+    public boolean hasPair(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        return i >= 0 && j >= 0 && successors.contains(i, j);
+    }
+
+    /**
+     * @return whether (α, β) ∈ R⁺, i.e. β can be reached from α in one or more steps
+     */
+    public boolean reaches(T first, T second) {
+        return contains(first, second);
+    }
+
+    /**
+     * O(1)
+     * @return whether R is transitive
+     */
+    public boolean isTransitive() {
+        return pairs == closurePairs;
+    }
+
+    /**
+     * @return number of pairs in R, as opposed to size() which counts R⁺
+     */
+    public long relationSize() {
+        return pairs;
+    }
+
+    /**
+     * @return whether (α, β) was not in R before
+     */
+    public boolean addPair(T first, T second) {
+        int a = id(first);
+        int b = id(second);
+        if (!successors.add(a, b)) return false;
+        predecessors.add(b, a);
+        pairs++;
+        if (closure.get(a, b)) return true;
+        long[] words = closure.getWords();
+        int wordsPerRow = closure.getWordsPerRow();
+        // {β} ∪ R⁺(β), copied since the row of β may itself grow when β reaches α
+        long[] gained = Arrays.copyOfRange(words, closure.rowOffset(b), closure.rowOffset(b) + wordsPerRow);
+        gained[b >>> 6] |= 1L << b;
+        for (int x = 0; x < size; x++) {
+            if (x != a && !closure.get(x, a)) continue;
+            // a row that already reaches β already holds R⁺(β)
+            if (closure.get(x, b)) continue;
+            int offset = closure.rowOffset(x);
+            for (int w = 0; w < wordsPerRow; w++) {
+                long added = gained[w] & ~words[offset + w];
+                if (added == 0) continue;
+                words[offset + w] |= added;
+                closurePairs += Long.bitCount(added);
+                for (; added != 0; added &= added - 1) {
+                    emit(x, (w << 6) + Long.numberOfTrailingZeros(added), true);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether (α, β) was in R
+     */
+    public boolean removePair(T first, T second) {
+        int a = id(first);
+        int b = id(second);
+        if (!successors.remove(a, b)) return false;
+        predecessors.remove(b, a);
+        pairs--;
+        // rows that may lose pairs: α and everything reaching α
+        boolean[] affected = new boolean[size];
+        int count = 0;
+        for (int x = 0; x < size; x++) {
+            if (x == a || closure.get(x, a)) {
+                affected[x] = true;
+                count++;
+            }
+        }
+        // a path from α to β avoiding (α, β) keeps every path through (α, β) valid
+        for (int k = 0; k < successors.degree(a); k++) {
+            int s = successors.neighbour(a, k);
+            if (!affected[s] && closure.get(s, b)) return true;
+        }
+        long[] words = closure.getWords();
+        int wordsPerRow = closure.getWordsPerRow();
+        int[] members = new int[count];
+        // row x of the rebuilt closure, for affected x
+        long[][] rebuilt = new long[size][];
+        count = 0;
+        for (int x = 0; x < size; x++) {
+            if (!affected[x]) continue;
+            members[count++] = x;
+            long[] row = new long[wordsPerRow];
+            for (int k = 0; k < successors.degree(x); k++) {
+                int s = successors.neighbour(x, k);
+                row[s >>> 6] |= 1L << s;
+                if (affected[s]) continue;
+                int offset = closure.rowOffset(s);
+                for (int w = 0; w < wordsPerRow; w++) {
+                    row[w] |= words[offset + w];
+                }
+            }
+            rebuilt[x] = row;
+        }
+        // R⁺(x) ⊇ R⁺(s) for every affected successor s, until nothing grows
+        ArrayDeque<Integer> pending = new ArrayDeque<>(count);
+        boolean[] queued = new boolean[size];
+        for (int x : members) {
+            pending.add(x);
+            queued[x] = true;
+        }
+        while (!pending.isEmpty()) {
+            int s = pending.poll();
+            queued[s] = false;
+            long[] from = rebuilt[s];
+            for (int k = 0; k < predecessors.degree(s); k++) {
+                int p = predecessors.neighbour(s, k);
+                if (!affected[p]) continue;
+                long[] into = rebuilt[p];
+                boolean grew = false;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    long added = from[w] & ~into[w];
+                    if (added != 0) {
+                        into[w] |= added;
+                        grew = true;
+                    }
+                }
+                if (grew && !queued[p]) {
+                    pending.add(p);
+                    queued[p] = true;
+                }
+            }
+        }
+        for (int x : members) {
+            int offset = closure.rowOffset(x);
+            long[] row = rebuilt[x];
+            for (int w = 0; w < wordsPerRow; w++) {
+                long lost = words[offset + w] & ~row[w];
+                if (lost == 0) continue;
+                words[offset + w] = row[w];
+                closurePairs -= Long.bitCount(lost);
+                for (; lost != 0; lost &= lost - 1) {
+                    emit(x, (w << 6) + Long.numberOfTrailingZeros(lost), false);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    boolean contains(int first, int second) {
+        return closure.get(first, second);
+    }
+
+    /**
+     * @return number of pairs in R⁺
+     */
+    @Override
+    public long size() {
+        return closurePairs;
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        for (int i = 0; i < size; i++) {
+            for (int j = closure.nextSetBit(i, 0); j >= 0; j = closure.nextSetBit(i, j + 1)) {
+                action.accept(i, j);
+            }
+        }
+    }
+
+    /**
+     * @param action receives (α, β) for every pair in R
+     */
+    public void forEachRelationPair(IdPairConsumer action) {
+        for (int i = 0; i < size; i++) {
+            for (int k = 0; k < successors.degree(i); k++) {
+                action.accept(i, successors.neighbour(i, k));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package view;
+
+import matrix.BitMatrix;
+import matrix.MList;
+import matrix.MRelation;
+import traditional.RSet;
+import traditional.Relation;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Relation whose pairs change over time: either a MutableRelation edited pair by pair, or a
+ * view derived from other live relations. A view is registered with its inputs when it is
+ * created and from then on receives every pair they gain or lose, one at a time, and turns it
+ * into the pairs it gains or loses itself, so an edit costs about the size of its effect
+ * instead of a re-evaluation. Only monotone operators are offered: the complement of a small
+ * change is a large one.
+ * Not thread-safe; edits must not overlap with each other or with reads.
+ */
+public abstract class LiveRelation<T> {
+
+    /**
+     * Receives one change of an input
+     */
+    interface Listener {
+
+        void changed(int first, int second, boolean inserted);
+
+    }
+
+    final Universe<T> universe;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    LiveRelation(Universe<T> universe) {
+        this.universe = universe;
+    }
+
+    public Universe<T> getUniverse() {
+        return universe;
+    }
+
+    void listen(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void ignore(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void emit(int first, int second, boolean inserted) {
+        for (int l = 0; l < listeners.size(); l++) {
+            listeners.get(l).changed(first, second, inserted);
+        }
+    }
+
+    int id(T element) {
+        int id = universe.indexOf(element);
+        if (id < 0) throw new IllegalArgumentException(element + " is not in U");
+        return id;
+    }
+
+    void checkUniverse(LiveRelation<T> other) throws UnmatchedUniversalSetsException {
+        if (!universe.hasSameOrder(other.universe)) throw new UnmatchedUniversalSetsException();
+    }
+
+    /**
+     * @return whether (α, β) is in self
+     */
+    public boolean contains(T first, T second) {
+        int i = universe.indexOf(first);
+        int j = universe.indexOf(second);
+        return i >= 0 && j >= 0 && contains(i, j);
+    }
+
+    abstract boolean contains(int first, int second);
+
+    /**
+     * @return number of pairs in self
+     */
+    public abstract long size();
+
+    /**
+     * @param action receives (α, β) for every pair in self, as ids of U
+     */
+    public abstract void forEachPair(IdPairConsumer action);
+
+    /**
+     * @return a snapshot of self
+     */
+    public Relation<T> toRelation() {
+        long[] pairs = new long[Math.toIntExact(size())];
+        int[] next = {0};
+        forEachPair((first, second) -> pairs[next[0]++] = PairMap.pair(first, second));
+        return Relation.fromPackedPairs(new RSet<>(universe), Arrays.stream(pairs).iterator(), pairs.length);
+    }
+
+    /**
+     * @return a snapshot of self
+     */
+    public MRelation<T> toMRelation() {
+        return new MRelation<>(new MList<>(universe), toBitMatrix());
+    }
+
+    private BitMatrix toBitMatrix() {
+        BitMatrix matrix = new BitMatrix(universe.size());
+        forEachPair(matrix::set);
+        return matrix;
+    }
+
+    /**
+     * @param other S
+     * @return self ∪ S, kept up to date
+     */
+    public View<T> union(LiveRelation<T> other) throws UnmatchedUniversalSetsException {
+        checkUniverse(other);
+        return new CountingView<>(this, other, 1);
+    }
+
+    /**
+     * @param other S
+     * @return self ∩ S, kept up to date
+     */
+    public View<T> intersection(LiveRelation<T> other) throws UnmatchedUniversalSetsException {
+        checkUniverse(other);
+        return new CountingView<>(this, other, 2);
+    }
+
+    /**
+     * @return self⁻¹, kept up to date
+     */
+    public View<T> converse() {
+        return new ConverseView<>(this);
+    }
+
+    /**
+     * @param other S
+     * @return self ; S, kept up to date
+     */
+    public View<T> composition(LiveRelation<T> other) throws UnmatchedUniversalSetsException {
+        checkUniverse(other);
+        return new CompositionView<>(this, other);
+    }
+
+}
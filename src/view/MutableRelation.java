@@ -0,0 +1,74 @@
+package view;
+
+import traditional.Relation;
+import universe.IdPairConsumer;
+import universe.Universe;
+
+/**
+ * Base relation of a set of views, edited one pair at a time. Every edit that changes the
+ * relation is pushed to the views over it before the call returns.
+ */
+public final class MutableRelation<T> extends LiveRelation<T> {
+
+    private final PairMap pairs = new PairMap();
+
+    /**
+     * @param universe U
+     */
+    public MutableRelation(Universe<T> universe) {
+        super(universe);
+    }
+
+    /**
+     * @param relation R
+     * @return a mutable copy of R
+     */
+    public static <T> MutableRelation<T> of(Relation<T> relation) {
+        MutableRelation<T> copy = new MutableRelation<>(relation.getUniverse());
+        relation.forEachPair((first, second) -> copy.pairs.put(PairMap.pair(first, second), 1));
+        return copy;
+    }
+
+    /**
+     * @return whether (α, β) was not in self before
+     */
+    public boolean add(T first, T second) {
+        int i = id(first);
+        int j = id(second);
+        if (pairs.get(PairMap.pair(i, j)) != 0) return false;
+        pairs.put(PairMap.pair(i, j), 1);
+        emit(i, j, true);
+        return true;
+    }
+
+    /**
+     * @return whether (α, β) was in self
+     */
+    public boolean remove(T first, T second) {
+        int i = id(first);
+        int j = id(second);
+        if (pairs.get(PairMap.pair(i, j)) == 0) return false;
+        pairs.put(PairMap.pair(i, j), 0);
+        emit(i, j, false);
+        return true;
+    }
+
+    @Override
+    boolean contains(int first, int second) {
+        return pairs.get(PairMap.pair(first, second)) != 0;
+    }
+
+    @Override
+    public long size() {
+        return pairs.size();
+    }
+
+    @Override
+    public void forEachPair(IdPairConsumer action) {
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            long pair = pairs.key(slot);
+            if (pair != PairMap.EMPTY) action.accept(PairMap.first(pair), PairMap.second(pair));
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package view;
+
+import universe.PackedPairs;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from pairs of element ids, packed as (first << 32) | second, to
+ * non-zero ints. Absent keys read as 0 and storing 0 removes the key, which suits both the
+ * witness counts of the views and the list positions of Adjacency. Linear probing with
+ * backward-shift deletion from PackedPairs, as in traditional.PairSet.
+ */
+final class PairMap {
+
+    static final long EMPTY = PackedPairs.EMPTY;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    PairMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    static long pair(int first, int second) {
+        return PackedPairs.pair(first, second);
+    }
+
+    static int first(long pair) {
+        return PackedPairs.first(pair);
+    }
+
+    static int second(long pair) {
+        return PackedPairs.second(pair);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(long pair) {
+        return PackedPairs.find(keys, pair);
+    }
+
+    int get(long pair) {
+        int slot = find(pair);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    /**
+     * @return the new value
+     */
+    int add(long pair, int delta) {
+        int slot = find(pair);
+        if (keys[slot] == EMPTY) {
+            if (delta == 0) return 0;
+            keys[slot] = pair;
+            values[slot] = delta;
+            if (++size * 2 > keys.length) grow();
+            return delta;
+        }
+        int value = values[slot] + delta;
+        if (value == 0) delete(slot);
+        else values[slot] = value;
+        return value;
+    }
+
+    void put(long pair, int value) {
+        int slot = find(pair);
+        if (keys[slot] != EMPTY) {
+            if (value == 0) delete(slot);
+            else values[slot] = value;
+        } else if (value != 0) {
+            add(pair, value);
+        }
+    }
+
+    private void delete(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            if (PackedPairs.shiftsBack(keys, gap, next)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) add(oldKeys[slot], oldValues[slot]);
+        }
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the key in the slot, or EMPTY
+     */
+    long key(int slot) {
+        return keys[slot];
+    }
+
+    int value(int slot) {
+        return values[slot];
+    }
+
+}
@@ -0,0 +1,4 @@
+package view;
+
+public class UnmatchedUniversalSetsException extends Exception {
+}
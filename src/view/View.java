@@ -0,0 +1,39 @@
+package view;
+
+/**
+ * Live relation derived from other live relations by one operator
+ */
+public abstract class View<T> extends LiveRelation<T> {
+
+    private final LiveRelation<T> left;
+    private final Listener leftListener;
+
+    /**
+     * @param left the input, or the first input of a binary operator
+     */
+    View(LiveRelation<T> left) {
+        super(left.universe);
+        this.left = left;
+        this.leftListener = this::leftChanged;
+    }
+
+    /**
+     * Registers with the input and replays its current pairs. Called last by the constructors
+     * of subclasses, once their own state exists
+     */
+    void attach() {
+        left.forEachPair((first, second) -> leftChanged(first, second, true));
+        left.listen(leftListener);
+    }
+
+    abstract void leftChanged(int first, int second, boolean inserted);
+
+    /**
+     * Stops following the inputs; the pairs stay as they are, and views over this one stop
+     * changing too
+     */
+    public void close() {
+        left.ignore(leftListener);
+    }
+
+}